@@ -0,0 +1,80 @@
+package com.dffrs.benchmarks;
+
+import com.dffrs.handler.APIHandler;
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single thread's {@link APIHandler#makeAPIRequest(APIHandler.Request)}:
+ * <ul>
+ *     <li>hit: the response is cached and fresh, so the {@link StubServer} is never called.</li>
+ *     <li>miss: caching is disabled (cache_ttl -> 0), so every call reaches the {@link StubServer}, which answers
+ *     after latencyMillis. With 0, this is the cost of the request path itself.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CacheBenchmark {
+
+    @Param({"0"})
+    public long latencyMillis;
+
+    /**
+     * Value of the cache_storage option.
+     */
+    @Param({"parsed", "raw"})
+    public String storage;
+
+    private StubServer server;
+    private APIHandler cached;
+    private APIHandler uncached;
+    private APIHandler.Request request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new StubServer(latencyMillis);
+        cached = APIHandler.getInstance(server.writeConfiguration(
+                "cache_storage -> " + storage).toString());
+        uncached = APIHandler.getInstance(server.writeConfiguration(
+                "cache_storage -> " + storage,
+                "cache_ttl -> 0").toString());
+        request = new APIHandler.Request(null, List.of("P0001"));
+        cached.makeAPIRequest(request);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public HttpResponse<JsonNode> hit() throws UnirestException {
+        return cached.makeAPIRequest(request);
+    }
+
+    @Benchmark
+    public HttpResponse<JsonNode> miss() throws UnirestException {
+        return uncached.makeAPIRequest(request);
+    }
+}
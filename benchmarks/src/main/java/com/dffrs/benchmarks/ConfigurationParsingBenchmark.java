@@ -0,0 +1,68 @@
+package com.dffrs.benchmarks;
+
+import com.dffrs.util.APIConfigurationReader;
+import com.dffrs.util.ConfigurationSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileNotFoundException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link APIConfigurationReader#getConfigurations()}, which returns the current snapshot, and
+ * {@link APIConfigurationReader#reload()}, which parses the file again, with a file using most of the
+ * configuration options.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ConfigurationParsingBenchmark {
+    private StubServer server;
+    private APIConfigurationReader reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new StubServer(0);
+        reader = APIConfigurationReader.getInstance(server.writeConfiguration(
+                "cache_capacity -> 1024",
+                "cache_policy -> tinylfu",
+                "cache_storage -> raw",
+                "cache_ttl -> 60",
+                "negative_cache_ttl -> 10",
+                "batch_concurrency -> 16",
+                "execution_mode -> platform",
+                "connect_timeout -> 1000",
+                "read_timeout -> 5000",
+                "max_connections -> 32",
+                "http_version -> http1.1").toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public Map<String, String> getConfigurations() throws FileNotFoundException {
+        return reader.getConfigurations();
+    }
+
+    @Benchmark
+    public ConfigurationSnapshot reload() throws FileNotFoundException {
+        return reader.reload();
+    }
+}
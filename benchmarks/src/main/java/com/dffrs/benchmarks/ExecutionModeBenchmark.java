@@ -0,0 +1,103 @@
+package com.dffrs.benchmarks;
+
+import com.dffrs.handler.APIHandler;
+import com.dffrs.handler.BatchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares platform threads and virtual threads when many upstream calls are in progress at once.
+ * Caching is disabled (cache_ttl -> 0), so every call reaches the {@link StubServer}.
+ * <ul>
+ *     <li>batch: {@link APIHandler#makeAPIRequests(List)} with execution_mode set to the mode.</li>
+ *     <li>blockingFanOut: one blocking {@link APIHandler#makeAPIRequest(APIHandler.Request)} per call, run on a
+ *     fixed pool of platform threads, or on one virtual thread per call.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ExecutionModeBenchmark {
+    /**
+     * Size of the platform thread pool used by blockingFanOut.
+     */
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"1000"})
+    public int calls;
+
+    @Param({"20"})
+    public long latencyMillis;
+
+    private StubServer server;
+    private APIHandler handler;
+    private ExecutorService callers;
+    private List<APIHandler.Request> requests;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new StubServer(latencyMillis);
+        handler = APIHandler.getInstance(server.writeConfiguration(
+                "cache_ttl -> 0",
+                "batch_concurrency -> " + calls,
+                "max_connections -> " + calls,
+                "execution_mode -> " + mode).toString());
+
+        callers = mode.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        requests = new ArrayList<>(calls);
+        for (int i = 0; i != calls; i++) {
+            requests.add(new APIHandler.Request(null, List.of("P" + i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        callers.shutdownNow();
+        server.close();
+    }
+
+    @Benchmark
+    public List<BatchResult> batch() {
+        return handler.makeAPIRequests(requests);
+    }
+
+    @Benchmark
+    public int blockingFanOut() throws Exception {
+        List<Future<?>> futures = new ArrayList<>(calls);
+        for (APIHandler.Request request : requests) {
+            futures.add(callers.submit(() -> handler.makeAPIRequest(request)));
+        }
+        int status = 0;
+        for (Future<?> future : futures) {
+            future.get();
+            status++;
+        }
+        return status;
+    }
+}
@@ -0,0 +1,66 @@
+package com.dffrs.benchmarks;
+
+import com.dffrs.handler.APIHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link APIHandler.Request}'s construction, which builds and encodes the URL query
+ * (prepareQuery and encodeString). Run with "-prof gc" to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QueryBuildingBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int parameters;
+
+    /**
+     * True to use values that need percent-encoding.
+     */
+    @Param({"false", "true"})
+    public boolean encoded;
+
+    private List<String> params;
+    private List<String> values;
+    private List<String> pathValues;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        params = new ArrayList<>(parameters);
+        values = new ArrayList<>(parameters);
+        for (int i = 0; i != parameters; i++) {
+            params.add("param" + i);
+            values.add(encoded ? "välue " + i + "/&=" : "value" + i);
+        }
+        pathValues = List.of(values.get(0));
+    }
+
+    @Benchmark
+    public String query() {
+        return new APIHandler.Request(params, values).getQuery();
+    }
+
+    @Benchmark
+    public String path() {
+        return new APIHandler.Request(null, pathValues).getQuery();
+    }
+}
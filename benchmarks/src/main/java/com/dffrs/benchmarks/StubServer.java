@@ -0,0 +1,90 @@
+package com.dffrs.benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local, in-process HTTP server used in place of the real API's host. Every GET answers, after a fixed
+ * latency, with a small JSON document echoing the last path segment.
+ */
+public final class StubServer implements AutoCloseable {
+    static {
+        // Otherwise, Nagle's algorithm delays every small response by tens of milliseconds. Must be set
+        // before the first server is created.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Construct and start a {@link StubServer} on a random local port.
+     *
+     * @param latencyMillis Milliseconds each response is delayed.
+     * @throws IOException If the server could not be started.
+     */
+    public StubServer(long latencyMillis) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Latency is simulated by sleeping, so each exchange gets its own (cheap) thread.
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try {
+                if (latencyMillis > 0)
+                    Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = ("{\"code\":\"" + path.substring(path.lastIndexOf('/') + 1) + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    public String getHost() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Method to write a Configuration Options file pointing to this server.
+     *
+     * @param extraOptions Additional "option -> value" lines.
+     * @return Path to the file.
+     * @throws IOException If the file could not be written.
+     */
+    public Path writeConfiguration(String... extraOptions) throws IOException {
+        StringBuilder conf = new StringBuilder()
+                .append("host -> ").append(getHost()).append('\n')
+                .append("rapid_api_host -> 127.0.0.1\n")
+                .append("rapid_api_key -> benchmark\n")
+                .append("header -> x-rapidapi-host\n")
+                .append("header -> x-rapidapi-key\n")
+                .append("endpoint -> obd2\n");
+        for (String option : extraOptions) {
+            conf.append(option).append('\n');
+        }
+        Path file = Files.createTempFile("api-handler-benchmark", ".txt");
+        file.toFile().deleteOnExit();
+        return Files.writeString(file, conf.toString());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
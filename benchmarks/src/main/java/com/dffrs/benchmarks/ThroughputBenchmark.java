@@ -0,0 +1,79 @@
+package com.dffrs.benchmarks;
+
+import com.dffrs.handler.APIHandler;
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link APIHandler#makeAPIRequest(APIHandler.Request)}'s throughput with several threads sharing one
+ * handler. Each call picks one of "keys" requests at random. Keys beyond the cache's capacity miss and reach the
+ * {@link StubServer}, so "keys" and "capacity" set the hit ratio. Change the thread count with "-t".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ThroughputBenchmark {
+
+    @Param({"1"})
+    public long latencyMillis;
+
+    @Param({"1000", "10000"})
+    public int keys;
+
+    @Param({"1024"})
+    public int capacity;
+
+    @Param({"lru", "tinylfu"})
+    public String policy;
+
+    private StubServer server;
+    private APIHandler handler;
+    private List<APIHandler.Request> requests;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new StubServer(latencyMillis);
+        handler = APIHandler.getInstance(server.writeConfiguration(
+                "cache_capacity -> " + capacity,
+                "cache_policy -> " + policy,
+                "max_connections -> 0").toString());
+        requests = new ArrayList<>(keys);
+        for (int i = 0; i != keys; i++) {
+            requests.add(new APIHandler.Request(null, List.of("P" + i)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public HttpResponse<JsonNode> makeAPIRequest() throws UnirestException {
+        return handler.makeAPIRequest(requests.get(ThreadLocalRandom.current().nextInt(keys)));
+    }
+}
@@ -0,0 +1,63 @@
+package com.dffrs.cache;
+
+/**
+ * Immutable snapshot of a {@link ResponseCache}'s counters. Useful to size the cache against real traffic.
+ */
+public final class CacheStats {
+    /**
+     * Number of lookups that found a value.
+     */
+    private final long hitCount;
+    /**
+     * Number of lookups that did not find a value.
+     */
+    private final long missCount;
+    /**
+     * Number of elements removed to respect the cache's capacity.
+     */
+    private final long evictionCount;
+
+    /**
+     * Construct a {@link CacheStats} instance.
+     *
+     * @param hitCount      Number of hits.
+     * @param missCount     Number of misses.
+     * @param evictionCount Number of evictions.
+     */
+    public CacheStats(long hitCount, long missCount, long evictionCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Public method to return the ratio of lookups that were hits.
+     *
+     * @return Value between 0 and 1. If no lookup was made, it returns 1.
+     */
+    public double getHitRate() {
+        long requests = getRequestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+}
@@ -0,0 +1,412 @@
+package com.dffrs.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe {@link ResponseCache} based on lock striping. Keys are spread across independent segments,
+ * each one guarded by its own lock, so threads working on different keys rarely wait for each other.
+ * Each segment applies the configured {@link EvictionPolicy} to its share of the capacity.
+ *
+ * @param <K> Type of the keys.
+ * @param <V> Type of the cached values.
+ */
+public final class ConcurrentResponseCache<K, V> implements ResponseCache<K, V> {
+    /**
+     * Maximum number of segments.
+     */
+    private static final int MAX_SEGMENTS = 16;
+    /**
+     * Minimum number of elements each segment should be able to keep. Smaller segments would make the
+     * eviction policy too imprecise.
+     */
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+    private final int capacity;
+    private final EvictionPolicy policy;
+    /**
+     * Listener notified of every evicted element, or a NULL Reference.
+     */
+    private final BiConsumer<K, V> evictionListener;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Construct a {@link ConcurrentResponseCache} instance.
+     *
+     * @param capacity Maximum number of elements to keep.
+     * @param policy   {@link EvictionPolicy} used when the cache is full.
+     * @throws IllegalArgumentException If capacity is not positive, or policy is a NULL Reference.
+     */
+    public ConcurrentResponseCache(int capacity, EvictionPolicy policy) {
+        this(capacity, policy, null);
+    }
+
+    /**
+     * Construct a {@link ConcurrentResponseCache} instance that notifies a listener of every evicted
+     * element (ex: to demote it to a second tier). The listener runs on the thread that caused the
+     * eviction, while the segment's lock is still held, so a later put of the evicted key can not be
+     * overtaken by it. It must be quick, and must not use this cache.
+     *
+     * @param capacity         Maximum number of elements to keep.
+     * @param policy           {@link EvictionPolicy} used when the cache is full.
+     * @param evictionListener Listener to notify, or a NULL Reference.
+     * @throws IllegalArgumentException If capacity is not positive, or policy is a NULL Reference.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentResponseCache(int capacity, EvictionPolicy policy, BiConsumer<K, V> evictionListener) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("ERROR: Cache capacity must be greater than zero.\n");
+        if (policy == null)
+            throw new IllegalArgumentException("ERROR: Cache eviction policy can not be a NULL REFERENCE.\n");
+
+        this.capacity = capacity;
+        this.policy = policy;
+        this.evictionListener = evictionListener;
+
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, capacity / MIN_SEGMENT_CAPACITY)));
+        this.segments = new Segment[count];
+        this.segmentMask = count - 1;
+        for (int i = 0; i != count; i++) {
+            // Spread the remainder, so the sum of every segment's capacity is the cache's capacity.
+            int segmentCapacity = capacity / count + (i < capacity % count ? 1 : 0);
+            segments[i] = policy == EvictionPolicy.LRU
+                    ? new LruSegment<>(segmentCapacity, evictions, evictionListener != null)
+                    : new TinyLfuSegment<>(segmentCapacity, evictions, evictionListener != null);
+        }
+    }
+
+    @Override
+    public V get(K key) {
+        int hash = spread(key.hashCode());
+        Segment<K, V> segment = segmentFor(hash);
+        V value;
+        segment.lock.lock();
+        try {
+            value = segment.get(key, hash);
+        } finally {
+            segment.lock.unlock();
+        }
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        put(key, value, null);
+    }
+
+    /**
+     * Method to store a value, running an action on its key first, while holding the lock of the key's segment.
+     * The action is then ordered with the evictions of that key, and with their listener (ex: a second tier
+     * can drop its copy of the key, knowing no eviction will write an older one afterwards).
+     *
+     * @param key       Key to store.
+     * @param value     Value to store.
+     * @param beforePut Action to run on the key, or a NULL Reference.
+     */
+    void put(K key, V value, Consumer<K> beforePut) {
+        if (value == null)
+            throw new IllegalArgumentException("ERROR: Cached value can not be a NULL REFERENCE.\n");
+
+        int hash = spread(key.hashCode());
+        Segment<K, V> segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            if (beforePut != null)
+                beforePut.accept(key);
+            segment.put(key, hash, value);
+            if (segment.evicted != null && !segment.evicted.isEmpty()) {
+                for (Map.Entry<K, V> entry : segment.evicted) {
+                    evictionListener.accept(entry.getKey(), entry.getValue());
+                }
+                segment.evicted.clear();
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(spread(key.hashCode()));
+        segment.lock.lock();
+        try {
+            segment.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Public method to return the {@link EvictionPolicy} used by this cache.
+     *
+     * @return {@link EvictionPolicy} instance.
+     */
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        return segments[(hash >>> 16) & segmentMask];
+    }
+
+    /**
+     * Private static method to spread the hash code's bits, so keys with similar hashes end up
+     * in different segments.
+     */
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Part of the cache, guarded by its own lock. Every method, except the constructor, must be called
+     * while holding {@link #lock}.
+     */
+    private abstract static class Segment<K, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final LongAdder evictions;
+        /**
+         * Elements evicted by the last put, waiting to be given to the listener, or a NULL Reference if
+         * there is no listener.
+         */
+        final List<Map.Entry<K, V>> evicted;
+
+        Segment(LongAdder evictions, boolean trackEvicted) {
+            this.evictions = evictions;
+            this.evicted = trackEvicted ? new ArrayList<>() : null;
+        }
+
+        void evict(K key, V value) {
+            evictions.increment();
+            if (evicted != null)
+                evicted.add(Map.entry(key, value));
+        }
+
+        abstract V get(K key, int hash);
+
+        abstract void put(K key, int hash, V value);
+
+        abstract void remove(K key);
+
+        abstract void clear();
+
+        abstract int size();
+    }
+
+    /**
+     * {@link EvictionPolicy#LRU} segment, based on an access ordered {@link LinkedHashMap}.
+     */
+    private static final class LruSegment<K, V> extends Segment<K, V> {
+        private final LinkedHashMap<K, V> map;
+
+        LruSegment(int capacity, LongAdder evictions, boolean trackEvicted) {
+            super(evictions, trackEvicted);
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    if (size() > capacity) {
+                        evict(eldest.getKey(), eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        V get(K key, int hash) {
+            return map.get(key);
+        }
+
+        @Override
+        void put(K key, int hash, V value) {
+            map.put(key, value);
+        }
+
+        @Override
+        void remove(K key) {
+            map.remove(key);
+        }
+
+        @Override
+        void clear() {
+            map.clear();
+        }
+
+        @Override
+        int size() {
+            return map.size();
+        }
+    }
+
+    /**
+     * {@link EvictionPolicy#TINY_LFU} segment. New elements enter a small LRU window (1% of the capacity).
+     * When the window overflows, its oldest element competes with the main area's victim, and the one with
+     * the highest estimated frequency stays. The main area is a segmented LRU: elements hit while on
+     * probation are promoted to the protected area (80% of the main area).
+     */
+    private static final class TinyLfuSegment<K, V> extends Segment<K, V> {
+        private final LinkedHashMap<K, V> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<K, V> probation = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<K, V> protectedArea = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch;
+
+        private final int windowCapacity;
+        private final int mainCapacity;
+        private final int protectedCapacity;
+
+        TinyLfuSegment(int capacity, LongAdder evictions, boolean trackEvicted) {
+            super(evictions, trackEvicted);
+            this.windowCapacity = Math.max(1, capacity / 100);
+            this.mainCapacity = Math.max(0, capacity - windowCapacity);
+            this.protectedCapacity = (int) (mainCapacity * 0.8);
+            this.sketch = new FrequencySketch(capacity);
+        }
+
+        @Override
+        V get(K key, int hash) {
+            sketch.increment(hash);
+            V value = window.get(key);
+            if (value != null)
+                return value;
+
+            value = protectedArea.get(key);
+            if (value != null)
+                return value;
+
+            value = probation.remove(key);
+            if (value != null)
+                promote(key, value);
+            return value;
+        }
+
+        @Override
+        void put(K key, int hash, V value) {
+            sketch.increment(hash);
+            if (window.containsKey(key)) {
+                window.put(key, value);
+            } else if (protectedArea.containsKey(key)) {
+                protectedArea.put(key, value);
+            } else if (probation.remove(key) != null) {
+                promote(key, value);
+            } else {
+                window.put(key, value);
+                if (window.size() > windowCapacity)
+                    admit(removeEldest(window));
+            }
+        }
+
+        /**
+         * Private procedure to move an element from probation to the protected area. If the protected area
+         * overflows, its oldest element goes back to probation.
+         */
+        private void promote(K key, V value) {
+            protectedArea.put(key, value);
+            if (protectedArea.size() > protectedCapacity) {
+                Map.Entry<K, V> demoted = removeEldest(protectedArea);
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+        }
+
+        /**
+         * Private procedure to decide if the element leaving the window is worth keeping.
+         */
+        private void admit(Map.Entry<K, V> candidate) {
+            if (probation.size() + protectedArea.size() < mainCapacity) {
+                probation.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+
+            LinkedHashMap<K, V> victimArea = probation.isEmpty() ? protectedArea : probation;
+            if (victimArea.isEmpty()) { // Main area has no room at all.
+                evict(candidate.getKey(), candidate.getValue());
+                return;
+            }
+            K victim = victimArea.keySet().iterator().next();
+            int candidateFrequency = sketch.frequency(spread(candidate.getKey().hashCode()));
+            int victimFrequency = sketch.frequency(spread(victim.hashCode()));
+            if (candidateFrequency > victimFrequency) {
+                evict(victim, victimArea.remove(victim));
+                probation.put(candidate.getKey(), candidate.getValue());
+            } else {
+                evict(candidate.getKey(), candidate.getValue());
+            }
+        }
+
+        private static <K, V> Map.Entry<K, V> removeEldest(LinkedHashMap<K, V> map) {
+            Iterator<Map.Entry<K, V>> iterator = map.entrySet().iterator();
+            Map.Entry<K, V> eldest = iterator.next();
+            Map.Entry<K, V> copy = Map.entry(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+            return copy;
+        }
+
+        @Override
+        void remove(K key) {
+            if (window.remove(key) == null && probation.remove(key) == null)
+                protectedArea.remove(key);
+        }
+
+        @Override
+        void clear() {
+            window.clear();
+            probation.clear();
+            protectedArea.clear();
+        }
+
+        @Override
+        int size() {
+            return window.size() + probation.size() + protectedArea.size();
+        }
+    }
+}
@@ -0,0 +1,707 @@
+package com.dffrs.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent key/value store made of two files inside a directory:
+ * <ul>
+ *     <li>{@value #DATA_FILE}: append-only log of records (key, value, retention and a CRC32 checksum). Removing a
+ *     key appends a tombstone record.</li>
+ *     <li>{@value #INDEX_FILE}: memory-mapped, open addressing hash table from each key's 64-bit hash to the offset
+ *     of its latest record. It is updated in place, so opening the store only maps it, without reading the log.</li>
+ * </ul>
+ * Both files carry the same generation number. If the index is missing, damaged, or belongs to another generation,
+ * it is rebuilt by reading the whole log. Records appended after the last indexed offset (ex: the process stopped
+ * between both writes) are replayed, and the log is truncated at the first incomplete or corrupted record.
+ * Every lookup checks the record's checksum and key, so a stale index entry is only a miss.
+ * <p>
+ * When the log grows beyond its maximum size, it is compacted: records that are expired, removed or replaced are
+ * dropped, followed by the oldest ones if needed, and a new log and index are written next to the current ones and
+ * then moved over them.
+ * <p>
+ * Thread-safe: lookups share a read lock, changes take a write lock. A lock file keeps other processes (and other
+ * stores in this process) from using the same directory.
+ */
+final class DiskStore implements Closeable {
+    static final String DATA_FILE = "responses.data";
+    static final String INDEX_FILE = "responses.index";
+    private static final String LOCK_FILE = "responses.lock";
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private static final int DATA_MAGIC = 0x44484144;
+    private static final int INDEX_MAGIC = 0x44484149;
+    private static final int RECORD_MAGIC = 0x44484152;
+    private static final int VERSION = 1;
+    /**
+     * Log header: magic (int), version (int), generation (long).
+     */
+    private static final int DATA_HEADER = 16;
+    /**
+     * Index header: magic (int), version (int), generation (long), number of slots (int), unused (int),
+     * log offset up to which records are indexed (long).
+     */
+    private static final int INDEX_HEADER = 32;
+    private static final int INDEXED_LENGTH_POSITION = 24;
+    /**
+     * Record header: magic (int), CRC32 of everything after it (int), key length (int), value length (int, -1 for a
+     * tombstone), epoch milliseconds until which the record is worth keeping (long).
+     */
+    private static final int RECORD_HEADER = 24;
+    /**
+     * Index slot: key hash (long, 0 when empty), record offset (long, -1 when removed).
+     */
+    private static final int SLOT_SIZE = 16;
+    private static final int MIN_SLOTS = 1024;
+    private static final long REMOVED = -1;
+    private static final int TOMBSTONE = -1;
+    /**
+     * Fraction of the maximum size a compaction aims for, so it does not run again right away.
+     */
+    private static final double COMPACTION_TARGET = 0.75;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final FileChannel lockChannel;
+    private final FileLock directoryLock;
+
+    private FileChannel data;
+    private long dataLength;
+    private long generation;
+    private MappedByteBuffer index;
+    private int slotCount;
+    /**
+     * Number of slots holding a hash, including removed ones.
+     */
+    private int usedSlots;
+    private int liveCount;
+    private long evictionCount;
+
+    /**
+     * Construct a {@link DiskStore} instance, opening (or creating) its files.
+     *
+     * @param directory Directory holding the files. Created if needed.
+     * @param maxBytes  Size the log may reach before being compacted.
+     * @throws IOException If the files can not be opened, or the directory is used by another store.
+     */
+    DiskStore(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = Math.max(maxBytes, DATA_HEADER + RECORD_HEADER);
+
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IOException("ERROR: Persistent cache directory " + directory + " is already in use.\n");
+        }
+        directoryLock = acquired;
+
+        try {
+            // Left behind by a compaction that did not finish.
+            Files.deleteIfExists(compactPath(DATA_FILE));
+            Files.deleteIfExists(compactPath(INDEX_FILE));
+            openData();
+            long indexedLength = openIndex();
+            if (indexedLength < 0) {
+                index = createIndex(directory.resolve(INDEX_FILE), MIN_SLOTS, generation);
+                slotCount = MIN_SLOTS;
+                usedSlots = 0;
+                liveCount = 0;
+                indexedLength = DATA_HEADER;
+            }
+            replay(indexedLength);
+            if (dataLength > this.maxBytes)
+                compact(System.currentTimeMillis());
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Method to return the value associated with the key.
+     *
+     * @param key Key to search for.
+     * @param now Current epoch milliseconds. Records kept only until an earlier moment are ignored.
+     * @return Stored bytes, or a NULL Reference if the store has no (valid) record of that key.
+     * @throws IOException If the log can not be read.
+     */
+    byte[] get(String key, long now) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(hash);
+            if (slot < 0)
+                return null;
+            long offset = index.getLong(slotPosition(slot) + 8);
+            if (offset == REMOVED)
+                return null;
+
+            Record record = readRecord(data, offset, dataLength);
+            if (record == null || record.value == null || record.retainUntil < now
+                    || !Arrays.equals(record.key, keyBytes))
+                return null;
+            return record.value;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to store (or replace) a value. Compacts the log if it grows beyond its maximum size.
+     *
+     * @param key         Key to store.
+     * @param value       Bytes to store.
+     * @param retainUntil Epoch milliseconds after which the value may be dropped by a compaction.
+     * @throws IOException If the log can not be written.
+     */
+    void put(String key, byte[] value, long retainUntil) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            long offset = append(keyBytes, value, retainUntil);
+            insert(hash(keyBytes), offset);
+            index.putLong(INDEXED_LENGTH_POSITION, dataLength);
+            if (dataLength > maxBytes)
+                compact(System.currentTimeMillis());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to remove a value.
+     *
+     * @param key Key to remove.
+     * @throws IOException If the log can not be written.
+     */
+    void remove(String key) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(hash);
+            if (slot < 0)
+                return;
+            long offset = index.getLong(slotPosition(slot) + 8);
+            if (offset == REMOVED)
+                return;
+            // The slot only matches the hash: another key with the same hash must not be removed instead.
+            Record record = readRecord(data, offset, dataLength);
+            if (record == null || !Arrays.equals(record.key, keyBytes))
+                return;
+
+            append(keyBytes, null, 0);
+            index.putLong(slotPosition(slot) + 8, REMOVED);
+            liveCount--;
+            index.putLong(INDEXED_LENGTH_POSITION, dataLength);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Method to remove every value. A new generation starts, so an old index can not be used by mistake.
+     *
+     * @throws IOException If the files can not be written.
+     */
+    void clear() throws IOException {
+        lock.writeLock().lock();
+        try {
+            generation = newGeneration();
+            data.truncate(DATA_HEADER);
+            writeFully(data, dataHeader(generation), 0);
+            dataLength = DATA_HEADER;
+            index = createIndex(directory.resolve(INDEX_FILE), MIN_SLOTS, generation);
+            slotCount = MIN_SLOTS;
+            usedSlots = 0;
+            liveCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to return the size of the log, including records that a compaction would drop.
+     *
+     * @return Number of bytes.
+     */
+    long getDataBytes() {
+        lock.readLock().lock();
+        try {
+            return dataLength;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Method to return the number of values dropped, by compactions, to respect the maximum size.
+     *
+     * @return Number of evictions.
+     */
+    long getEvictionCount() {
+        lock.readLock().lock();
+        try {
+            return evictionCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Procedure to flush both files to the storage device and release the directory.
+     *
+     * @throws IOException If the files can not be flushed.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (index != null)
+                index.force();
+            if (data != null && data.isOpen()) {
+                data.force(false);
+                data.close();
+            }
+        } finally {
+            if (directoryLock.isValid())
+                directoryLock.release();
+            lockChannel.close();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Private procedure to open the log, starting a new one if it is missing or has an unknown header.
+     */
+    private void openData() throws IOException {
+        data = FileChannel.open(directory.resolve(DATA_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER);
+        if (data.size() >= DATA_HEADER && readFully(data, header, 0)
+                && header.getInt(0) == DATA_MAGIC && header.getInt(4) == VERSION) {
+            generation = header.getLong(8);
+            dataLength = data.size();
+            return;
+        }
+        generation = newGeneration();
+        data.truncate(0);
+        writeFully(data, dataHeader(generation), 0);
+        dataLength = DATA_HEADER;
+    }
+
+    /**
+     * Private method to map the existing index, if it belongs to the log's generation.
+     *
+     * @return Log offset up to which records are indexed, or -1 if the index can not be used.
+     */
+    private long openIndex() throws IOException {
+        Path path = directory.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(path) || Files.size(path) < INDEX_HEADER)
+            return -1;
+
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                return -1;
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        int slots = mapped.getInt(16);
+        long indexedLength = mapped.getLong(INDEXED_LENGTH_POSITION);
+        if (mapped.getInt(0) != INDEX_MAGIC || mapped.getInt(4) != VERSION || mapped.getLong(8) != generation
+                || slots < MIN_SLOTS || Integer.bitCount(slots) != 1
+                || mapped.capacity() != INDEX_HEADER + (long) slots * SLOT_SIZE
+                || indexedLength < DATA_HEADER || indexedLength > dataLength)
+            return -1;
+
+        index = mapped;
+        slotCount = slots;
+        usedSlots = 0;
+        liveCount = 0;
+        for (int slot = 0; slot != slots; slot++) {
+            int position = slotPosition(slot);
+            if (index.getLong(position) != 0) {
+                usedSlots++;
+                long offset = index.getLong(position + 8);
+                if (offset != REMOVED) {
+                    if (offset < DATA_HEADER || offset >= indexedLength)
+                        return -1;
+                    liveCount++;
+                }
+            }
+        }
+        return indexedLength;
+    }
+
+    /**
+     * Private procedure to index every record after an offset, truncating the log at the first one that is
+     * incomplete or corrupted.
+     */
+    private void replay(long from) throws IOException {
+        long offset = from;
+        while (offset < dataLength) {
+            Record record = readRecord(data, offset, dataLength);
+            if (record == null) {
+                data.truncate(offset);
+                dataLength = offset;
+                break;
+            }
+            long hash = hash(record.key);
+            if (record.value == null) {
+                int slot = findSlot(hash);
+                if (slot >= 0 && index.getLong(slotPosition(slot) + 8) != REMOVED) {
+                    index.putLong(slotPosition(slot) + 8, REMOVED);
+                    liveCount--;
+                }
+            } else {
+                insert(hash, offset);
+            }
+            offset += record.length;
+        }
+        index.putLong(INDEXED_LENGTH_POSITION, dataLength);
+    }
+
+    /**
+     * Private method to write a record at the end of the log.
+     *
+     * @param value Bytes to write, or a NULL Reference for a tombstone.
+     * @return Offset of the record.
+     */
+    private long append(byte[] key, byte[] value, long retainUntil) throws IOException {
+        int valueLength = value == null ? 0 : value.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + key.length + valueLength);
+        record.putInt(RECORD_MAGIC)
+                .putInt(0)
+                .putInt(key.length)
+                .putInt(value == null ? TOMBSTONE : value.length)
+                .putLong(retainUntil)
+                .put(key);
+        if (value != null)
+            record.put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, record.capacity() - 8);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+
+        long offset = dataLength;
+        writeFully(data, record, offset);
+        dataLength += record.capacity();
+        return offset;
+    }
+
+    /**
+     * Private method to read and validate a record.
+     *
+     * @return {@link Record} instance, or a NULL Reference if the bytes at that offset are not a complete,
+     * valid record.
+     */
+    private static Record readRecord(FileChannel channel, long offset, long limit) throws IOException {
+        if (offset < DATA_HEADER || offset + RECORD_HEADER > limit)
+            return null;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        if (!readFully(channel, header, offset) || header.getInt(0) != RECORD_MAGIC)
+            return null;
+
+        int keyLength = header.getInt(8);
+        int valueLength = header.getInt(12);
+        long length = RECORD_HEADER + (long) keyLength + Math.max(0, valueLength);
+        if (keyLength < 0 || valueLength < TOMBSTONE || offset + length > limit || length > Integer.MAX_VALUE)
+            return null;
+
+        ByteBuffer body = ByteBuffer.allocate((int) length - RECORD_HEADER);
+        if (!readFully(channel, body, offset + RECORD_HEADER))
+            return null;
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 8, RECORD_HEADER - 8);
+        crc.update(body.array(), 0, body.capacity());
+        if ((int) crc.getValue() != header.getInt(4))
+            return null;
+
+        byte[] key = Arrays.copyOfRange(body.array(), 0, keyLength);
+        byte[] value = valueLength == TOMBSTONE ? null : Arrays.copyOfRange(body.array(), keyLength, body.capacity());
+        return new Record(key, value, header.getLong(16), (int) length);
+    }
+
+    /**
+     * Private procedure to rewrite the log with only the live, unexpired records, dropping the oldest ones if
+     * they still do not fit in {@link #COMPACTION_TARGET} of the maximum size. Must be called while holding the
+     * write lock.
+     */
+    private void compact(long now) throws IOException {
+        // Live records, in log order, as {hash, offset, length}.
+        List<long[]> live = new ArrayList<>(liveCount);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+        for (int slot = 0; slot != slotCount; slot++) {
+            int position = slotPosition(slot);
+            long hash = index.getLong(position);
+            long offset = index.getLong(position + 8);
+            if (hash == 0 || offset == REMOVED)
+                continue;
+            header.clear();
+            if (!readFully(data, header, offset) || header.getInt(0) != RECORD_MAGIC || header.getLong(16) < now)
+                continue;
+            long length = RECORD_HEADER + (long) header.getInt(8) + header.getInt(12);
+            if (offset + length <= dataLength)
+                live.add(new long[]{hash, offset, length});
+        }
+        live.sort((a, b) -> Long.compare(a[1], b[1]));
+
+        long total = 0;
+        for (long[] record : live) {
+            total += record[2];
+        }
+        long target = (long) (maxBytes * COMPACTION_TARGET) - DATA_HEADER;
+        int first = 0;
+        while (first < live.size() && total > target) {
+            total -= live.get(first++)[2];
+            evictionCount++;
+        }
+        List<long[]> kept = live.subList(first, live.size());
+
+        long newGeneration = newGeneration();
+        Path compactData = compactPath(DATA_FILE);
+        Path compactIndex = compactPath(INDEX_FILE);
+        int slots = MIN_SLOTS;
+        while (slots < kept.size() * 4L) {
+            slots <<= 1;
+        }
+        MappedByteBuffer newIndex = createIndex(compactIndex, slots, newGeneration);
+        int newUsed = 0;
+        long newLength;
+        try (FileChannel out = FileChannel.open(compactData,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            writeFully(out, dataHeader(newGeneration), 0);
+            newLength = DATA_HEADER;
+            for (long[] record : kept) {
+                long copied = 0;
+                while (copied < record[2]) {
+                    long transferred = data.transferTo(record[1] + copied, record[2] - copied,
+                            out.position(newLength + copied));
+                    if (transferred <= 0)
+                        throw new IOException("ERROR: Persistent cache log ended in the middle of a record.\n");
+                    copied += transferred;
+                }
+                insertInto(newIndex, slots, record[0], newLength);
+                newUsed++;
+                newLength += record[2];
+            }
+            out.force(false);
+        }
+        newIndex.putLong(INDEXED_LENGTH_POSITION, newLength);
+        newIndex.force();
+
+        // Once the log is moved, the old index belongs to another generation, so a crash before the index is
+        // moved only costs a rebuild.
+        Files.move(compactData, directory.resolve(DATA_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        Files.move(compactIndex, directory.resolve(INDEX_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        data.close();
+        data = FileChannel.open(directory.resolve(DATA_FILE), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dataLength = newLength;
+        generation = newGeneration;
+        index = newIndex;
+        slotCount = slots;
+        usedSlots = newUsed;
+        liveCount = newUsed;
+    }
+
+    /**
+     * Private procedure to point a hash to a record, growing the index when more than half of it is used.
+     */
+    private void insert(long hash, long offset) throws IOException {
+        int removed = -1;
+        int slot = (int) (hash ^ (hash >>> 32)) & (slotCount - 1);
+        while (true) {
+            int position = slotPosition(slot);
+            long current = index.getLong(position);
+            if (current == hash) {
+                if (index.getLong(position + 8) == REMOVED)
+                    liveCount++;
+                index.putLong(position + 8, offset);
+                return;
+            }
+            if (current == 0)
+                break;
+            if (removed < 0 && index.getLong(position + 8) == REMOVED)
+                removed = slot;
+            slot = (slot + 1) & (slotCount - 1);
+        }
+
+        if (removed >= 0) {
+            slot = removed;
+        } else {
+            usedSlots++;
+        }
+        index.putLong(slotPosition(slot), hash);
+        index.putLong(slotPosition(slot) + 8, offset);
+        liveCount++;
+        if (usedSlots > slotCount / 2)
+            growIndex();
+    }
+
+    /**
+     * Private procedure to move the live entries to an index with twice as many slots.
+     */
+    private void growIndex() throws IOException {
+        int slots = slotCount << 1;
+        Path compactIndex = compactPath(INDEX_FILE);
+        MappedByteBuffer newIndex = createIndex(compactIndex, slots, generation);
+        int used = 0;
+        for (int slot = 0; slot != slotCount; slot++) {
+            int position = slotPosition(slot);
+            long hash = index.getLong(position);
+            long offset = index.getLong(position + 8);
+            if (hash != 0 && offset != REMOVED) {
+                insertInto(newIndex, slots, hash, offset);
+                used++;
+            }
+        }
+        newIndex.putLong(INDEXED_LENGTH_POSITION, index.getLong(INDEXED_LENGTH_POSITION));
+        Files.move(compactIndex, directory.resolve(INDEX_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        index = newIndex;
+        slotCount = slots;
+        usedSlots = used;
+    }
+
+    private static void insertInto(MappedByteBuffer target, int slots, long hash, long offset) {
+        int slot = (int) (hash ^ (hash >>> 32)) & (slots - 1);
+        while (target.getLong(slotPosition(slot)) != 0) {
+            slot = (slot + 1) & (slots - 1);
+        }
+        target.putLong(slotPosition(slot), hash);
+        target.putLong(slotPosition(slot) + 8, offset);
+    }
+
+    /**
+     * Private method to search the index for a hash.
+     *
+     * @return Slot holding the hash (its record may have been removed), or -1 if there is none.
+     */
+    private int findSlot(long hash) {
+        int slot = (int) (hash ^ (hash >>> 32)) & (slotCount - 1);
+        while (true) {
+            long current = index.getLong(slotPosition(slot));
+            if (current == hash)
+                return slot;
+            if (current == 0)
+                return -1;
+            slot = (slot + 1) & (slotCount - 1);
+        }
+    }
+
+    private static MappedByteBuffer createIndex(Path path, int slots, long generation) throws IOException {
+        Files.deleteIfExists(path);
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) slots * SLOT_SIZE);
+        }
+        mapped.putInt(0, INDEX_MAGIC);
+        mapped.putInt(4, VERSION);
+        mapped.putLong(8, generation);
+        mapped.putInt(16, slots);
+        mapped.putLong(INDEXED_LENGTH_POSITION, DATA_HEADER);
+        return mapped;
+    }
+
+    private static ByteBuffer dataHeader(long generation) {
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER);
+        header.putInt(DATA_MAGIC).putInt(VERSION).putLong(generation).flip();
+        return header;
+    }
+
+    private static int slotPosition(int slot) {
+        return INDEX_HEADER + slot * SLOT_SIZE;
+    }
+
+    private Path compactPath(String file) {
+        return directory.resolve(file + COMPACT_SUFFIX);
+    }
+
+    private static long newGeneration() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Private static method to compute a key's 64-bit FNV-1a hash. Never returns 0, which marks empty slots.
+     */
+    private static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static final class Record {
+        final byte[] key;
+        /**
+         * Stored bytes, or a NULL Reference for a tombstone.
+         */
+        final byte[] value;
+        final long retainUntil;
+        final int length;
+
+        Record(byte[] key, byte[] value, long retainUntil, int length) {
+            this.key = key;
+            this.value = value;
+            this.retainUntil = retainUntil;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.dffrs.cache;
+
+/**
+ * Enumerator to list all eviction policies supported by {@link ConcurrentResponseCache}.
+ * Each policy has an id, which is the value expected inside the Configuration Options file
+ * (ex: cache_policy -> tinylfu).
+ */
+public enum EvictionPolicy {
+    /**
+     * Least Recently Used. Evicts the element that was accessed the longest time ago.
+     */
+    LRU("lru"),
+    /**
+     * Window TinyLFU. Keeps a small LRU window for new elements, and only admits them into the main
+     * area if they are accessed more often than the element they would replace.
+     */
+    TINY_LFU("tinylfu");
+
+    private final String policyIdentifier;
+
+    EvictionPolicy(String id) {
+        this.policyIdentifier = id;
+    }
+
+    public String getPolicyIdentifier() {
+        return policyIdentifier;
+    }
+
+    /**
+     * Public static method to map an id to its {@link EvictionPolicy}.
+     *
+     * @param id String representing the policy (case insensitive).
+     * @return Matched {@link EvictionPolicy}.
+     * @throws IllegalArgumentException If no policy matches the id.
+     */
+    public static EvictionPolicy fromIdentifier(String id) {
+        for (EvictionPolicy policy : values()) {
+            if (policy.policyIdentifier.equalsIgnoreCase(id))
+                return policy;
+        }
+        throw new IllegalArgumentException("ERROR: Unknown cache eviction policy (" + id + ").\n");
+    }
+}
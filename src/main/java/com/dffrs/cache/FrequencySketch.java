@@ -0,0 +1,92 @@
+package com.dffrs.cache;
+
+/**
+ * Count-Min Sketch used by {@link EvictionPolicy#TINY_LFU} to estimate how often a key was accessed.
+ * Counters saturate at 15 and are halved, periodically, so old popularity fades away.
+ * <p>
+ * NOTE: Not thread-safe. Each {@link ConcurrentResponseCache} segment owns one and guards it with its lock.
+ */
+final class FrequencySketch {
+    /**
+     * Number of rows (hash functions).
+     */
+    private static final int DEPTH = 4;
+    /**
+     * Maximum value a counter can hold.
+     */
+    private static final int MAX_FREQUENCY = 15;
+    /**
+     * Seeds used to derive a different index, for the same key, on each row.
+     */
+    private static final int[] SEEDS = {0x97cb3127, 0xb0b8a2b1, 0x9e3779b9, 0x7f4a7c15};
+
+    private final byte[][] table;
+    private final int mask;
+    /**
+     * Number of increments after which every counter is halved.
+     */
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Construct a {@link FrequencySketch} sized for the number of elements a cache keeps.
+     *
+     * @param capacity Maximum number of elements of the cache using this sketch.
+     */
+    FrequencySketch(int capacity) {
+        // Four counters per element, on each row, keep collisions low enough for small caches.
+        int width = Integer.highestOneBit(Math.max(16, capacity) - 1) << 3;
+        this.table = new byte[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * Math.max(16, capacity);
+    }
+
+    /**
+     * Method to return the estimated number of times the key was accessed.
+     *
+     * @param hash Key's hash code.
+     * @return Estimated frequency, between 0 and 15.
+     */
+    int frequency(int hash) {
+        int min = MAX_FREQUENCY;
+        for (int row = 0; row != DEPTH; row++) {
+            min = Math.min(min, table[row][indexOf(hash, row)]);
+        }
+        return min;
+    }
+
+    /**
+     * Method to record one access to the key.
+     *
+     * @param hash Key's hash code.
+     */
+    void increment(int hash) {
+        boolean added = false;
+        for (int row = 0; row != DEPTH; row++) {
+            int index = indexOf(hash, row);
+            if (table[row][index] < MAX_FREQUENCY) {
+                table[row][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize)
+            reset();
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Private procedure to halve every counter (aging).
+     */
+    private void reset() {
+        for (byte[] row : table) {
+            for (int i = 0; i != row.length; i++) {
+                row[i] = (byte) (row[i] >>> 1);
+            }
+        }
+        additions = sampleSize / 2;
+    }
+}
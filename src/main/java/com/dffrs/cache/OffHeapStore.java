@@ -0,0 +1,269 @@
+package com.dffrs.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Byte-bounded store kept outside of the Java heap. Values are copied into a single direct {@link ByteBuffer},
+ * split into fixed-size blocks, so the garbage collector never scans them. A value may take several
+ * (non-contiguous) blocks. When there are not enough free blocks, the least recently used values are evicted.
+ * <p>
+ * Values can, optionally, be compressed. The compressed copy is only kept when it is smaller than the original.
+ * <p>
+ * Thread-safe: every operation on the index and the arena is guarded by a single lock. Compression happens
+ * before the lock is taken, and decompression after it is released.
+ *
+ * @param <K> Type of the keys.
+ */
+final class OffHeapStore<K> {
+    /**
+     * Size, in bytes, of each block of the arena.
+     */
+    static final int BLOCK_SIZE = 512;
+
+    private final ByteBuffer arena;
+    /**
+     * Stack of the indexes of the free blocks.
+     */
+    private final int[] freeBlocks;
+    private int freeCount;
+
+    private final LinkedHashMap<K, Slot> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean compress;
+    private long evictionCount;
+
+    /**
+     * Construct an {@link OffHeapStore} instance.
+     *
+     * @param maxBytes Maximum number of bytes to allocate. Rounded down to a multiple of {@link #BLOCK_SIZE}.
+     * @param compress True to compress the values.
+     * @throws IllegalArgumentException If maxBytes is smaller than {@link #BLOCK_SIZE}.
+     */
+    OffHeapStore(int maxBytes, boolean compress) {
+        if (maxBytes < BLOCK_SIZE)
+            throw new IllegalArgumentException("ERROR: Off-heap store must have at least " + BLOCK_SIZE + " bytes.\n");
+
+        int blocks = maxBytes / BLOCK_SIZE;
+        this.arena = ByteBuffer.allocateDirect(blocks * BLOCK_SIZE);
+        this.freeBlocks = new int[blocks];
+        for (int i = 0; i != blocks; i++) {
+            freeBlocks[i] = blocks - 1 - i;
+        }
+        this.freeCount = blocks;
+        this.compress = compress;
+    }
+
+    /**
+     * Method to store (or replace) a value, evicting the least recently used ones if needed.
+     *
+     * @param key   Key to store.
+     * @param value Bytes to store.
+     * @return False if the value is larger than the whole store, and was not kept.
+     */
+    boolean put(K key, byte[] value) {
+        byte[] data = value;
+        boolean compressed = false;
+        if (compress) {
+            byte[] deflated = deflate(value);
+            if (deflated.length < value.length) {
+                data = deflated;
+                compressed = true;
+            }
+        }
+
+        int needed = Math.max(1, (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        lock.lock();
+        try {
+            release(index.remove(key));
+            if (needed > freeBlocks.length)
+                return false;
+
+            Iterator<Slot> eldest = index.values().iterator();
+            while (freeCount < needed) {
+                release(eldest.next());
+                eldest.remove();
+                evictionCount++;
+            }
+
+            int[] blocks = new int[needed];
+            for (int i = 0; i != needed; i++) {
+                int block = freeBlocks[--freeCount];
+                blocks[i] = block;
+                int offset = i * BLOCK_SIZE;
+                arena.position(block * BLOCK_SIZE);
+                arena.put(data, offset, Math.min(BLOCK_SIZE, data.length - offset));
+            }
+            index.put(key, new Slot(blocks, data.length, value.length, compressed));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method to return a copy of the value associated with the key.
+     *
+     * @param key Key to search for.
+     * @return Stored bytes, or a NULL Reference if the store has no record of that key.
+     */
+    byte[] get(K key) {
+        return read(key, false);
+    }
+
+    /**
+     * Method to remove a value, returning it.
+     *
+     * @param key Key to remove.
+     * @return Stored bytes, or a NULL Reference if the store had no record of that key.
+     */
+    byte[] remove(K key) {
+        return read(key, true);
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            for (Slot slot : index.values()) {
+                release(slot);
+            }
+            index.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return index.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method to return the number of bytes taken by stored values, counting whole blocks.
+     *
+     * @return Number of bytes.
+     */
+    long getUsedBytes() {
+        lock.lock();
+        try {
+            return (long) (freeBlocks.length - freeCount) * BLOCK_SIZE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getMaxBytes() {
+        return (long) freeBlocks.length * BLOCK_SIZE;
+    }
+
+    long getEvictionCount() {
+        lock.lock();
+        try {
+            return evictionCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] read(K key, boolean remove) {
+        Slot slot;
+        byte[] data;
+        lock.lock();
+        try {
+            slot = remove ? index.remove(key) : index.get(key);
+            if (slot == null)
+                return null;
+
+            data = new byte[slot.length];
+            for (int i = 0; i != slot.blocks.length; i++) {
+                int offset = i * BLOCK_SIZE;
+                arena.position(slot.blocks[i] * BLOCK_SIZE);
+                arena.get(data, offset, Math.min(BLOCK_SIZE, data.length - offset));
+            }
+            if (remove)
+                release(slot);
+        } finally {
+            lock.unlock();
+        }
+        return slot.compressed ? inflate(data, slot.originalLength) : data;
+    }
+
+    /**
+     * Private procedure to give a slot's blocks back to the free stack. Must be called while holding {@link #lock}.
+     */
+    private void release(Slot slot) {
+        if (slot == null)
+            return;
+        for (int block : slot.blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    private static byte[] deflate(byte[] value) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, value.length / 2));
+            byte[] buffer = new byte[BLOCK_SIZE];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int originalLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] value = new byte[originalLength];
+            int read = 0;
+            while (read < originalLength && !inflater.finished()) {
+                read += inflater.inflate(value, read, originalLength - read);
+            }
+            return value;
+        } catch (DataFormatException e) {
+            // The bytes were compressed by this store, so this should never happen.
+            throw new IllegalStateException("ERROR: Off-heap value could not be decompressed.\n", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Location of a stored value inside the arena.
+     */
+    private static final class Slot {
+        final int[] blocks;
+        /**
+         * Number of bytes written to the blocks.
+         */
+        final int length;
+        /**
+         * Number of bytes before compression.
+         */
+        final int originalLength;
+        final boolean compressed;
+
+        Slot(int[] blocks, int length, int originalLength, boolean compressed) {
+            this.blocks = blocks;
+            this.length = length;
+            this.originalLength = originalLength;
+            this.compressed = compressed;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.dffrs.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link ResponseCache} that survives restarts. Every element is kept in a memory cache and, at the same time,
+ * written to a persistent tier on disk (See {@link DiskStore}). A miss on the memory cache falls back to the disk,
+ * and the element found there is put back into memory.
+ * <p>
+ * Opening the disk tier only maps its index, so a restarted process can serve the previous process' responses
+ * right away, instead of sending a burst of calls to the API's host.
+ * <p>
+ * Disk errors never fail a lookup or an update: they are reported on System.err and handled as a miss.
+ *
+ * @param <V> Type of the cached values.
+ */
+public final class PersistentResponseCache<V> implements ResponseCache<String, V>, Closeable {
+    private final ResponseCache<String, V> memory;
+    private final DiskStore disk;
+    private final ResponseCodec<V> codec;
+    private final ToLongFunction<V> retainUntil;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Construct a {@link PersistentResponseCache} instance, opening (or creating) the files of the disk tier.
+     *
+     * @param memory      {@link ResponseCache} kept in front of the disk tier.
+     * @param directory   Directory holding the disk tier's files.
+     * @param maxBytes    Size the disk tier may reach before being compacted.
+     * @param codec       {@link ResponseCodec} used to write values to disk and read them back.
+     * @param retainUntil Function returning the epoch milliseconds until which a value is worth keeping on disk.
+     *                    Compactions drop the values past that moment.
+     * @throws IOException If the files can not be opened, or the directory is used by another cache.
+     */
+    public PersistentResponseCache(ResponseCache<String, V> memory, Path directory, long maxBytes,
+                                   ResponseCodec<V> codec, ToLongFunction<V> retainUntil) throws IOException {
+        if (memory == null || codec == null || retainUntil == null)
+            throw new IllegalArgumentException("ERROR: Persistent cache's arguments can not be NULL REFERENCES.\n");
+
+        this.memory = memory;
+        this.codec = codec;
+        this.retainUntil = retainUntil;
+        this.disk = new DiskStore(directory, maxBytes);
+    }
+
+    @Override
+    public V get(String key) {
+        V value = memory.get(key);
+        if (value == null)
+            value = load(key);
+
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    @Override
+    public void put(String key, V value) {
+        memory.put(key, value);
+        try {
+            disk.put(key, codec.encode(value), retainUntil.applyAsLong(value));
+        } catch (IOException e) {
+            report("write", e);
+        }
+    }
+
+    @Override
+    public void invalidate(String key) {
+        memory.invalidate(key);
+        try {
+            disk.remove(key);
+        } catch (IOException e) {
+            report("write", e);
+        }
+    }
+
+    @Override
+    public void clear() {
+        memory.clear();
+        try {
+            disk.clear();
+        } catch (IOException e) {
+            report("clear", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Every element is on disk, so this is the number of elements on the disk tier, including expired ones not
+     * yet dropped by a compaction.
+     */
+    @Override
+    public int size() {
+        return disk.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only counts the memory cache. The disk tier is bounded by bytes.
+     */
+    @Override
+    public int getCapacity() {
+        return memory.getCapacity();
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), disk.getEvictionCount());
+    }
+
+    /**
+     * Public method to return the size of the disk tier's log.
+     *
+     * @return Number of bytes.
+     */
+    public long getDiskBytes() {
+        return disk.getDataBytes();
+    }
+
+    /**
+     * Public procedure to flush the disk tier and release its directory. The memory cache is kept.
+     *
+     * @throws IOException If the files can not be flushed.
+     */
+    @Override
+    public void close() throws IOException {
+        disk.close();
+    }
+
+    /**
+     * Private method to read an element from the disk tier and put it back into the memory cache.
+     *
+     * @return Value, or a NULL Reference if the disk tier has no (valid) record of the key.
+     */
+    private V load(String key) {
+        try {
+            byte[] bytes = disk.get(key, System.currentTimeMillis());
+            if (bytes == null)
+                return null;
+            V value = codec.decode(bytes);
+            memory.put(key, value);
+            return value;
+        } catch (IOException e) {
+            report("read", e);
+            return null;
+        }
+    }
+
+    private static void report(String operation, IOException e) {
+        System.err.println("ERROR: Persistent cache could not " + operation + " its files.\n\n"
+                + e.getClass() + ": " + e.getMessage());
+    }
+}
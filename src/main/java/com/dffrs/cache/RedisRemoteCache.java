@@ -0,0 +1,455 @@
+package com.dffrs.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link RemoteCache} backed by a server speaking the Redis protocol (RESP), such as Redis, Valkey or KeyDB,
+ * given as a URI: "redis://[[user]:password@]host[:port][/database]".
+ * <p>
+ * Commands are sent over a small pool of connections, opened when first needed, so a server that is down does
+ * not stop the handler from starting. Every command waits, at most, the given timeout. Subscriptions use a
+ * dedicated connection and a daemon thread, which reconnects, once a second, after a failure.
+ */
+public final class RedisRemoteCache implements RemoteCache {
+    private static final int DEFAULT_PORT = 6379;
+    private static final long RECONNECT_MILLIS = 1000;
+
+    private final String host;
+    private final int port;
+    private final String user;
+    private final String password;
+    private final int database;
+    private final int timeoutMillis;
+
+    private final BlockingQueue<Connection> idle;
+    private final Semaphore permits;
+    private volatile boolean closed;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Construct a {@link RedisRemoteCache} instance. No connection is opened yet.
+     *
+     * @param uri            URI of the server.
+     * @param timeout        Maximum time to connect, and to wait for each reply.
+     * @param maxConnections Maximum number of connections used at once for commands.
+     * @throws IllegalArgumentException If uri is not a valid "redis" URI, timeout is a NULL Reference or
+     *                                  maxConnections is not positive.
+     */
+    public RedisRemoteCache(URI uri, Duration timeout, int maxConnections) {
+        if (uri == null || timeout == null)
+            throw new IllegalArgumentException("ERROR: Remote cache's arguments can not be NULL REFERENCES.\n");
+        if (!"redis".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null)
+            throw new IllegalArgumentException("ERROR: " + uri + " is not a redis://host[:port] URI.\n");
+        if (maxConnections <= 0)
+            throw new IllegalArgumentException("ERROR: Remote cache connections must be greater than zero.\n");
+
+        this.host = uri.getHost();
+        this.port = uri.getPort() < 0 ? DEFAULT_PORT : uri.getPort();
+        String userInfo = uri.getRawUserInfo();
+        if (userInfo == null) {
+            this.user = null;
+            this.password = null;
+        } else {
+            int colon = userInfo.indexOf(':');
+            String userPart = colon < 0 ? "" : userInfo.substring(0, colon);
+            this.user = userPart.isEmpty() ? null : URLDecoder.decode(userPart, StandardCharsets.UTF_8);
+            this.password = URLDecoder.decode(colon < 0 ? userInfo : userInfo.substring(colon + 1),
+                    StandardCharsets.UTF_8);
+        }
+        String path = uri.getPath();
+        try {
+            this.database = path == null || path.length() <= 1 ? 0 : Integer.parseInt(path.substring(1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ERROR: " + uri + " has an invalid database.\n", e);
+        }
+        this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, Math.max(1, timeout.toMillis()));
+        this.idle = new ArrayBlockingQueue<>(maxConnections);
+        this.permits = new Semaphore(maxConnections);
+    }
+
+    @Override
+    public byte[] get(String key) throws IOException {
+        Object reply = execute("GET", key);
+        if (reply == null || reply instanceof byte[])
+            return (byte[]) reply;
+        throw new IOException("ERROR: Unexpected reply to GET.\n");
+    }
+
+    @Override
+    public void put(String key, byte[] value, long ttlMillis) throws IOException {
+        if (ttlMillis <= 0)
+            throw new IllegalArgumentException("ERROR: Remote cache TTL must be greater than zero.\n");
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (ttlMillis == NO_EXPIRY)
+            execute(bytes("SET"), keyBytes, value);
+        else
+            execute(bytes("SET"), keyBytes, value, bytes("PX"), bytes(Long.toString(ttlMillis)));
+    }
+
+    @Override
+    public void remove(String key) throws IOException {
+        execute("DEL", key);
+    }
+
+    @Override
+    public void publish(String channel, String message) throws IOException {
+        execute("PUBLISH", channel, message);
+    }
+
+    @Override
+    public Closeable subscribe(String channel, Consumer<String> listener) throws IOException {
+        if (channel == null || listener == null)
+            throw new IllegalArgumentException("ERROR: Channel and listener can not be NULL REFERENCES.\n");
+        if (closed)
+            throw new IOException("ERROR: Remote cache is closed.\n");
+
+        Subscription subscription = new Subscription();
+        subscriptions.add(subscription);
+        if (closed) { // Closed meanwhile, before seeing this subscription.
+            subscription.close();
+            throw new IOException("ERROR: Remote cache is closed.\n");
+        }
+        Thread thread = new Thread(() -> listen(subscription, channel, listener),
+                "api-handler-remote-cache-subscriber");
+        thread.setDaemon(true);
+        thread.start();
+        return subscription;
+    }
+
+    /**
+     * Public procedure to close every connection, and stop the subscriptions.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * Private method to send a command whose arguments are Strings.
+     */
+    private Object execute(String... args) throws IOException {
+        byte[][] raw = new byte[args.length][];
+        for (int i = 0; i != args.length; i++) {
+            raw[i] = bytes(args[i]);
+        }
+        return execute(raw);
+    }
+
+    /**
+     * Private method to send a command on a pooled connection, and read its reply. Connections that failed are
+     * closed instead of going back to the pool. If a pooled connection was closed meanwhile (ex: the server
+     * restarted), the command is sent again on a new one.
+     *
+     * @return Reply (See {@link Connection#read()}).
+     * @throws IOException If the server can not be reached, or replied with an error.
+     */
+    private Object execute(byte[]... args) throws IOException {
+        if (closed)
+            throw new IOException("ERROR: Remote cache is closed.\n");
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS))
+                throw new IOException("ERROR: No remote cache connection available.\n");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+
+        Connection connection = idle.poll();
+        try {
+            Object reply;
+            if (connection == null) {
+                connection = connect(timeoutMillis);
+                reply = connection.call(args);
+            } else {
+                try {
+                    reply = connection.call(args);
+                } catch (IOException e) {
+                    connection.close();
+                    connection = connect(timeoutMillis);
+                    reply = connection.call(args);
+                }
+            }
+            idle.offer(connection);
+            connection = null;
+            if (reply instanceof ServerError)
+                throw new IOException("ERROR: Remote cache replied " + ((ServerError) reply).message + ".\n");
+            return reply;
+        } finally {
+            if (connection != null)
+                connection.close();
+            permits.release();
+        }
+    }
+
+    /**
+     * Private method to open a connection, authenticated and on the right database.
+     *
+     * @param readTimeout Milliseconds to wait for each reply (0 waits forever).
+     */
+    private Connection connect(int readTimeout) throws IOException {
+        Connection connection = new Connection(host, port, timeoutMillis, readTimeout);
+        try {
+            if (password != null) {
+                if (user != null)
+                    connection.write(bytes("AUTH"), bytes(user), bytes(password));
+                else
+                    connection.write(bytes("AUTH"), bytes(password));
+                expectOk(connection.read());
+            }
+            if (database != 0) {
+                connection.write(bytes("SELECT"), bytes(Integer.toString(database)));
+                expectOk(connection.read());
+            }
+            return connection;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Private procedure, run by the subscriber thread, to deliver a channel's messages until the subscription or
+     * the cache is closed.
+     */
+    private void listen(Subscription subscription, String channel, Consumer<String> listener) {
+        boolean first = true;
+        while (!subscription.closed) {
+            try {
+                Connection connection = connect(0);
+                subscription.connection = connection;
+                if (subscription.closed) {
+                    connection.close();
+                    return;
+                }
+                connection.write(bytes("SUBSCRIBE"), bytes(channel));
+                connection.read(); // Confirmation.
+                if (!first)
+                    listener.accept(null); // Messages sent while disconnected were lost.
+                first = false;
+
+                while (!subscription.closed) {
+                    Object reply = connection.read();
+                    if (reply instanceof Object[]) {
+                        Object[] message = (Object[]) reply;
+                        if (message.length == 3 && "message".equals(string(message[0])))
+                            listener.accept(string(message[2]));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (subscription.closed)
+                    return;
+                System.err.println("ERROR: Remote cache subscription to " + channel + " was lost.\n\n"
+                        + e.getClass() + ": " + e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void expectOk(Object reply) throws IOException {
+        if (reply instanceof ServerError)
+            throw new IOException("ERROR: Remote cache replied " + ((ServerError) reply).message + ".\n");
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(Object value) {
+        return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : String.valueOf(value);
+    }
+
+    /**
+     * Subscription to a channel, run by its own thread and connection.
+     */
+    private final class Subscription implements Closeable {
+        private volatile boolean closed;
+        private volatile Connection connection;
+
+        /**
+         * Public procedure to stop receiving the channel's messages, closing the subscription's connection.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            Connection c = connection;
+            if (c != null)
+                c.close();
+        }
+    }
+
+    /**
+     * Error reply, kept apart from simple String replies.
+     */
+    private static final class ServerError {
+        private final String message;
+
+        private ServerError(String message) {
+            this.message = message;
+        }
+    }
+
+    /**
+     * Single connection to the server. Not thread-safe: it is used by one thread at a time.
+     */
+    private static final class Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        private Connection(String host, int port, int connectTimeout, int readTimeout) throws IOException {
+            socket = new Socket();
+            try {
+                socket.setTcpNoDelay(true);
+                socket.connect(new InetSocketAddress(host, port), connectTimeout);
+                socket.setSoTimeout(readTimeout);
+                in = new BufferedInputStream(socket.getInputStream());
+                out = new BufferedOutputStream(socket.getOutputStream());
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Method to send a command and read its reply.
+         */
+        private Object call(byte[]... args) throws IOException {
+            write(args);
+            return read();
+        }
+
+        /**
+         * Procedure to send a command, as an array of bulk strings.
+         */
+        private void write(byte[]... args) throws IOException {
+            out.write('*');
+            writeNumber(args.length);
+            for (byte[] arg : args) {
+                out.write('$');
+                writeNumber(arg.length);
+                out.write(arg);
+                out.write('\r');
+                out.write('\n');
+            }
+            out.flush();
+        }
+
+        private void writeNumber(long value) throws IOException {
+            out.write(bytes(Long.toString(value)));
+            out.write('\r');
+            out.write('\n');
+        }
+
+        /**
+         * Method to read a reply.
+         *
+         * @return String (simple strings), {@link ServerError}, Long (integers), byte[] (bulk strings),
+         * Object[] (arrays) or a NULL Reference (null bulk strings and arrays).
+         */
+        private Object read() throws IOException {
+            int type = in.read();
+            switch (type) {
+                case '+':
+                    return readLine();
+                case '-':
+                    return new ServerError(readLine());
+                case ':':
+                    return readNumber();
+                case '$': {
+                    long length = readNumber();
+                    if (length < 0)
+                        return null;
+                    if (length > Integer.MAX_VALUE)
+                        throw new IOException("ERROR: Remote cache sent an invalid reply.\n");
+                    byte[] value = in.readNBytes((int) length);
+                    if (value.length != length || in.read() != '\r' || in.read() != '\n')
+                        throw new EOFException("ERROR: Remote cache connection was closed.\n");
+                    return value;
+                }
+                case '*': {
+                    long count = readNumber();
+                    if (count < 0)
+                        return null;
+                    if (count > Integer.MAX_VALUE)
+                        throw new IOException("ERROR: Remote cache sent an invalid reply.\n");
+                    Object[] values = new Object[(int) count];
+                    for (int i = 0; i != count; i++) {
+                        values[i] = read();
+                    }
+                    return values;
+                }
+                case -1:
+                    throw new EOFException("ERROR: Remote cache connection was closed.\n");
+                default:
+                    throw new IOException("ERROR: Remote cache sent an invalid reply.\n");
+            }
+        }
+
+        /**
+         * Method to read a line holding an integer (ex: a length).
+         *
+         * @throws IOException If the line is not an integer.
+         */
+        private long readNumber() throws IOException {
+            String line = readLine();
+            try {
+                return Long.parseLong(line);
+            } catch (NumberFormatException e) {
+                throw new IOException("ERROR: Remote cache sent an invalid reply.\n", e);
+            }
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != '\r') {
+                if (c == -1)
+                    throw new EOFException("ERROR: Remote cache connection was closed.\n");
+                line.append((char) c);
+            }
+            if (in.read() != '\n')
+                throw new IOException("ERROR: Remote cache sent an invalid reply.\n");
+            return line.toString();
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing left to release.
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.dffrs.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Interface of a cache shared by several processes (ex: every replica of a service), used as the second tier of
+ * a {@link SharedResponseCache}. Values are opaque bytes, and the interface also carries the messages that keep
+ * each process' local tier consistent. Implementations must be safe to use from several threads at the same time.
+ * <p>
+ * {@link RedisRemoteCache} talks to any server speaking the Redis protocol.
+ */
+public interface RemoteCache extends Closeable {
+    /**
+     * TTL meaning the value never expires.
+     */
+    long NO_EXPIRY = Long.MAX_VALUE;
+
+    /**
+     * Public method to return the value associated with the key.
+     *
+     * @param key Key to search for.
+     * @return Value, or a NULL Reference if there is none.
+     * @throws IOException If the remote cache can not be reached.
+     */
+    byte[] get(String key) throws IOException;
+
+    /**
+     * Public method to add (or replace) a value.
+     *
+     * @param key       Key to store.
+     * @param value     Value to associate with the key.
+     * @param ttlMillis Milliseconds the value is kept (must be positive), or {@link #NO_EXPIRY}.
+     * @throws IOException If the remote cache can not be reached.
+     */
+    void put(String key, byte[] value, long ttlMillis) throws IOException;
+
+    /**
+     * Public method to remove a value.
+     *
+     * @param key Key to remove.
+     * @throws IOException If the remote cache can not be reached.
+     */
+    void remove(String key) throws IOException;
+
+    /**
+     * Public method to send a message to every process subscribed to a channel, including this one.
+     *
+     * @param channel Channel's name.
+     * @param message Message to send.
+     * @throws IOException If the remote cache can not be reached.
+     */
+    void publish(String channel, String message) throws IOException;
+
+    /**
+     * Public method to receive, from now on, the messages sent to a channel. The listener runs on a thread owned
+     * by the implementation, and receives a NULL Reference whenever messages may have been lost (ex: after the
+     * connection was reestablished).
+     *
+     * @param channel  Channel's name.
+     * @param listener Consumer of the messages.
+     * @return Subscription, which stops the messages once closed. Closing the remote cache closes it too.
+     * @throws IOException If the subscription can not be started.
+     */
+    Closeable subscribe(String channel, Consumer<String> listener) throws IOException;
+}
@@ -0,0 +1,61 @@
+package com.dffrs.cache;
+
+/**
+ * Interface that every cache used by {@link com.dffrs.handler.APIHandler} must implement.
+ * Implementations must be safe to use from several threads at the same time.
+ *
+ * @param <K> Type of the keys.
+ * @param <V> Type of the cached values.
+ */
+public interface ResponseCache<K, V> {
+
+    /**
+     * Public method to return the value associated with the key, recording a hit or a miss.
+     *
+     * @param key Key to search for.
+     * @return Cached value, or a NULL Reference if the cache has no record of that key.
+     */
+    V get(K key);
+
+    /**
+     * Public method to add (or replace) an element. It may evict other elements, based on the
+     * cache's {@link EvictionPolicy}.
+     *
+     * @param key   Key to store.
+     * @param value Value to associate with the key.
+     */
+    void put(K key, V value);
+
+    /**
+     * Public method to remove a single element from the cache.
+     *
+     * @param key Key to remove.
+     */
+    void invalidate(K key);
+
+    /**
+     * Public method to remove every element from the cache. Statistics are kept.
+     */
+    void clear();
+
+    /**
+     * Public method to return the number of elements currently cached.
+     *
+     * @return Number of elements.
+     */
+    int size();
+
+    /**
+     * Public method to return the maximum number of elements the cache keeps.
+     *
+     * @return Maximum number of elements.
+     */
+    int getCapacity();
+
+    /**
+     * Public method to return a snapshot of the hit/miss/eviction counters.
+     *
+     * @return {@link CacheStats} instance.
+     */
+    CacheStats getStats();
+}
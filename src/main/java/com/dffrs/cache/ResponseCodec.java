@@ -0,0 +1,30 @@
+package com.dffrs.cache;
+
+import java.io.IOException;
+
+/**
+ * Interface used by {@link TieredResponseCache} to turn cached values into bytes, so they can be kept
+ * outside of the Java heap, and back.
+ *
+ * @param <V> Type of the cached values.
+ */
+public interface ResponseCodec<V> {
+
+    /**
+     * Public method to serialize a value.
+     *
+     * @param value Value to serialize.
+     * @return Serialized value.
+     * @throws IOException If the value can not be serialized.
+     */
+    byte[] encode(V value) throws IOException;
+
+    /**
+     * Public method to rebuild a value from the bytes produced by {@link #encode(Object)}.
+     *
+     * @param bytes Serialized value.
+     * @return Value.
+     * @throws IOException If the bytes are not a valid serialized value.
+     */
+    V decode(byte[] bytes) throws IOException;
+}
@@ -0,0 +1,391 @@
+package com.dffrs.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * {@link ResponseCache} shared by several processes (ex: every replica of a service), so a response fetched by
+ * one of them is reused by the others. A local cache (the near-cache) is kept in front of a {@link RemoteCache}.
+ * A miss on the local cache falls back to the remote one, and the element found there is kept locally. Updates
+ * go to both tiers.
+ * <p>
+ * Every update and invalidation is also announced on a channel, and each process drops its local copy of the
+ * elements changed by the others, so local copies do not outlive the shared one. If announcements may have been
+ * lost, the whole local cache is dropped.
+ * <p>
+ * Concurrent misses on the same key share a single remote lookup. Callers that must not block use
+ * {@link #getAsync(String)}, which runs the remote lookup on the cache's own threads. Updates and invalidations
+ * change the local cache right away, and are written to the remote tier by a thread of the cache, in the order
+ * they were made, so no caller waits for them. Remote errors never fail a lookup or an update: they are
+ * reported on System.err and handled as a miss, and the remote tier is left alone for a second.
+ *
+ * @param <V> Type of the cached values.
+ */
+public final class SharedResponseCache<V> implements ResponseCache<String, V>, Closeable {
+    /**
+     * Milliseconds the remote tier is not used after an error, so a server that is down does not slow every call.
+     */
+    private static final long RETRY_MILLIS = 1000;
+
+    private final ResponseCache<String, V> local;
+    private final RemoteCache remote;
+    private final ResponseCodec<V> codec;
+    private final ToLongFunction<V> retainUntil;
+    /**
+     * Current namespace. See {@link #setNamespace(String)}.
+     */
+    private volatile Namespace namespace;
+    /**
+     * Identifies this process' announcements, so it ignores its own.
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Remote lookups in progress, shared by every thread missing the same key meanwhile.
+     */
+    private final ConcurrentMap<String, CompletableFuture<V>> lookups = new ConcurrentHashMap<>();
+    /**
+     * Threads running the remote lookups of {@link #getAsync(String)}.
+     */
+    private final ExecutorService lookupExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "api-handler-remote-cache-lookup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Single thread running the remote writes, so an update and a later invalidation of a key are not reordered.
+     */
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "api-handler-remote-cache-write");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long remoteDownUntil;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Construct a {@link SharedResponseCache} instance, subscribing to the other processes' announcements.
+     *
+     * @param local       {@link ResponseCache} kept in front of the remote tier.
+     * @param remote      {@link RemoteCache} shared by every process.
+     * @param codec       {@link ResponseCodec} used to write values to the remote tier and read them back.
+     * @param retainUntil Function returning the epoch milliseconds until which a value is worth sharing. It
+     *                    should be bounded: Long.MAX_VALUE keeps the value until the remote tier evicts it.
+     * @param namespace   Prefix of the remote keys and of the announcements' channel. Processes sharing responses
+     *                    must use the same one.
+     * @throws IOException If the subscription can not be started.
+     */
+    public SharedResponseCache(ResponseCache<String, V> local, RemoteCache remote, ResponseCodec<V> codec,
+                               ToLongFunction<V> retainUntil, String namespace) throws IOException {
+        if (local == null || remote == null || codec == null || retainUntil == null || namespace == null)
+            throw new IllegalArgumentException("ERROR: Shared cache's arguments can not be NULL REFERENCES.\n");
+
+        this.local = local;
+        this.remote = remote;
+        this.codec = codec;
+        this.retainUntil = retainUntil;
+        this.namespace = subscribe(namespace);
+    }
+
+    @Override
+    public V get(String key) {
+        V value = local.get(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        return count(lookup(key));
+    }
+
+    /**
+     * Public method to return the value associated with the key, without blocking the caller on the remote tier.
+     *
+     * @param key Key to search for.
+     * @return Future completed with the value, or with a NULL Reference if there is none. A local hit, or a miss
+     * while the remote tier is down, returns an already completed future. Otherwise, the remote lookup runs on
+     * the cache's own threads.
+     */
+    public CompletableFuture<V> getAsync(String key) {
+        V value = local.get(key);
+        if (value != null) {
+            hits.increment();
+            return CompletableFuture.completedFuture(value);
+        }
+        if (isRemoteDown()) {
+            misses.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            // The local cache was just checked, so only the remote tier is left.
+            return CompletableFuture.supplyAsync(() -> count(lookup(key)), lookupExecutor);
+        } catch (RejectedExecutionException e) { // Closed.
+            misses.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    @Override
+    public void put(String key, V value) {
+        local.put(key, value);
+        Namespace current = namespace;
+        write(() -> {
+            long ttl = retainUntil.applyAsLong(value);
+            if (ttl != RemoteCache.NO_EXPIRY) // Both are Long.MAX_VALUE.
+                ttl -= System.currentTimeMillis();
+            if (ttl > 0)
+                remote.put(current.keyPrefix + key, codec.encode(value), ttl);
+            else
+                remote.remove(current.keyPrefix + key);
+            announce(current, key);
+        });
+    }
+
+    @Override
+    public void invalidate(String key) {
+        local.invalidate(key);
+        Namespace current = namespace;
+        write(() -> {
+            remote.remove(current.keyPrefix + key);
+            announce(current, key);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the local cache is cleared. The remote tier is shared with other processes, so it is kept.
+     */
+    @Override
+    public void clear() {
+        local.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only counts the local cache.
+     */
+    @Override
+    public int size() {
+        return local.size();
+    }
+
+    @Override
+    public int getCapacity() {
+        return local.getCapacity();
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), local.getStats().getEvictionCount());
+    }
+
+    /**
+     * Public method to return the number of hits answered by the remote tier, i.e. responses fetched by another
+     * process (or evicted from the local cache).
+     *
+     * @return Number of hits.
+     */
+    public long getRemoteHitCount() {
+        return remoteHits.sum();
+    }
+
+    /**
+     * Public procedure to share responses with the processes using another namespace from now on (ex: after the
+     * API's host changed). The local cache is cleared, since its elements belong to the previous namespace, and
+     * the previous namespace's announcements are no longer received.
+     *
+     * If the new namespace's announcements can not be received, the error is reported on System.err, and the
+     * namespace is used anyway: the previous one's elements must not be shared with the new one's processes.
+     *
+     * @param namespace Prefix of the remote keys and of the announcements' channel.
+     */
+    public void setNamespace(String namespace) {
+        if (namespace == null)
+            throw new IllegalArgumentException("ERROR: Shared cache's namespace can not be a NULL REFERENCE.\n");
+
+        Namespace previous = this.namespace;
+        if (previous.name.equals(namespace))
+            return;
+        Namespace next;
+        try {
+            next = subscribe(namespace);
+        } catch (IOException e) {
+            report("subscribe to", e);
+            next = new Namespace(namespace, namespace + ":invalidations", () -> { });
+        }
+        this.namespace = next;
+        local.clear();
+        try {
+            previous.subscription.close();
+        } catch (IOException e) {
+            report("unsubscribe from", e);
+        }
+    }
+
+    /**
+     * Public procedure to close the remote tier, and the local cache too if it holds resources (ex: a
+     * {@link PersistentResponseCache}). Pending remote writes are given up to {@link #RETRY_MILLIS} to finish.
+     *
+     * @throws IOException If a tier can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        lookupExecutor.shutdown();
+        writeExecutor.shutdown();
+        try {
+            writeExecutor.awaitTermination(RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            remote.close();
+        } finally {
+            if (local instanceof Closeable)
+                ((Closeable) local).close();
+        }
+    }
+
+    /**
+     * Private method to read an element from the remote tier and keep it in the local cache. Threads asking for
+     * a key whose lookup is in progress wait for it, instead of starting their own.
+     *
+     * @return Value, or a NULL Reference if the remote tier has no (valid) record of the key.
+     */
+    private V lookup(String key) {
+        if (isRemoteDown())
+            return null;
+
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = lookups.putIfAbsent(key, promise);
+        if (existing != null)
+            return existing.join();
+
+        V value = null;
+        try {
+            byte[] bytes = remote.get(namespace.keyPrefix + key);
+            if (bytes != null) {
+                value = codec.decode(bytes);
+                local.put(key, value);
+            }
+        } catch (IOException e) {
+            report("read", e);
+        } finally {
+            lookups.remove(key, promise);
+            promise.complete(value);
+        }
+        return value;
+    }
+
+    /**
+     * Private method to count the result of a remote lookup, after a local miss.
+     */
+    private V count(V value) {
+        if (value != null) {
+            remoteHits.increment();
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Private procedure to run a remote write on the cache's write thread. It is skipped while the remote tier is
+     * down, or once the cache is closed.
+     */
+    private void write(RemoteWrite write) {
+        if (isRemoteDown())
+            return;
+        try {
+            writeExecutor.execute(() -> {
+                try {
+                    write.run();
+                } catch (IOException e) {
+                    report("write", e);
+                }
+            });
+        } catch (RejectedExecutionException e) { // Closed.
+        }
+    }
+
+    /**
+     * Private method to start receiving a namespace's announcements.
+     */
+    private Namespace subscribe(String name) throws IOException {
+        String channel = name + ":invalidations";
+        return new Namespace(name, channel, remote.subscribe(channel, message -> onAnnouncement(name, message)));
+    }
+
+    private void announce(Namespace current, String key) throws IOException {
+        remote.publish(current.channel, nodeId + " " + key);
+    }
+
+    /**
+     * Private procedure, used as the subscription's listener, to drop local copies changed by other processes.
+     *
+     * @param source  Namespace the announcement was sent to. Announcements of a previous one are ignored.
+     * @param message Announcement ("node key"), or a NULL Reference if announcements may have been lost.
+     */
+    private void onAnnouncement(String source, String message) {
+        Namespace current = namespace; // A NULL Reference while the first subscription is started.
+        if (current != null && !current.name.equals(source))
+            return;
+        if (message == null) {
+            local.clear();
+            return;
+        }
+        int separator = message.indexOf(' ');
+        boolean own = separator == nodeId.length() && message.startsWith(nodeId);
+        if (separator > 0 && !own)
+            local.invalidate(message.substring(separator + 1));
+    }
+
+    private boolean isRemoteDown() {
+        return remoteDownUntil - System.currentTimeMillis() > 0;
+    }
+
+    private void report(String operation, IOException e) {
+        remoteDownUntil = System.currentTimeMillis() + RETRY_MILLIS;
+        System.err.println("ERROR: Shared cache could not " + operation + " its remote tier.\n\n"
+                + e.getClass() + ": " + e.getMessage());
+    }
+
+    /**
+     * Write to the remote tier, run by {@link #write(RemoteWrite)}.
+     */
+    @FunctionalInterface
+    private interface RemoteWrite {
+        void run() throws IOException;
+    }
+
+    /**
+     * Namespace's prefix, channel and subscription, kept together so they are always read consistently.
+     */
+    private static final class Namespace {
+        private final String name;
+        private final String keyPrefix;
+        private final String channel;
+        private final Closeable subscription;
+
+        private Namespace(String name, String channel, Closeable subscription) {
+            this.name = name;
+            this.keyPrefix = name + ":";
+            this.channel = channel;
+            this.subscription = subscription;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.dffrs.cache;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two-tier {@link ResponseCache}. The first tier is a {@link ConcurrentResponseCache}, kept on the Java heap.
+ * Elements it evicts are serialized, with a {@link ResponseCodec}, and demoted to an off-heap tier bounded by
+ * bytes instead of by number of elements (See {@link OffHeapStore}). A hit on the off-heap tier promotes the
+ * element back to the heap.
+ * <p>
+ * This lets the cache keep many more responses than the heap tier alone, without making the garbage
+ * collector scan them. An element is only evicted for good when it leaves the off-heap tier.
+ *
+ * @param <K> Type of the keys.
+ * @param <V> Type of the cached values.
+ */
+public final class TieredResponseCache<K, V> implements ResponseCache<K, V> {
+    private final ConcurrentResponseCache<K, V> heap;
+    private final OffHeapStore<K> offHeap;
+    private final ResponseCodec<V> codec;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    /**
+     * Number of demoted elements that could not be kept (too large, or not serializable).
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Construct a {@link TieredResponseCache} instance.
+     *
+     * @param capacity      Maximum number of elements to keep on the heap.
+     * @param policy        {@link EvictionPolicy} used by the heap tier.
+     * @param offHeapBytes  Maximum number of bytes the off-heap tier allocates.
+     * @param compress      True to compress the off-heap tier's values.
+     * @param codec         {@link ResponseCodec} used to move values between tiers.
+     * @throws IllegalArgumentException If capacity is not positive, policy or codec is a NULL Reference,
+     *                                  or offHeapBytes is too small to hold a single value.
+     */
+    public TieredResponseCache(int capacity, EvictionPolicy policy, int offHeapBytes, boolean compress,
+                               ResponseCodec<V> codec) {
+        if (codec == null)
+            throw new IllegalArgumentException("ERROR: Cache codec can not be a NULL REFERENCE.\n");
+
+        this.codec = codec;
+        this.offHeap = new OffHeapStore<>(offHeapBytes, compress);
+        this.heap = new ConcurrentResponseCache<>(capacity, policy, this::demote);
+    }
+
+    @Override
+    public V get(K key) {
+        V value = heap.get(key);
+        if (value == null)
+            value = promote(key);
+
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        // Otherwise, an outdated copy could be promoted later. Under the heap segment's lock, so an eviction
+        // of the key, demoted under the same lock, can not write its older copy afterwards.
+        heap.put(key, value, offHeap::remove);
+    }
+
+    @Override
+    public void invalidate(K key) {
+        heap.invalidate(key);
+        offHeap.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+        offHeap.clear();
+    }
+
+    @Override
+    public int size() {
+        return heap.size() + offHeap.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only counts the heap tier. The off-heap tier is bounded by {@link #getOffHeapMaxBytes()}.
+     */
+    @Override
+    public int getCapacity() {
+        return heap.getCapacity();
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), offHeap.getEvictionCount() + rejected.sum());
+    }
+
+    /**
+     * Public method to return the number of elements kept on the off-heap tier.
+     *
+     * @return Number of elements.
+     */
+    public int getOffHeapSize() {
+        return offHeap.size();
+    }
+
+    /**
+     * Public method to return the number of bytes taken on the off-heap tier.
+     *
+     * @return Number of bytes, counting whole blocks.
+     */
+    public long getOffHeapUsedBytes() {
+        return offHeap.getUsedBytes();
+    }
+
+    public long getOffHeapMaxBytes() {
+        return offHeap.getMaxBytes();
+    }
+
+    /**
+     * Private method to move an element from the off-heap tier back to the heap.
+     *
+     * @return Promoted value, or a NULL Reference if the off-heap tier has no record of the key.
+     */
+    private V promote(K key) {
+        byte[] bytes = offHeap.remove(key);
+        if (bytes == null)
+            return null;
+
+        V value;
+        try {
+            value = codec.decode(bytes);
+        } catch (IOException e) {
+            rejected.increment();
+            return null;
+        }
+        heap.put(key, value);
+        return value;
+    }
+
+    /**
+     * Private procedure, called by the heap tier while it holds the evicted key's segment lock, to move an evicted
+     * element to the off-heap tier.
+     */
+    private void demote(K key, V value) {
+        try {
+            if (offHeap.put(key, codec.encode(value)))
+                return;
+        } catch (IOException e) {
+            // Not serializable, so it can not be kept.
+        }
+        rejected.increment();
+    }
+}
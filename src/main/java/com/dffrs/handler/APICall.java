@@ -0,0 +1,77 @@
+package com.dffrs.handler;
+
+/**
+ * Immutable call built from a {@link APIHandler.Request}: its cache key, the call sent to the API's host, and the
+ * compiled {@link Projection} applied to the response. Calls are equal when their keys are, so they can key the
+ * in-flight calls and the background refreshes.
+ */
+final class APICall {
+    private final RequestTemplate template;
+    private final String key;
+    private final String upstreamCall;
+    private final Projection projection;
+
+    /**
+     * Construct an {@link APICall} instance. The key's hash code is computed right away, so later lookups with
+     * the same call do not hash it again.
+     *
+     * @param template     {@link RequestTemplate} the call was built with.
+     * @param upstreamCall String representing the endpoint and query.
+     * @param projection   {@link Projection} of the request, or a NULL Reference.
+     */
+    APICall(RequestTemplate template, String upstreamCall, Projection projection) {
+        this.template = template;
+        this.upstreamCall = upstreamCall;
+        this.projection = projection;
+        this.key = projection == null ? upstreamCall : upstreamCall.concat(projection.getKeySuffix());
+        key.hashCode(); // Cached by the String itself.
+    }
+
+    RequestTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Method to return the key identifying the call in the cache, i.e. "endpoint/query", followed by its
+     * projection, if any.
+     *
+     * @return String representing the cache key.
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Method to return the call sent to the API's host, which is also the key of the same request without its
+     * projection.
+     *
+     * @return String representing the endpoint and query.
+     */
+    String getUpstreamCall() {
+        return upstreamCall;
+    }
+
+    /**
+     * Method to return the values of the response the call reads.
+     *
+     * @return {@link Projection}, or a NULL Reference to read it all.
+     */
+    Projection getProjection() {
+        return projection;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof APICall && key.equals(((APICall) o).key));
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -1,54 +1,271 @@
 package com.dffrs.handler;
 
-import com.dffrs.memory.inMemoryCache.LRUCache;
+import com.dffrs.cache.CacheStats;
+import com.dffrs.cache.ConcurrentResponseCache;
+import com.dffrs.cache.EvictionPolicy;
+import com.dffrs.cache.PersistentResponseCache;
+import com.dffrs.cache.RedisRemoteCache;
+import com.dffrs.cache.ResponseCache;
+import com.dffrs.cache.SharedResponseCache;
+import com.dffrs.cache.TieredResponseCache;
+import com.dffrs.metrics.HandlerMetrics;
+import com.dffrs.metrics.InMemoryMetrics;
+import com.dffrs.metrics.NoOpMetrics;
+import com.dffrs.replay.Recording;
+import com.dffrs.replay.ReplayMode;
+import com.dffrs.replay.ReplayServer;
+import com.dffrs.transport.CircuitOpenException;
+import com.dffrs.transport.JavaHttpTransport;
+import com.dffrs.transport.RecordingTransport;
+import com.dffrs.transport.ResilientTransport;
+import com.dffrs.transport.StreamingResponse;
+import com.dffrs.transport.ThrottledTransport;
+import com.dffrs.transport.TokenBucket;
+import com.dffrs.transport.Transport;
+import com.dffrs.transport.TransportRequest;
+import com.dffrs.transport.TransportResponse;
 import com.dffrs.util.APIConfigurationReader;
+import com.dffrs.util.ConfigurationSnapshot;
 import com.mashape.unirest.http.HttpResponse;
 import com.mashape.unirest.http.JsonNode;
-import com.mashape.unirest.http.Unirest;
 import com.mashape.unirest.http.exceptions.UnirestException;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.FileNotFoundException;
-import java.net.URLEncoder;
-import java.nio.charset.Charset;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.regex.PatternSyntaxException;
 
-public final class APIHandler {
+public final class APIHandler implements Closeable {
     /**
-     * Charset used when encoding.
+     * Registry of {@link APIHandler} instances, one per Configuration Options file, so each API keeps its own
+     * cache, connections and statistics. Lookups do not lock, and each instance is created only once.
+     * Used in {@link #getInstance(String)} method.
      */
-    private static final Charset CHARSET = StandardCharsets.UTF_8;
+    private static final ConcurrentMap<String, APIHandler> instances = new ConcurrentHashMap<>();
+
+    /**
+     * Map used to keep all the API Configuration Options loaded in memory.
+     * Used in {@link #getAPIParameterBy(String)} method. Replaced, as a whole, when the file is reloaded
+     * (See {@link #initReload()}).
+     */
+    private volatile Map<String, String> configurations;
     /**
-     * Instance of {@link APIHandler}, based on Singleton Code Design.
+     * Options every call needs (host, headers and endpoint), compiled once from {@link #configurations}, and
+     * replaced with it.
+     */
+    private volatile RequestTemplate template;
+    /**
+     * Thread-safe, in memory type of cache to store recently API call requests.
+     * Its capacity and eviction policy are read from the Configuration Options file (See {@link #initCache()}).
+     * Used in {@link #makeAPIRequest(Request)} method.
      */
-    private static APIHandler instance;
+    private ResponseCache<String, CachedResponse> cache;
+    /**
+     * {@link #cache}, when it has a remote tier, or a NULL Reference. Its remote lookups block, so non-blocking
+     * calls use {@link SharedResponseCache#getAsync(String)} instead.
+     */
+    private SharedResponseCache<CachedResponse> sharedCache;
 
     /**
-     * Map used to keep all the API Configuration Options loaded in memory.
-     * Used in {@link #getAPIParameterBy(String)} method.
+     * Integer to define the number of occurrences the {@link #cache} should keep, when "cache_capacity"
+     * is not specified.
+     */
+    private static final int DEFAULT_CACHE_CAPACITY = 256;
+
+    /**
+     * {@link EvictionPolicy} used by {@link #cache}, when "cache_policy" is not specified.
+     */
+    private static final EvictionPolicy DEFAULT_CACHE_POLICY = EvictionPolicy.LRU;
+
+    /**
+     * Bytes the persistent cache tier may reach before being compacted, when "disk_cache_size" is not specified.
+     */
+    private static final long DEFAULT_DISK_CACHE_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Milliseconds to wait for the remote cache tier, when "remote_cache_timeout" is not specified.
+     */
+    private static final long DEFAULT_REMOTE_CACHE_TIMEOUT = 1000;
+
+    /**
+     * Maximum number of connections to the remote cache tier, when "remote_cache_connections" is not specified.
+     */
+    private static final int DEFAULT_REMOTE_CACHE_CONNECTIONS = 8;
+
+    /**
+     * Milliseconds an entry that can be revalidated is kept in the remote cache tier after it was stored (or last
+     * revalidated), so entries of keys nobody asks for anymore do not pile up on the shared server.
+     */
+    private static final long REMOTE_VALIDATOR_RETENTION = 24L * 60 * 60 * 1000;
+
+    /**
+     * Seconds a successful response stays fresh, when "cache_ttl" is not specified and the response has no
+     * Cache-Control or Expires header.
+     */
+    private static final long DEFAULT_CACHE_TTL = 300;
+
+    /**
+     * Seconds a 404 (Not Found) response stays fresh, when "negative_cache_ttl" is not specified and the
+     * response has no Cache-Control or Expires header.
+     */
+    private static final long DEFAULT_NEGATIVE_CACHE_TTL = 30;
+
+    /**
+     * Status code returned by the API's host when a conditional request finds no changes.
+     */
+    private static final int NOT_MODIFIED = 304;
+
+    /**
+     * Maximum number of upstream calls {@link #makeAPIRequests(List)} keeps in progress, when
+     * "batch_concurrency" is not specified.
+     */
+    private static final int DEFAULT_BATCH_CONCURRENCY = 8;
+
+    /**
+     * Maximum number of upstream calls {@link #makeAPIRequests(List)} keeps in progress.
+     */
+    private int batchConcurrency;
+
+    /**
+     * Executor running blocking upstream calls for the non-blocking methods, when "execution_mode" is
+     * {@link ExecutionMode#VIRTUAL}. A NULL Reference means the transport's non-blocking client is used instead.
+     */
+    private ExecutorService upstreamExecutor;
+
+    /**
+     * Milliseconds to establish a connection, when "connect_timeout" is not specified.
+     */
+    private static final long DEFAULT_CONNECT_TIMEOUT = 10_000;
+
+    /**
+     * Milliseconds to wait for a response, when "read_timeout" is not specified.
+     */
+    private static final long DEFAULT_READ_TIMEOUT = 30_000;
+
+    /**
+     * Maximum number of requests in progress, when "max_connections" is not specified.
      */
-    private Map<String, String> configurations;
+    private static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+    /**
+     * Milliseconds before the first retry, when "retry_backoff" is not specified.
+     */
+    private static final long DEFAULT_RETRY_BACKOFF = 100;
+
+    /**
+     * Milliseconds an open circuit fails calls right away, when "circuit_breaker_timeout" is not specified.
+     */
+    private static final long DEFAULT_CIRCUIT_BREAKER_TIMEOUT = 30_000;
+
+    /**
+     * Maximum number of background refreshes in progress, when "refresh_concurrency" is not specified.
+     */
+    private static final int DEFAULT_REFRESH_CONCURRENCY = 2;
+
+    /**
+     * Maximum number of keys waiting for a background refresh. Less read keys are dropped past it.
+     */
+    private static final int REFRESH_QUEUE_CAPACITY = 1024;
+
+    /**
+     * {@link RefreshScheduler} running background refreshes, or a NULL Reference if neither "refresh_ahead"
+     * nor "stale_while_revalidate" are set. See {@link #initRefresh()}.
+     */
+    private RefreshScheduler<APICall> refreshScheduler;
+
+    /**
+     * Part of a fresh entry's lifetime after which a read schedules its refresh (0 disables refresh-ahead).
+     */
+    private double refreshAhead;
+
+    /**
+     * Milliseconds an expired response may still be served while it is refreshed, by default.
+     * See {@link CacheDirectives#staleWhileRevalidate(Map, long)}.
+     */
+    private volatile long staleWhileRevalidateMillis;
+
+    /**
+     * {@link Transport} used to make every upstream call. See {@link #initTransport(Transport)}.
+     */
+    private Transport transport;
+
+    /**
+     * {@link ReplayServer} answering every upstream call ("replay_mode -> replay"), or a NULL Reference.
+     * See {@link #initReplay(Transport)}.
+     */
+    private ReplayServer replayServer;
+
+    /**
+     * {@link Recording} keeping every upstream response ("replay_mode -> record"), or a NULL Reference.
+     * See {@link #initReplay(Transport)}.
+     */
+    private Recording recording;
+
+    /**
+     * True if cached entries keep their parsed HttpResponse ("cache_storage -> parsed", the default).
+     * False keeps only the raw body bytes, and parses them again on each cache hit ("cache_storage -> raw").
+     */
+    private boolean keepParsedResponses;
+
+    /**
+     * Milliseconds a successful response stays fresh, by default. See {@link CacheDirectives}.
+     */
+    private volatile long cacheTtlMillis;
+
+    /**
+     * Milliseconds a 404 (Not Found) response stays fresh, by default. See {@link CacheDirectives}.
+     */
+    private volatile long negativeCacheTtlMillis;
+
     /**
-     * In memory type of cache to stored recently API call requests.
+     * {@link RequestCoalescer} used to share a single upstream call between every thread asking for the
+     * same request, while that call is still in progress.
      * Used in {@link #makeAPIRequest(Request)} method.
      */
-    private static final LRUCache<String, HttpResponse<JsonNode>> cache;
+    private final RequestCoalescer<APICall, HttpResponse<JsonNode>> inFlightRequests = new RequestCoalescer<>();
 
     /**
-     * Integer to define the number of occurrences the {@link #cache} should keep.
+     * {@link HandlerMetrics} notified of every request, cache lookup and upstream call.
+     * See {@link #setMetrics(HandlerMetrics)}.
      */
-    private static final int INITIAL_VALUE_FOR_CACHE = 5;
+    private volatile HandlerMetrics metrics = NoOpMetrics.getInstance();
 
     /**
-     * {@link APIConfigurationReader} instance. Useful here: {@link #getInstance(String)}.
+     * {@link APIConfigurationReader} instance, for this handler's Configuration Options file.
      */
-    private static APIConfigurationReader reader;
+    private final APIConfigurationReader reader;
 
-    static {
-        cache = new LRUCache<>(INITIAL_VALUE_FOR_CACHE);
-    }
+    /**
+     * Listener added to {@link #reader} when "hot_reload" is true, and removed by {@link #close()}.
+     */
+    private final Consumer<ConfigurationSnapshot> reloadListener = this::applyConfigurations;
+
+    /**
+     * True once {@link #close()} was called.
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     /**
      * Nested class responsible for creating an encoded UTF-8 URL query, used whenever an API Call is made.
@@ -59,22 +276,67 @@ public final class APIHandler {
          */
         private final String query;
 
+        /**
+         * Encoded path values, or a NULL Reference if this request has params. See {@link RequestTemplate}.
+         */
+        private final String[] pathValues;
+
+        /**
+         * Values of the response this request reads, or a NULL Reference to read it all. See {@link Projection}.
+         */
+        private final Projection projection;
+
+        /**
+         * Call built the last time this request was made, so reusing the request does not build it again.
+         * See {@link #getCall(RequestTemplate)}.
+         */
+        private volatile APICall apiCall;
+
         /**
          * Constructor responsible to create a Request instance. It behaves different if it is desired to
          * specify the params to URL query.
-         * If params is a NULL Reference, it, only, encodes the values's first element, otherwise it encodes
-         * all params and values elements.
+         * If params is a NULL Reference, values are path values: they fill the endpoint's path parameters
+         * (ex: "obd2/{code}"), in order, and the remaining ones are appended as path segments. Otherwise, it
+         * encodes all params and values elements as a query, sorted by param, so the same params, in any order,
+         * make the same request.
          *
          * @param params List containing all params needed for the URL.
          * @param values List containing all the elements to match the params's.
          */
         public Request(final List<String> params, final List<String> values) {
+            this(params, values, List.of());
+        }
+
+        /**
+         * Constructor responsible to create a Request instance that only reads some values of the response,
+         * given as JSON pointers (ex: "/code" or "/results/0/name"). Only those values are kept in the response
+         * and in the cache, so a request reading a few fields of a large response takes less memory. Requests
+         * with different projections are cached separately.
+         *
+         * @param params     List containing all params needed for the URL, or a NULL Reference (See
+         *                   {@link #Request(List, List)}).
+         * @param values     List containing all the elements to match the params's.
+         * @param projection List of JSON pointers. An empty List reads the whole response.
+         * @throws IllegalArgumentException If projection is a NULL Reference, or holds an invalid JSON pointer.
+         */
+        public Request(final List<String> params, final List<String> values, final List<String> projection) {
+            if (projection == null)
+                throw new IllegalArgumentException("ERROR: Projection's List can not be a NULL REFERENCE.\n");
+            this.projection = Projection.compile(projection);
 
             // This option means the were no params
             if (params == null) {
-                // TODO: For now, this only utilizes the first element inside values's List.
-                query = String.format(values.get(0), URLEncoder.encode((values.get(0)), CHARSET));
+                if (values == null || values.isEmpty())
+                    throw new IllegalArgumentException("ERROR: Values's List can not be empty.\n");
+                pathValues = new String[values.size()];
+                for (int i = 0; i != pathValues.length; i++) {
+                    StringBuilder segment = new StringBuilder(values.get(i).length());
+                    QueryEncoder.appendPathSegment(segment, values.get(i));
+                    pathValues[i] = segment.toString();
+                }
+                query = pathValues.length == 1 ? pathValues[0] : String.join("/", pathValues);
             } else {
+                pathValues = null;
                 try {
                     query = prepareQuery(params, values);
                 } catch (NullPointerException e) {
@@ -94,6 +356,35 @@ public final class APIHandler {
             return query;
         }
 
+        /**
+         * Method to return the key identifying this request on an endpoint, i.e. "endpoint/query", followed
+         * by its projection, if any (See {@link Projection}).
+         * It is built once, and its hash code computed right away, so later cache lookups with the
+         * same request neither build nor hash it again.
+         *
+         * @param template {@link RequestTemplate} holding the API's endpoint.
+         * @return String representing the endpoint and query.
+         */
+        String getAPICall(RequestTemplate template) {
+            return getCall(template).getKey();
+        }
+
+        /**
+         * Method to return this request's call on an endpoint: its key, the call sent to the API's host, and
+         * its compiled projection. It is built once per template.
+         *
+         * @param template {@link RequestTemplate} holding the API's endpoint.
+         * @return {@link APICall} instance.
+         */
+        APICall getCall(RequestTemplate template) {
+            APICall call = apiCall;
+            if (call == null || call.getTemplate() != template) {
+                call = new APICall(template, template.buildAPICall(query, pathValues), projection);
+                apiCall = call;
+            }
+            return call;
+        }
+
         /**
          * Private method, used in {@link #Request(List, List)}, to create and prepare the URL query.
          *
@@ -115,37 +406,21 @@ public final class APIHandler {
                 throw new IllegalStateException();
             }
 
-            // This is necessary for API with param=value URL queries
-            String query = "?";
-            for (int i = 0; i != params.size(); i++) {
-                query = query.concat(encodeString(params.get(i), values.get(i)) + "&");
-            }
-            return query.substring(0, query.length() - 1);
-        }
-
-        /**
-         * Private method to do the actual URL query encoding. Used inside {@link #prepareQuery(List, List)}.
-         *
-         * @param param String representing the param to match the future encoded value.
-         * @param value String representing the value to encode.
-         * @return String with param and value encoded.
-         */
-        private String encodeString(String param, String value) {
-            // Check to see if parameters, also, need to be encoded.
-            // They dont...
-            return param + "=" + (URLEncoder.encode(value, CHARSET));
+            // This is necessary for API with param=value URL queries.
+            // Params do not need to be encoded, only values.
+            return QueryEncoder.buildQuery(params, values);
         }
     }
 
     /**
      * Private method responsible to initiate {@link #configurations}, based on
-     * APIConfigurationReader.getConfigurations() map.
-     * Used in {@link #APIHandler()}.
+     * APIConfigurationReader.getConfigurations() map, and to compile its {@link #template}.
+     * Used in {@link #APIHandler(APIConfigurationReader, Transport)}.
      */
     private void initReader() {
         try {
             configurations = reader.getConfigurations();
-
+            template = RequestTemplate.compile(configurations);
         } catch (FileNotFoundException | PatternSyntaxException | ArrayIndexOutOfBoundsException |
                  IllegalStateException e) {
             String message;
@@ -164,12 +439,444 @@ public final class APIHandler {
 
             System.err.println(message + "\n\n" + e.getClass()+": "+e.getMessage());
             configurations = null;
-            instance = null;
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: Configuration Options File has an invalid endpoint. " +
+                    "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            configurations = null;
+        }
+    }
+
+    /**
+     * Private method responsible to initiate {@link #cache}, based on "cache_capacity", "cache_policy",
+     * "cache_storage", "offheap_cache_size", "offheap_cache_compression", "disk_cache_directory", "disk_cache_size",
+     * "remote_cache", "remote_cache_timeout", "remote_cache_connections", "cache_ttl" and "negative_cache_ttl"
+     * configuration options. Invalid or missing values fall back to their defaults. A positive "offheap_cache_size"
+     * adds an off-heap tier (See {@link TieredResponseCache}), a "disk_cache_directory" adds a persistent tier
+     * (See {@link PersistentResponseCache}), and a "remote_cache" URI (ex: "redis://cache:6379") puts all of them in
+     * front of a tier shared with other processes using the same host (See {@link SharedResponseCache}).
+     * Used in {@link #APIHandler(APIConfigurationReader, Transport)}.
+     */
+    private void initCache() {
+        int capacity = (int) getAPIParameterAsLong("cache_capacity", DEFAULT_CACHE_CAPACITY);
+        EvictionPolicy policy = DEFAULT_CACHE_POLICY;
+
+        String policyValue = configurations == null ? null : configurations.get("cache_policy");
+        if (policyValue != null) {
+            try {
+                policy = EvictionPolicy.fromIdentifier(policyValue);
+            } catch (IllegalArgumentException e) {
+                System.err.println("ERROR: Configuration Options File has an invalid cache_policy. " +
+                        "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            }
+        }
+        if (capacity <= 0)
+            capacity = DEFAULT_CACHE_CAPACITY;
+
+        String storageValue = configurations == null ? null : configurations.get("cache_storage");
+        keepParsedResponses = !"raw".equalsIgnoreCase(storageValue);
+        long offHeapSize = getAPIParameterAsLong("offheap_cache_size", 0);
+        if (offHeapSize > 0) {
+            boolean compress = configurations != null
+                    && Boolean.parseBoolean(configurations.get("offheap_cache_compression"));
+            try {
+                cache = new TieredResponseCache<>(capacity, policy, (int) Math.min(Integer.MAX_VALUE, offHeapSize),
+                        compress, new CachedResponseCodec(keepParsedResponses));
+            } catch (IllegalArgumentException e) {
+                System.err.println("ERROR: Configuration Options File has an invalid offheap_cache_size. " +
+                        "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            }
+        }
+        if (cache == null)
+            cache = new ConcurrentResponseCache<>(capacity, policy);
+
+        String diskDirectory = configurations == null ? null : configurations.get("disk_cache_directory");
+        if (diskDirectory != null && !diskDirectory.isEmpty()) {
+            try {
+                // Entries that can be revalidated stay useful after they expire.
+                cache = new PersistentResponseCache<>(cache, Path.of(diskDirectory),
+                        getAPIParameterAsLong("disk_cache_size", DEFAULT_DISK_CACHE_SIZE),
+                        new CachedResponseCodec(keepParsedResponses),
+                        entry -> entry.hasValidators() ? Long.MAX_VALUE : entry.getStaleUntil());
+            } catch (IOException | InvalidPathException e) {
+                System.err.println("ERROR: Configuration Options File has an unusable disk_cache_directory. " +
+                        "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            }
+        }
+
+        String remoteValue = configurations == null ? null : configurations.get("remote_cache");
+        if (remoteValue != null && !remoteValue.isEmpty()) {
+            try {
+                RedisRemoteCache remote = new RedisRemoteCache(URI.create(remoteValue),
+                        Duration.ofMillis(getAPIParameterAsLong("remote_cache_timeout", DEFAULT_REMOTE_CACHE_TIMEOUT)),
+                        (int) getAPIParameterAsLong("remote_cache_connections", DEFAULT_REMOTE_CACHE_CONNECTIONS));
+                sharedCache = new SharedResponseCache<>(cache, remote, new CachedResponseCodec(keepParsedResponses),
+                        entry -> entry.hasValidators() ? Math.max(entry.getStaleUntil(),
+                                entry.getStoredAt() + REMOTE_VALIDATOR_RETENTION) : entry.getStaleUntil(),
+                        remoteNamespace(configurations.get("host")));
+                cache = sharedCache;
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("ERROR: Configuration Options File has an unusable remote_cache. " +
+                        "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            }
+        }
+        cacheTtlMillis = getAPIParameterAsLong("cache_ttl", DEFAULT_CACHE_TTL) * 1000;
+        negativeCacheTtlMillis = getAPIParameterAsLong("negative_cache_ttl", DEFAULT_NEGATIVE_CACHE_TTL) * 1000;
+        batchConcurrency = (int) getAPIParameterAsLong("batch_concurrency", DEFAULT_BATCH_CONCURRENCY);
+        if (batchConcurrency <= 0)
+            batchConcurrency = DEFAULT_BATCH_CONCURRENCY;
+    }
+
+    /**
+     * Private method to return a numeric API's parameter.
+     * If the option is missing, or its value is not a number, it returns the default value.
+     *
+     * @param option       String to search for.
+     * @param defaultValue Value to use when the option is missing or invalid.
+     * @return Option's value.
+     */
+    private long getAPIParameterAsLong(String option, long defaultValue) {
+        String value = configurations == null ? null : configurations.get(option);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("ERROR: Configuration Options File has an invalid " + option + ". " +
+                    "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Private method to return a decimal API's parameter.
+     * If the option is missing, or its value is not a number, it returns the default value.
+     *
+     * @param option       String to search for.
+     * @param defaultValue Value to use when the option is missing or invalid.
+     * @return Option's value.
+     */
+    private double getAPIParameterAsDouble(String option, double defaultValue) {
+        String value = configurations == null ? null : configurations.get(option);
+        if (value == null)
+            return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("ERROR: Configuration Options File has an invalid " + option + ". " +
+                    "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Private method responsible to initiate {@link #upstreamExecutor}, based on "execution_mode"
+     * configuration option. If virtual threads are requested but not supported by the running JVM,
+     * it falls back to {@link ExecutionMode#PLATFORM}.
+     * Used in {@link #APIHandler(APIConfigurationReader, Transport)}.
+     */
+    private void initExecution() {
+        String modeValue = configurations == null ? null : configurations.get("execution_mode");
+        if (modeValue == null)
+            return;
+
+        try {
+            if (ExecutionMode.fromIdentifier(modeValue) == ExecutionMode.VIRTUAL)
+                upstreamExecutor = VirtualThreads.newExecutor();
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            System.err.println("ERROR: Configuration Options File has an invalid execution_mode. " +
+                    "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Private method responsible to initiate {@link #transport}. If no transport is given, a
+     * {@link JavaHttpTransport} is created, based on "connect_timeout", "read_timeout" (milliseconds),
+     * "max_connections" and "http_version" (http2 or http1.1) configuration options, and wrapped in a
+     * {@link RecordingTransport} when recording (See {@link #initReplay(Transport)}).
+     * Either one is wrapped in a {@link ThrottledTransport} when "rate_limit" (requests per second) or
+     * "adaptive_concurrency" are set. "rate_limit_burst" defaults to one second's worth of requests, and the
+     * adaptive limit never goes beyond "max_connections".
+     * The result is wrapped in a {@link ResilientTransport} when "max_retries", "hedge_requests" or
+     * "circuit_breaker_threshold" are set ("retry_backoff" and "circuit_breaker_timeout" are in milliseconds).
+     * Used in {@link #APIHandler(APIConfigurationReader, Transport)}.
+     *
+     * @param customTransport {@link Transport} to use, or a NULL Reference.
+     */
+    private void initTransport(Transport customTransport) {
+        int maxConnections = (int) getAPIParameterAsLong("max_connections", DEFAULT_MAX_CONNECTIONS);
+        if (customTransport != null) {
+            transport = customTransport;
+        } else {
+            String versionValue = configurations == null ? null : configurations.get("http_version");
+            HttpClient.Version version = "http1.1".equalsIgnoreCase(versionValue)
+                    ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2;
+            transport = new JavaHttpTransport(
+                    Duration.ofMillis(getAPIParameterAsLong("connect_timeout", DEFAULT_CONNECT_TIMEOUT)),
+                    Duration.ofMillis(getAPIParameterAsLong("read_timeout", DEFAULT_READ_TIMEOUT)),
+                    maxConnections, version, null);
+            if (recording != null)
+                transport = new RecordingTransport(transport, recording);
+        }
+
+        double rateLimit = getAPIParameterAsDouble("rate_limit", 0);
+        boolean adaptiveConcurrency = configurations != null
+                && Boolean.parseBoolean(configurations.get("adaptive_concurrency"));
+        if (rateLimit > 0 || adaptiveConcurrency) {
+            int burst = (int) getAPIParameterAsLong("rate_limit_burst", Math.max(1, (long) Math.ceil(rateLimit)));
+            transport = new ThrottledTransport(transport, rateLimit, Math.max(1, burst),
+                    adaptiveConcurrency ? (maxConnections > 0 ? maxConnections : DEFAULT_MAX_CONNECTIONS) : 0);
+        }
+
+        int maxRetries = (int) getAPIParameterAsLong("max_retries", 0);
+        boolean hedgeRequests = configurations != null
+                && Boolean.parseBoolean(configurations.get("hedge_requests"));
+        int breakerThreshold = (int) getAPIParameterAsLong("circuit_breaker_threshold", 0);
+        if (maxRetries > 0 || hedgeRequests || breakerThreshold > 0) {
+            transport = new ResilientTransport(transport, maxRetries,
+                    Duration.ofMillis(getAPIParameterAsLong("retry_backoff", DEFAULT_RETRY_BACKOFF)),
+                    hedgeRequests, breakerThreshold,
+                    Duration.ofMillis(getAPIParameterAsLong("circuit_breaker_timeout", DEFAULT_CIRCUIT_BREAKER_TIMEOUT)));
+        }
+    }
+
+    /**
+     * Private method responsible to initiate {@link #recording} or {@link #replayServer}, based on "replay_mode"
+     * (off, record or replay) and "replay_file" (path of the {@link Recording}, relative to the Configuration
+     * Options file's directory) configuration options. When replaying, every call is sent to a local
+     * {@link ReplayServer} instead of "host", which waits "replay_latency" (milliseconds) before answering, and
+     * answers a share of the calls ("replay_error_rate", between 0 and 1) with a 503 (Service Unavailable).
+     * Both modes only apply to the handler's own transport: a custom {@link Transport} is used as is.
+     * Used in {@link #APIHandler(APIConfigurationReader, Transport)}.
+     *
+     * @param customTransport {@link Transport} to use, or a NULL Reference.
+     */
+    private void initReplay(Transport customTransport) {
+        String modeValue = configurations == null ? null : configurations.get("replay_mode");
+        if (modeValue == null)
+            return;
+
+        ReplayMode mode;
+        try {
+            mode = ReplayMode.fromIdentifier(modeValue);
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: Configuration Options File has an invalid replay_mode. " +
+                    "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            return;
+        }
+        if (mode == ReplayMode.OFF || customTransport != null)
+            return;
+
+        String fileValue = configurations.get("replay_file");
+        if (fileValue == null || fileValue.isEmpty()) {
+            System.err.println("ERROR: Configuration Options File has a replay_mode, but no replay_file. " +
+                    "Check " + reader.getFilePath());
+            return;
+        }
+        try {
+            Recording opened = Recording.open(Path.of(reader.getFilePath()).resolveSibling(fileValue));
+            if (mode == ReplayMode.RECORD) {
+                recording = opened;
+                return;
+            }
+            replayServer = new ReplayServer(opened, Duration.ofMillis(getAPIParameterAsLong("replay_latency", 0)),
+                    getAPIParameterAsDouble("replay_error_rate", 0));
+            template = RequestTemplate.compile(upstreamOptions(configurations));
+        } catch (IOException | IllegalArgumentException e) {
+            if (replayServer != null) {
+                replayServer.close();
+                replayServer = null;
+            }
+            System.err.println("ERROR: Configuration Options File has unusable replay options. " +
+                    "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Private method to return the options every call is built from: the given ones, with "host" pointing at
+     * {@link #replayServer} (keeping the host's path), when replaying.
+     *
+     * @param options Map of the options read from the file.
+     * @return Map of the options to compile into a {@link RequestTemplate}.
+     */
+    private Map<String, String> upstreamOptions(Map<String, String> options) {
+        if (replayServer == null)
+            return options;
+
+        Map<String, String> replayed = new HashMap<>(options);
+        String host = options.get("host");
+        String path = host == null ? null : URI.create(host).getRawPath();
+        replayed.put("host", replayServer.getURI() + (path == null ? "" : path));
+        return replayed;
+    }
+
+    /**
+     * Private method responsible to initiate {@link #refreshScheduler}, based on "refresh_ahead" (part of the
+     * lifetime, between 0 and 1, after which reading a fresh entry refreshes it in the background) and
+     * "stale_while_revalidate" (seconds an expired entry is still served while it is refreshed) configuration
+     * options. At most "refresh_concurrency" refreshes run at once, started no faster than "refresh_rate_limit"
+     * per second, which defaults to half of "rate_limit", so refreshes never use up the callers' budget.
+     * Used in {@link #APIHandler(APIConfigurationReader, Transport)}.
+     */
+    private void initRefresh() {
+        staleWhileRevalidateMillis = getAPIParameterAsLong("stale_while_revalidate", 0) * 1000;
+        double fraction = getAPIParameterAsDouble("refresh_ahead", 0);
+        if (fraction < 0 || fraction >= 1) {
+            System.err.println("ERROR: Configuration Options File has an invalid refresh_ahead. " +
+                    "Check " + reader.getFilePath());
+            fraction = 0;
+        }
+        refreshAhead = fraction;
+        if (refreshAhead == 0 && staleWhileRevalidateMillis <= 0)
+            return;
+
+        double rate = getAPIParameterAsDouble("refresh_rate_limit", getAPIParameterAsDouble("rate_limit", 0) / 2);
+        TokenBucket budget = rate > 0 ? new TokenBucket(rate, Math.max(1, (int) Math.ceil(rate))) : null;
+        int concurrency = (int) getAPIParameterAsLong("refresh_concurrency", DEFAULT_REFRESH_CONCURRENCY);
+        refreshScheduler = new RefreshScheduler<>(this::refreshResponse, Math.max(1, concurrency),
+                REFRESH_QUEUE_CAPACITY, budget);
+    }
+
+    /**
+     * Private method responsible to initiate {@link #metrics}, based on "metrics" configuration option
+     * ("none" or "memory").
+     * Used in {@link #APIHandler(APIConfigurationReader, Transport)}.
+     */
+    private void initMetrics() {
+        String metricsValue = configurations == null ? null : configurations.get("metrics");
+        if ("memory".equalsIgnoreCase(metricsValue))
+            setMetrics(new InMemoryMetrics());
+        else if (metricsValue != null && !"none".equalsIgnoreCase(metricsValue))
+            System.err.println("ERROR: Configuration Options File has an invalid metrics. " +
+                    "Check " + reader.getFilePath());
+    }
+
+    /**
+     * Private method responsible to keep {@link #configurations} in sync with the file, when "hot_reload" is
+     * true. Reloads never block calls in progress, and cached responses are kept (unless "host" changed).
+     * Only the options read on each call take effect: "host", "endpoint", "header", "rapid_api_host",
+     * "rapid_api_key", "cache_ttl", "negative_cache_ttl" and "stale_while_revalidate". The others need a new
+     * instance.
+     * Used in {@link #APIHandler(APIConfigurationReader, Transport)}.
+     */
+    private void initReload() {
+        if (configurations == null || !Boolean.parseBoolean(configurations.get("hot_reload")))
+            return;
+
+        reader.addListener(reloadListener);
+        try {
+            reader.watch();
+        } catch (IOException e) {
+            System.err.println("ERROR: Configuration Options File can not be watched. " +
+                    "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Private procedure, used as {@link APIConfigurationReader}'s listener, to switch to the reloaded options.
+     * Responses cached from another host are dropped, and the remote cache tier, if any, is only shared with the
+     * processes calling the new host.
+     *
+     * @param snapshot {@link ConfigurationSnapshot} read from the file.
+     */
+    private void applyConfigurations(ConfigurationSnapshot snapshot) {
+        RequestTemplate compiled;
+        try {
+            compiled = RequestTemplate.compile(upstreamOptions(snapshot.asMap()));
+        } catch (IllegalArgumentException e) {
+            System.err.println("ERROR: Configuration Options File has an invalid endpoint, previous options kept. " +
+                    "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            return;
+        }
+        Map<String, String> previous = configurations;
+        configurations = snapshot.asMap();
+        template = compiled;
+        cacheTtlMillis = getAPIParameterAsLong("cache_ttl", DEFAULT_CACHE_TTL) * 1000;
+        negativeCacheTtlMillis = getAPIParameterAsLong("negative_cache_ttl", DEFAULT_NEGATIVE_CACHE_TTL) * 1000;
+        staleWhileRevalidateMillis = getAPIParameterAsLong("stale_while_revalidate", 0) * 1000;
+        if (!Objects.equals(previous.get("host"), snapshot.get("host"))) {
+            // The remote tier is only shared with the processes calling the same host.
+            if (sharedCache != null)
+                sharedCache.setNamespace(remoteNamespace(snapshot.get("host")));
+            cache.clear();
         }
     }
 
-    private APIHandler() {
+    /**
+     * Private static method to return the namespace of the remote cache tier, shared by the processes calling
+     * the same host.
+     *
+     * @param host API's host.
+     * @return String used as {@link SharedResponseCache}'s namespace.
+     */
+    private static String remoteNamespace(String host) {
+        return "api-handler:" + host;
+    }
+
+    private APIHandler(APIConfigurationReader reader, Transport customTransport) {
+        this.reader = reader;
         initReader();
+        initCache();
+        initExecution();
+        initReplay(customTransport);
+        initTransport(customTransport);
+        initRefresh();
+        initMetrics();
+        initReload();
+    }
+
+    /**
+     * Public method to return the local server answering every call, when replaying ("replay_mode -> replay").
+     *
+     * @return {@link ReplayServer} instance, or a NULL Reference if calls go to "host".
+     */
+    public ReplayServer getReplayServer() {
+        return replayServer;
+    }
+
+    /**
+     * Public procedure to release everything this handler holds: the cache tiers (the persistent tier's files
+     * and directory lock, the remote tier's connections and subscription), the local {@link ReplayServer}, the
+     * {@link Recording} being written, the virtual threads running calls, and the Configuration Options file's
+     * listener. The handler is also removed from the shared instances, so the next {@link #getInstance(String)}
+     * call creates a new one. Calls made after closing are not supported. Closing again does nothing. Errors are
+     * reported on System.err.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true))
+            return;
+
+        instances.remove(reader.getFilePath(), this);
+        reader.removeListener(reloadListener);
+        if (cache instanceof Closeable) {
+            try {
+                ((Closeable) cache).close();
+            } catch (IOException e) {
+                System.err.println("ERROR: Cache could not be closed. " +
+                        "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            }
+        }
+        if (replayServer != null)
+            replayServer.close();
+        if (recording != null) {
+            try {
+                recording.close();
+            } catch (IOException e) {
+                System.err.println("ERROR: Recording could not be closed. " +
+                        "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+            }
+        }
+        if (upstreamExecutor != null)
+            upstreamExecutor.shutdown();
+    }
+
+    /**
+     * Public method to return how non-blocking calls are being run.
+     *
+     * @return {@link ExecutionMode} in use.
+     */
+    public ExecutionMode getExecutionMode() {
+        return upstreamExecutor == null ? ExecutionMode.PLATFORM : ExecutionMode.VIRTUAL;
     }
 
     /**
@@ -188,43 +895,613 @@ public final class APIHandler {
         return configurations.get(option);
     }
 
+    /**
+     * Public method to return the {@link HandlerMetrics} being notified.
+     *
+     * @return {@link HandlerMetrics} instance ({@link NoOpMetrics}, unless others were configured).
+     */
+    public HandlerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Public procedure to notify other {@link HandlerMetrics} from now on (ex: an adapter to a monitoring system).
+     * Gauges for the cache's size and evictions, for the number of distinct calls in progress and for the keys
+     * waiting for a background refresh, are registered on it, named after the endpoint (ex: "obd2.cache.size").
+     *
+     * @param metrics {@link HandlerMetrics} instance. Use {@link NoOpMetrics#getInstance()} to stop recording.
+     */
+    public void setMetrics(HandlerMetrics metrics) {
+        if (metrics == null)
+            throw new IllegalArgumentException("ERROR: Metrics can not be a NULL REFERENCE.\n");
+
+        String endpoint = getAPIParameterBy("endpoint");
+        metrics.registerGauge(endpoint + ".cache.size", () -> cache.size());
+        metrics.registerGauge(endpoint + ".cache.evictions", () -> cache.getStats().getEvictionCount());
+        metrics.registerGauge(endpoint + ".calls.inflight", inFlightRequests::inFlightCount);
+        if (refreshScheduler != null)
+            metrics.registerGauge(endpoint + ".refresh.pending", refreshScheduler::pendingCount);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Public method to return a snapshot of {@link #cache}'s hit/miss/eviction counters.
+     *
+     * @return {@link CacheStats} instance.
+     */
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
     /**
      * Public method used to make an API Call, based on the {@link #configurations} values, and
      * APIHandler.Request's query.
-     * It caches the responses, for responsiveness and efficiency sake.
+     * It caches the responses, for responsiveness and efficiency sake, while they are fresh (See
+     * {@link CacheDirectives}). Stale responses with an ETag or Last-Modified header are revalidated with
+     * a conditional request. Entries read near their expiry, or shortly after it, may be refreshed in the
+     * background while the cached response is returned (See {@link #initRefresh()}).
+     * Concurrent calls for the same request share a single upstream call
+     * (See {@link RequestCoalescer}). Failed calls may be retried or hedged, and, while the host's circuit is
+     * open, a stale response is returned instead of failing (See {@link ResilientTransport}).
      *
      * @param request APIHandler.Request's instance to retrieve the URL query.
      * @return HttpResponse object, after the call was made.
      * @throws UnirestException If the call was unsuccessful.
      */
     public HttpResponse<JsonNode> makeAPIRequest(APIHandler.Request request) throws UnirestException {
+        APICall call = getCall(request);
+        metrics.onRequest(template.getEndpoint());
+
+        HttpResponse<JsonNode> r = getFreshResponse(call);
+        if (r != null)
+            return r;
+
+        // This means the cache has no (fresh) record of that request.
+        return awaitResponse(inFlightRequests.execute(call, key -> loadResponse(key, false)));
+    }
+
+    /**
+     * Public method used to make several API Calls at once.
+     * Duplicated requests are only called once, cache hits are answered right away, and the remaining
+     * requests are sent in parallel, keeping, at most, "batch_concurrency" calls in progress.
+     * It blocks until every call is finished. A request that can not be built (ex: a NULL Reference, or path
+     * values not matching the endpoint's parameters) only fails its own result.
+     *
+     * @param requests List of APIHandler.Request's instances.
+     * @return List of {@link BatchResult}, in the same order as requests.
+     */
+    public List<BatchResult> makeAPIRequests(List<APIHandler.Request> requests) {
+        if (requests == null)
+            throw new IllegalArgumentException("ERROR: Requests's List can not be a NULL REFERENCE.\n");
+
+        Map<APICall, CompletableFuture<HttpResponse<JsonNode>>> calls = new LinkedHashMap<>();
+        List<APICall> apiCalls = new ArrayList<>(requests.size());
+        // Requests that can not even be built fail on their own, without stopping the others.
+        List<RuntimeException> invalid = new ArrayList<>(requests.size());
+        HandlerMetrics m = metrics;
+        String endpoint = template.getEndpoint();
+        for (APIHandler.Request request : requests) {
+            APICall apiCall;
+            try {
+                if (request == null)
+                    throw new IllegalArgumentException("ERROR: Request can not be a NULL REFERENCE.\n");
+                apiCall = getCall(request);
+            } catch (RuntimeException e) {
+                apiCalls.add(null);
+                invalid.add(e);
+                continue;
+            }
+            m.onRequest(endpoint);
+            apiCalls.add(apiCall);
+            invalid.add(null);
+            if (!calls.containsKey(apiCall)) {
+                HttpResponse<JsonNode> r = getFreshResponse(apiCall);
+                calls.put(apiCall, r == null ? null : CompletableFuture.completedFuture(r));
+            }
+        }
+
+        Semaphore permits = new Semaphore(batchConcurrency);
+        for (Map.Entry<APICall, CompletableFuture<HttpResponse<JsonNode>>> call : calls.entrySet()) {
+            if (call.getValue() != null)
+                continue;
+            try {
+                permits.acquire();
+                call.setValue(inFlightRequests.execute(call.getKey(), key -> loadResponseAsync(key, false))
+                        .whenComplete((r, e) -> permits.release()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                call.setValue(CompletableFuture.failedFuture(new UnirestException(e)));
+            }
+        }
+
+        List<BatchResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i != apiCalls.size(); i++) {
+            if (invalid.get(i) != null) {
+                results.add(BatchResult.failure(invalid.get(i)));
+                continue;
+            }
+            try {
+                results.add(BatchResult.success(calls.get(apiCalls.get(i)).join()));
+            } catch (CompletionException e) {
+                results.add(BatchResult.failure(e.getCause()));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Public method used to make an API Call without blocking the caller. It behaves like
+     * {@link #makeAPIRequest(Request)}, sharing the same cache and in-flight calls.
+     * A cache hit returns an already completed future, unless it comes from the remote cache tier, which is read
+     * on the cache's own threads. Otherwise, the call is sent through the {@link Transport}'s non-blocking
+     * client, and the future completes on one of its threads, so dependent stages should not block. Use {@link #makeAPIRequestAsync(Request, Executor)} to run them somewhere else.
+     *
+     * @param request APIHandler.Request's instance to retrieve the URL query.
+     * @return CompletableFuture completed with the HttpResponse object, or with a {@link UnirestException}
+     * if the call was unsuccessful.
+     */
+    public CompletableFuture<HttpResponse<JsonNode>> makeAPIRequestAsync(APIHandler.Request request) {
+        APICall call = getCall(request);
+        metrics.onRequest(template.getEndpoint());
+
+        return getCachedAsync(call.getKey()).thenCompose(cached -> {
+            HttpResponse<JsonNode> r = getFreshResponse(call, cached);
+            if (r != null)
+                return CompletableFuture.completedFuture(r);
+
+            // The shared future is copied, so one caller completing or cancelling it does not affect the others.
+            return inFlightRequests.execute(call, key -> loadResponseAsync(key, false)).copy();
+        });
+    }
+
+    /**
+     * Public method used to make an API Call without blocking the caller, completing the returned future
+     * on the given executor. A cache hit still returns an already completed future, without any thread hop.
+     *
+     * @param request  APIHandler.Request's instance to retrieve the URL query.
+     * @param executor Executor used to complete the returned future.
+     * @return CompletableFuture completed with the HttpResponse object, or with a {@link UnirestException}
+     * if the call was unsuccessful.
+     */
+    public CompletableFuture<HttpResponse<JsonNode>> makeAPIRequestAsync(APIHandler.Request request,
+                                                                        Executor executor) {
+        if (executor == null)
+            throw new IllegalArgumentException("ERROR: Executor can not be a NULL REFERENCE.\n");
+
+        CompletableFuture<HttpResponse<JsonNode>> future = makeAPIRequestAsync(request);
+        if (future.isDone())
+            return future;
+        return future.whenCompleteAsync((r, e) -> { }, executor);
+    }
+
+    /**
+     * Public method used to make an API Call whose body is read as it arrives, instead of being buffered
+     * and parsed first (ex: large search results). The request's projection is not applied: the whole body is
+     * streamed, so only the cached response of the same request without a projection is used, if it is usable
+     * (See {@link #isUsable(APICall, CachedResponse, long)}), streamed from its raw bytes.
+     * Otherwise, the call goes straight to the API's host: it is neither shared with other callers nor
+     * cached.
+     *
+     * @param request APIHandler.Request's instance to retrieve the URL query.
+     * @return {@link StreamingResponse}, which must be closed by the caller.
+     * @throws UnirestException If the call was unsuccessful.
+     */
+    public StreamingResponse makeAPIRequestAsStream(APIHandler.Request request) throws UnirestException {
+        APICall call = getCall(request);
+        if (call.getProjection() != null) // The whole body is streamed, as the request would be read without it.
+            call = new APICall(call.getTemplate(), call.getUpstreamCall(), null);
+        HandlerMetrics m = metrics;
+        String endpoint = template.getEndpoint();
+        m.onRequest(endpoint);
+
+        CachedResponse cached = cache.get(call.getKey());
+        if (isUsable(call, cached, System.currentTimeMillis())) {
+            m.onCacheHit(endpoint);
+            return new StreamingResponse(cached.getStatus(), cached.getHeaders(),
+                    new ByteArrayInputStream(cached.getRaw().getBody()));
+        }
+        m.onCacheMiss(endpoint);
+
+        m.onUpstreamStart(endpoint);
+        long start = System.nanoTime();
+        try {
+            // Only the time until the status and headers arrive is recorded. The body is read by the caller.
+            StreamingResponse response = transport.stream(prepareRequest(call, null));
+            m.onUpstreamResponse(endpoint, response.getStatus(), System.nanoTime() - start);
+            return response;
+        } catch (CircuitOpenException e) {
+            m.onUpstreamFailure(endpoint, e, System.nanoTime() - start);
+            if (cached == null)
+                throw new UnirestException(e);
+            // The host is failing: a stale response is better than none.
+            return new StreamingResponse(cached.getStatus(), cached.getHeaders(),
+                    new ByteArrayInputStream(cached.getRaw().getBody()));
+        } catch (IOException e) {
+            m.onUpstreamFailure(endpoint, e, System.nanoTime() - start);
+            throw new UnirestException(e);
+        } catch (InterruptedException e) {
+            m.onUpstreamFailure(endpoint, e, System.nanoTime() - start);
+            Thread.currentThread().interrupt();
+            throw new UnirestException(e);
+        } catch (RuntimeException e) {
+            m.onUpstreamFailure(endpoint, e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Private method to build the call identifying a request, i.e. the endpoint and the query, and its
+     * projection.
+     *
+     * @param request APIHandler.Request's instance.
+     * @return {@link APICall} instance.
+     */
+    private APICall getCall(APIHandler.Request request) {
         // https://car-code.p.rapidapi.com/obd2/P0001
-        String apiCall = getAPIParameterBy("endpoint") + "/"
-                + request.getQuery();
+        return request.getCall(template);
+    }
+
+    /**
+     * Private method to return a cached response, but only while it is usable (See
+     * {@link #isUsable(APICall, CachedResponse, long)}).
+     *
+     * @param apiCall {@link APICall} of the request.
+     * @return HttpResponse object, or a NULL Reference.
+     */
+    private HttpResponse<JsonNode> getFreshResponse(APICall apiCall) {
+        return getFreshResponse(apiCall, cache.get(apiCall.getKey()));
+    }
+
+    /**
+     * Private method to return a cached response already read, but only while it is usable.
+     *
+     * @param apiCall {@link APICall} of the request.
+     * @param cached  Cached entry, or a NULL Reference.
+     * @return HttpResponse object, or a NULL Reference.
+     */
+    private HttpResponse<JsonNode> getFreshResponse(APICall apiCall, CachedResponse cached) {
+        if (isUsable(apiCall, cached, System.currentTimeMillis())) {
+            metrics.onCacheHit(template.getEndpoint());
+            return cached.getResponse();
+        }
+        metrics.onCacheMiss(template.getEndpoint());
+        return null;
+    }
+
+    /**
+     * Private method to check if a cached entry can be returned without waiting for the API's host: while it is
+     * fresh, or, if background refreshes are enabled, while it is within its stale-while-revalidate window.
+     * Reading an entry that is stale, or near its expiry (See "refresh_ahead"), schedules its refresh. Only the
+     * first of those reads goes to the {@link RefreshScheduler} (See {@link CachedResponse#markRefreshScheduled()}),
+     * and then each read that doubles the entry's hits, to raise its priority.
+     *
+     * @param apiCall {@link APICall} the entry was cached for.
+     * @param cached  Cached entry, or a NULL Reference.
+     * @param now     Current epoch milliseconds.
+     * @return True if the entry can be returned.
+     */
+    private boolean isUsable(APICall apiCall, CachedResponse cached, long now) {
+        if (cached == null)
+            return false;
+        RefreshScheduler<APICall> scheduler = refreshScheduler;
+        if (cached.isFresh(now)) {
+            if (scheduler != null) {
+                int hits = cached.recordHit();
+                if (refreshAhead > 0 && cached.isNearExpiry(now, refreshAhead))
+                    scheduleRefresh(scheduler, apiCall, cached, hits);
+            }
+            return true;
+        }
+        if (scheduler == null || !cached.isServableStale(now))
+            return false;
+        scheduleRefresh(scheduler, apiCall, cached, cached.recordHit());
+        return true;
+    }
+
+    /**
+     * Private procedure to schedule an entry's background refresh, unless it is already scheduled. The
+     * {@link RefreshScheduler}'s lock is only taken by the first read, and by the reads raising the priority.
+     */
+    private static void scheduleRefresh(RefreshScheduler<APICall> scheduler, APICall apiCall, CachedResponse cached,
+                                        int hits) {
+        if (cached.markRefreshScheduled()) {
+            if (!scheduler.schedule(apiCall, hits, cached::clearRefreshScheduled))
+                cached.clearRefreshScheduled(); // Dropped, or scheduled for another entry of the same call.
+        } else if (Integer.bitCount(hits) == 1) {
+            scheduler.schedule(apiCall, hits);
+        }
+    }
 
-        HttpResponse<JsonNode> r = cache.get(apiCall);
-        if (r == null) { // This means the cache has no record of that request.
-            r = Unirest.get(getAPIParameterBy("host") + "/" + apiCall)
-                    .header(getAPIParameterBy("header"), getAPIParameterBy("rapid_api_host"))
-                    .header(getAPIParameterBy("header1"), getAPIParameterBy("rapid_api_key"))
-                    .asJson();
-            cache.addElement(apiCall, r);
+    /**
+     * Private method, used as {@link RefreshScheduler}'s refresher, to call the API's host again for a cached
+     * entry, sharing the call with the callers asking for the same request meanwhile.
+     *
+     * @param apiCall {@link APICall} of the entry.
+     * @return Future completed once the entry is replaced (or the call failed).
+     */
+    private CompletableFuture<HttpResponse<JsonNode>> refreshResponse(APICall apiCall) {
+        return inFlightRequests.execute(apiCall, key -> loadResponseAsync(key, true));
+    }
+
+    /**
+     * Private method, used as {@link RequestCoalescer}'s loader, to make the actual upstream call and
+     * cache its response. It runs on the calling thread.
+     *
+     * @param apiCall {@link APICall} of the request.
+     * @param refresh True to call the host even if the entry is still fresh (background refresh).
+     * @return Completed future, with the response or the failure.
+     */
+    private CompletableFuture<HttpResponse<JsonNode>> loadResponse(APICall apiCall, boolean refresh) {
+        // Another thread may have finished the same call between the cache lookup and now.
+        CachedResponse stale = cache.get(apiCall.getKey());
+        if (!refresh && stale != null && stale.isFresh(System.currentTimeMillis()))
+            return CompletableFuture.completedFuture(stale.getResponse());
+
+        try {
+            TransportResponse r = sendUpstream(prepareRequest(apiCall, stale));
+            return CompletableFuture.completedFuture(storeResponse(apiCall, r, stale));
+        } catch (UnirestException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (CircuitOpenException e) {
+            // The host is failing: a stale response is better than none.
+            return stale != null ? CompletableFuture.completedFuture(stale.getResponse())
+                    : CompletableFuture.failedFuture(new UnirestException(e));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new UnirestException(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new UnirestException(e));
+        }
+    }
+
+    /**
+     * Private method, used as {@link RequestCoalescer}'s loader, to make the actual upstream call, without
+     * blocking, and cache its response. In {@link ExecutionMode#VIRTUAL}, it runs
+     * {@link #loadResponse(APICall, boolean)} on a new virtual thread instead.
+     *
+     * @param apiCall {@link APICall} of the request.
+     * @param refresh True to call the host even if the entry is still fresh (background refresh).
+     * @return Future completed, on the transport's thread (or the virtual thread), with the response or the failure.
+     */
+    private CompletableFuture<HttpResponse<JsonNode>> loadResponseAsync(APICall apiCall, boolean refresh) {
+        if (upstreamExecutor != null) {
+            // Virtual threads: the blocking loader is cheap to park, so there is no need for callbacks.
+            return CompletableFuture.supplyAsync(() -> loadResponse(apiCall, refresh), upstreamExecutor)
+                    .thenCompose(future -> future);
         }
+
+        return getCachedAsync(apiCall.getKey()).thenCompose(stale -> {
+            if (!refresh && stale != null && stale.isFresh(System.currentTimeMillis()))
+                return CompletableFuture.completedFuture(stale.getResponse());
+
+            return sendUpstreamAsync(prepareRequest(apiCall, stale)).handle((response, error) -> {
+                try {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        if (stale != null && cause instanceof CircuitOpenException)
+                            return stale.getResponse(); // The host is failing: a stale response is better than none.
+                        throw toUnirestException(error);
+                    }
+                    return storeResponse(apiCall, response, stale);
+                } catch (UnirestException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        });
+    }
+
+    /**
+     * Private method to read a cached entry without blocking the caller: a remote tier is read on the
+     * {@link SharedResponseCache}'s own threads.
+     *
+     * @param key String representing the cache key.
+     * @return Future completed with the entry, or with a NULL Reference. It is already completed unless the
+     * remote tier is read.
+     */
+    private CompletableFuture<CachedResponse> getCachedAsync(String key) {
+        SharedResponseCache<CachedResponse> shared = sharedCache;
+        return shared != null ? shared.getAsync(key) : CompletableFuture.completedFuture(cache.get(key));
+    }
+
+    /**
+     * Private method to send an upstream call through {@link #transport}, notifying {@link #metrics}.
+     *
+     * @param request {@link TransportRequest} to send.
+     * @return Response received from the API's host.
+     * @throws IOException          If the call failed.
+     * @throws InterruptedException If the thread was interrupted while waiting.
+     */
+    private TransportResponse sendUpstream(TransportRequest request) throws IOException, InterruptedException {
+        HandlerMetrics m = metrics;
+        String endpoint = template.getEndpoint();
+        m.onUpstreamStart(endpoint);
+        long start = System.nanoTime();
+        try {
+            TransportResponse response = transport.send(request);
+            m.onUpstreamResponse(endpoint, response.getStatus(), System.nanoTime() - start);
+            return response;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            m.onUpstreamFailure(endpoint, e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * Private method to send an upstream call through {@link #transport}'s non-blocking client, notifying
+     * {@link #metrics} once it finishes.
+     *
+     * @param request {@link TransportRequest} to send.
+     * @return Future completed with the response received from the API's host, or with the failure.
+     */
+    private CompletableFuture<TransportResponse> sendUpstreamAsync(TransportRequest request) {
+        HandlerMetrics m = metrics;
+        String endpoint = template.getEndpoint();
+        m.onUpstreamStart(endpoint);
+        long start = System.nanoTime();
+        return transport.sendAsync(request).whenComplete((response, error) -> {
+            if (error != null)
+                m.onUpstreamFailure(endpoint, error, System.nanoTime() - start);
+            else
+                m.onUpstreamResponse(endpoint, response.getStatus(), System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * Private method to build the upstream GET request. If a stale entry is being revalidated, its
+     * validators are sent as conditional headers.
+     *
+     * @param apiCall {@link APICall} of the request.
+     * @param stale   Entry being revalidated, or a NULL Reference.
+     * @return {@link TransportRequest} ready to be sent.
+     */
+    private TransportRequest prepareRequest(APICall apiCall, CachedResponse stale) {
+        String upstreamCall = apiCall.getUpstreamCall();
+        if (stale == null || !stale.hasValidators())
+            return template.newRequest(upstreamCall);
+
+        List<String> headers = new ArrayList<>(4);
+        if (stale.getETag() != null)
+            headers.addAll(List.of("If-None-Match", stale.getETag()));
+        if (stale.getLastModified() != null)
+            headers.addAll(List.of("If-Modified-Since", stale.getLastModified()));
+        return template.newRequest(upstreamCall, headers.toArray(new String[0]));
+    }
+
+    /**
+     * Private method to update {@link #cache} with an upstream response.
+     * A 304 (Not Modified) renews the stale entry and returns its response. Successful responses to requests
+     * with a {@link Projection} are projected first. Responses that can not be cached remove any previous entry,
+     * unless they are errors (ex: a 503) without "Cache-Control: no-store", which leave it as it is.
+     *
+     * @param apiCall  {@link APICall} of the request.
+     * @param response Response received from the API's host.
+     * @param stale    Entry that was revalidated, or a NULL Reference.
+     * @return HttpResponse object to give to the callers.
+     * @throws UnirestException If the response's body is not valid JSON.
+     */
+    private HttpResponse<JsonNode> storeResponse(APICall apiCall, TransportResponse response,
+                                                 CachedResponse stale) throws UnirestException {
+        long now = System.currentTimeMillis();
+        if (response.getStatus() == NOT_MODIFIED && stale != null) {
+            long lifetime = CacheDirectives.freshnessLifetime(stale.getStatus(),
+                    response.getHeaders(), cacheTtlMillis, negativeCacheTtlMillis, now);
+            long expiresAt = now + Math.max(0, lifetime);
+            cache.put(apiCall.getKey(),
+                    stale.renew(now, expiresAt, staleUntil(expiresAt, lifetime, response.getHeaders())));
+            return stale.getResponse();
+        }
+
+        Projection projection = response.getStatus() / 100 == 2 ? apiCall.getProjection() : null;
+        if (projection != null)
+            response = projection.apply(response);
+        HttpResponse<JsonNode> r = UnirestResponses.toHttpResponse(response);
+        long lifetime = CacheDirectives.freshnessLifetime(response.getStatus(), response.getHeaders(),
+                cacheTtlMillis, negativeCacheTtlMillis, now);
+        if (lifetime == CacheDirectives.NOT_STORABLE && response.getStatus() >= 400
+                && !CacheDirectives.isNoStore(response.getHeaders()))
+            return r; // A failure does not replace the entry, which may still be served stale (ex: circuit open).
+        CachedResponse entry = lifetime == CacheDirectives.NOT_STORABLE ? null
+                : new CachedResponse(response, r, now, now + lifetime,
+                staleUntil(now + lifetime, lifetime, response.getHeaders()), keepParsedResponses);
+        if (entry != null && (lifetime > 0 || entry.hasValidators()))
+            cache.put(apiCall.getKey(), entry);
+        else
+            cache.invalidate(apiCall.getKey());
         return r;
     }
 
+    /**
+     * Private method to compute until when an entry may be served stale. Entries that were never fresh
+     * (ex: "Cache-Control: no-cache") are always revalidated first.
+     *
+     * @param expiresAt Epoch milliseconds after which the entry is stale.
+     * @param lifetime  Milliseconds the entry stays fresh.
+     * @param headers   Response's headers.
+     * @return Epoch milliseconds.
+     */
+    private long staleUntil(long expiresAt, long lifetime, Map<String, List<String>> headers) {
+        if (lifetime <= 0)
+            return expiresAt;
+        return expiresAt + CacheDirectives.staleWhileRevalidate(headers, staleWhileRevalidateMillis);
+    }
+
+    /**
+     * Private static method to convert a transport's failure into {@link UnirestException}, the exception
+     * {@link APIHandler}'s public methods report.
+     *
+     * @param error Failure, possibly wrapped in a CompletionException.
+     * @return {@link UnirestException} instance.
+     */
+    private static UnirestException toUnirestException(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof UnirestException)
+            return (UnirestException) cause;
+        if (cause instanceof Exception)
+            return new UnirestException((Exception) cause);
+        return new UnirestException(cause.toString());
+    }
+
+    /**
+     * Private static method to wait for a shared call, rethrowing its failure as {@link UnirestException}.
+     *
+     * @param future Future returned by {@link RequestCoalescer#execute}.
+     * @return HttpResponse object.
+     * @throws UnirestException If the call was unsuccessful, or the thread was interrupted while waiting.
+     */
+    private static HttpResponse<JsonNode> awaitResponse(CompletableFuture<HttpResponse<JsonNode>> future)
+            throws UnirestException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnirestException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UnirestException)
+                throw (UnirestException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new UnirestException(cause.toString());
+        }
+    }
+
     /**
      * Public Static Factory method to instantiate an {@link APIHandler} object.
+     * Each Configuration Options file gets its own instance, created on the first call and shared by the
+     * following ones (See {@link #instances}). If the file could not be loaded, the instance is not kept,
+     * so a later call tries again.
      *
      * @param pathToFile String representing the path to the Configuration Options File.
      *                   Will be used on a APIConfigurationReader's instance.
-     * @return #APIConfigurationReader instance.
+     * @return #APIHandler instance.
      */
     public static APIHandler getInstance(String pathToFile) {
-        if (instance == null || !reader.getFilePath().equals(pathToFile)) {
-            reader = APIConfigurationReader.getInstance(pathToFile);
-            instance = new APIHandler();
-        }
-        return instance;
+        APIHandler handler = instances.get(pathToFile);
+        if (handler != null)
+            return handler;
+
+        handler = instances.computeIfAbsent(pathToFile,
+                path -> new APIHandler(APIConfigurationReader.getInstance(path), null));
+        if (handler.configurations == null)
+            instances.remove(pathToFile, handler);
+        return handler;
+    }
+
+    /**
+     * Public Static Factory method to instantiate an {@link APIHandler} object that makes every upstream
+     * call through the given {@link Transport} (ex: a local stub, in tests).
+     * NOTE: Unlike {@link #getInstance(String)}, each call creates a new, not shared, instance, which should be
+     * closed (See {@link #close()}) before another one is created for the same file.
+     *
+     * @param pathToFile String representing the path to the Configuration Options File.
+     *                   Will be used on a APIConfigurationReader's instance.
+     * @param transport  {@link Transport} to use.
+     * @return #APIHandler instance.
+     */
+    public static APIHandler getInstance(String pathToFile, Transport transport) {
+        if (transport == null)
+            throw new IllegalArgumentException("ERROR: Transport can not be a NULL REFERENCE.\n");
+
+        return new APIHandler(APIConfigurationReader.getInstance(pathToFile), transport);
     }
 }
@@ -0,0 +1,54 @@
+package com.dffrs.handler;
+
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+
+/**
+ * Class representing the outcome of one element of {@link APIHandler#makeAPIRequests(java.util.List)}:
+ * either the response, or the reason why the call was unsuccessful.
+ */
+public final class BatchResult {
+    private final HttpResponse<JsonNode> response;
+    private final Throwable error;
+
+    private BatchResult(HttpResponse<JsonNode> response, Throwable error) {
+        this.response = response;
+        this.error = error;
+    }
+
+    static BatchResult success(HttpResponse<JsonNode> response) {
+        return new BatchResult(response, null);
+    }
+
+    static BatchResult failure(Throwable error) {
+        return new BatchResult(null, error);
+    }
+
+    /**
+     * Public method to check if the call was successful.
+     *
+     * @return True if there is a response.
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Public method to return the call's response.
+     *
+     * @return HttpResponse object, or a NULL Reference if the call was unsuccessful.
+     */
+    public HttpResponse<JsonNode> getResponse() {
+        return response;
+    }
+
+    /**
+     * Public method to return why the call was unsuccessful.
+     *
+     * @return Throwable (usually a {@link com.mashape.unirest.http.exceptions.UnirestException}), or a
+     * NULL Reference if the call was successful.
+     */
+    public Throwable getError() {
+        return error;
+    }
+}
@@ -0,0 +1,168 @@
+package com.dffrs.handler;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Utility class to decide how long a response may be cached, based on its status and on HTTP caching
+ * headers (Cache-Control and Expires).
+ * <p>
+ * Precedence, whatever the directives' order: Cache-Control no-store, then Cache-Control no-cache, then
+ * Cache-Control max-age, then Expires, and, when none of them is present, the handler's default TTL (or the negative TTL, for 404 responses).
+ */
+final class CacheDirectives {
+    /**
+     * Value returned by {@link #freshnessLifetime(int, Map, long, long, long)} when the response must
+     * not be cached at all.
+     */
+    static final long NOT_STORABLE = -1;
+
+    /**
+     * Status codes that may be cached without explicit caching headers.
+     */
+    private static final int OK = 200;
+    private static final int NOT_FOUND = 404;
+
+    private CacheDirectives() {
+    }
+
+    /**
+     * Static method to compute, in milliseconds, how long a response stays fresh.
+     *
+     * @param status             Response's status code.
+     * @param headers            Response's headers.
+     * @param defaultTtlMillis   Lifetime used for successful responses without caching headers.
+     * @param negativeTtlMillis  Lifetime used for 404 responses without caching headers.
+     * @param now                Current epoch milliseconds.
+     * @return Lifetime in milliseconds, or {@link #NOT_STORABLE}.
+     */
+    static long freshnessLifetime(int status, Map<String, List<String>> headers, long defaultTtlMillis,
+                                  long negativeTtlMillis, long now) {
+        if (status != OK && status != NOT_FOUND)
+            return NOT_STORABLE;
+
+        // Every directive is read first, so their order in the header does not matter.
+        Map<String, String> cacheControl = cacheControl(headers);
+        if (cacheControl.containsKey("no-store"))
+            return NOT_STORABLE;
+        if (cacheControl.containsKey("no-cache"))
+            return 0;
+        String maxAge = cacheControl.get("max-age");
+        if (maxAge != null) {
+            try {
+                return Math.max(0, Long.parseLong(maxAge) * 1000);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        String expires = firstHeader(headers, "Expires");
+        if (expires != null) {
+            long expiresAt = parseDate(expires);
+            if (expiresAt < 0)
+                return 0; // Invalid dates, like "0", mean already expired.
+            String date = firstHeader(headers, "Date");
+            long reference = date == null || parseDate(date) < 0 ? now : parseDate(date);
+            return Math.max(0, expiresAt - reference);
+        }
+
+        return status == NOT_FOUND ? negativeTtlMillis : defaultTtlMillis;
+    }
+
+    /**
+     * Static method to check if a response forbids any copy of it to be kept (Cache-Control no-store).
+     *
+     * @param headers Response's headers.
+     * @return True if the response has the no-store directive.
+     */
+    static boolean isNoStore(Map<String, List<String>> headers) {
+        return cacheControl(headers).containsKey("no-store");
+    }
+
+    /**
+     * Static method to compute, in milliseconds, for how long an expired response may still be served while it
+     * is refreshed in the background, from the Cache-Control stale-while-revalidate directive (RFC 5861).
+     * must-revalidate and no-cache always win over it, whatever the directives' order.
+     *
+     * @param headers       Response's headers.
+     * @param defaultMillis Window used when the directive is not present.
+     * @return Window in milliseconds (0 if stale responses must not be served).
+     */
+    static long staleWhileRevalidate(Map<String, List<String>> headers, long defaultMillis) {
+        Map<String, String> cacheControl = cacheControl(headers);
+        if (cacheControl.containsKey("must-revalidate") || cacheControl.containsKey("no-cache"))
+            return 0;
+        String window = cacheControl.get("stale-while-revalidate");
+        if (window == null)
+            return defaultMillis;
+        try {
+            return Math.max(0, Long.parseLong(window) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Static method to return the first value of a header, ignoring the header name's case.
+     *
+     * @param headers Response's headers.
+     * @param name    Header's name.
+     * @return Header's value, or a NULL Reference if it is not present.
+     */
+    static String firstHeader(Map<String, List<String>> headers, String name) {
+        if (headers == null)
+            return null;
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty())
+                return entry.getValue().get(0);
+        }
+        return null;
+    }
+
+    /**
+     * Private static method to read every Cache-Control directive, from every Cache-Control header.
+     *
+     * @return Map of each directive's name (lower case) to its unquoted value ("" if it has none). When a
+     * directive is repeated, its first value is kept.
+     */
+    private static Map<String, String> cacheControl(Map<String, List<String>> headers) {
+        Map<String, String> directives = new HashMap<>();
+        if (headers == null)
+            return directives;
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (!"Cache-Control".equalsIgnoreCase(entry.getKey()) || entry.getValue() == null)
+                continue;
+            for (String value : entry.getValue()) {
+                for (String directive : value.split(",")) {
+                    String d = directive.trim().toLowerCase(Locale.ROOT);
+                    int separator = d.indexOf('=');
+                    String name = separator < 0 ? d : d.substring(0, separator).trim();
+                    directives.putIfAbsent(name, separator < 0 ? "" : unquote(d.substring(separator + 1).trim()));
+                }
+            }
+        }
+        return directives;
+    }
+
+    /**
+     * Private static method to parse an HTTP date (RFC 1123).
+     *
+     * @return Epoch milliseconds, or -1 if the date is invalid.
+     */
+    private static long parseDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    private static String unquote(String value) {
+        return value.replace("\"", "");
+    }
+}
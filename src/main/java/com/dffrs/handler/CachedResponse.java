@@ -0,0 +1,251 @@
+package com.dffrs.handler;
+
+import com.dffrs.transport.TransportResponse;
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import com.mashape.unirest.http.exceptions.UnirestException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Entry kept inside {@link APIHandler}'s cache. It keeps the raw response (status, headers and body bytes),
+ * when the entry stops being fresh and the validators (ETag, Last-Modified) needed to revalidate it with a
+ * conditional request.
+ * <p>
+ * Once expired, an entry may still be served for a while (its stale-while-revalidate window), while a background
+ * refresh replaces it. Each entry counts its hits, so the most read entries are refreshed first.
+ * <p>
+ * The parsed HttpResponse is only built when it is first needed. If the entry is created with
+ * keepParsed set to false, it is never kept, and each access parses the raw body again, trading CPU for heap.
+ * Otherwise, once it is kept, the raw body is dropped, and {@link #getRaw()} encodes it again from the parsed
+ * response, which only happens when the entry is written to another tier or streamed.
+ */
+final class CachedResponse {
+    private static final AtomicIntegerFieldUpdater<CachedResponse> HITS =
+            AtomicIntegerFieldUpdater.newUpdater(CachedResponse.class, "hits");
+    private static final AtomicIntegerFieldUpdater<CachedResponse> REFRESH_SCHEDULED =
+            AtomicIntegerFieldUpdater.newUpdater(CachedResponse.class, "refreshScheduled");
+
+    private final int status;
+    private final Map<String, List<String>> headers;
+    /**
+     * Raw body, or a NULL Reference once the parsed response is kept.
+     */
+    private volatile byte[] body;
+    /**
+     * Epoch milliseconds at which the response was received (or last revalidated).
+     */
+    private final long storedAt;
+    /**
+     * Epoch milliseconds after which the entry must be revalidated before being used.
+     */
+    private final long expiresAt;
+    /**
+     * Epoch milliseconds until which the entry may be served stale, while it is refreshed in the background.
+     */
+    private final long staleUntil;
+    private final String eTag;
+    private final String lastModified;
+    private final boolean keepParsed;
+    /**
+     * Parsed response, once built, if {@link #keepParsed} is true.
+     */
+    private volatile HttpResponse<JsonNode> parsed;
+    /**
+     * Number of times the entry was used. Only updated through {@link #HITS}.
+     */
+    private volatile int hits;
+    /**
+     * 1 while a background refresh of the entry is scheduled, 0 otherwise. Only updated through
+     * {@link #REFRESH_SCHEDULED}.
+     */
+    private volatile int refreshScheduled;
+
+    /**
+     * Construct a {@link CachedResponse} instance, reading the validators from the response's headers.
+     *
+     * @param raw        Raw response to cache.
+     * @param parsed     Parsed response, if it was already built, or a NULL Reference.
+     * @param storedAt   Epoch milliseconds at which the response was received.
+     * @param expiresAt  Epoch milliseconds after which the entry is stale.
+     * @param staleUntil Epoch milliseconds until which the entry may be served stale (at least expiresAt).
+     * @param keepParsed True to keep the parsed response, once built.
+     */
+    CachedResponse(TransportResponse raw, HttpResponse<JsonNode> parsed, long storedAt, long expiresAt,
+                   long staleUntil, boolean keepParsed) {
+        this(raw.getStatus(), raw.getHeaders(), raw.getBody(), parsed, storedAt, expiresAt, staleUntil, keepParsed);
+    }
+
+    /**
+     * Private constructor, shared with {@link #renew(long, long, long)}, which may no longer have the raw body.
+     */
+    private CachedResponse(int status, Map<String, List<String>> headers, byte[] body,
+                           HttpResponse<JsonNode> parsed, long storedAt, long expiresAt, long staleUntil,
+                           boolean keepParsed) {
+        this.status = status;
+        this.headers = headers;
+        this.storedAt = storedAt;
+        this.expiresAt = expiresAt;
+        this.staleUntil = Math.max(expiresAt, staleUntil);
+        this.eTag = CacheDirectives.firstHeader(headers, "ETag");
+        this.lastModified = CacheDirectives.firstHeader(headers, "Last-Modified");
+        this.keepParsed = keepParsed;
+        this.parsed = keepParsed ? parsed : null;
+        this.body = this.parsed == null ? body : null;
+    }
+
+    /**
+     * Method to return the parsed response, building it if needed.
+     *
+     * @return HttpResponse object.
+     */
+    HttpResponse<JsonNode> getResponse() {
+        HttpResponse<JsonNode> r = parsed;
+        if (r != null)
+            return r;
+
+        try {
+            r = UnirestResponses.toHttpResponse(getRaw());
+        } catch (UnirestException e) {
+            // The body was parsed successfully before being cached, so this should never happen.
+            throw new IllegalStateException("ERROR: Cached response could not be parsed.\n", e);
+        }
+        if (keepParsed) {
+            // Set before dropping the body, so a concurrent getRaw() always finds one of them.
+            parsed = r;
+            body = null;
+        }
+        return r;
+    }
+
+    /**
+     * Method to return the raw response. If only the parsed response is kept, its body is encoded again.
+     *
+     * @return {@link TransportResponse} object.
+     */
+    TransportResponse getRaw() {
+        byte[] b = body;
+        if (b == null)
+            b = UnirestResponses.toBody(parsed, CacheDirectives.firstHeader(headers, "Content-Type"));
+        return new TransportResponse(status, headers, b);
+    }
+
+    Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    long getStoredAt() {
+        return storedAt;
+    }
+
+    long getExpiresAt() {
+        return expiresAt;
+    }
+
+    long getStaleUntil() {
+        return staleUntil;
+    }
+
+    int getHits() {
+        return hits;
+    }
+
+    /**
+     * Method to count a use of the entry.
+     *
+     * @return Number of uses, including this one.
+     */
+    int recordHit() {
+        int h = hits;
+        // Saturates instead of overflowing: past this count, the order among hot entries hardly matters.
+        return h == Integer.MAX_VALUE ? h : HITS.incrementAndGet(this);
+    }
+
+    /**
+     * Method to claim the entry's background refresh, so only the first of the reads that need it schedules it.
+     *
+     * @return True if no refresh of the entry was scheduled, and the caller must schedule it.
+     */
+    boolean markRefreshScheduled() {
+        return refreshScheduled == 0 && REFRESH_SCHEDULED.compareAndSet(this, 0, 1);
+    }
+
+    /**
+     * Procedure to release the entry's background refresh, once it finished without replacing the entry (or was
+     * not scheduled), so a later read schedules it again.
+     */
+    void clearRefreshScheduled() {
+        refreshScheduled = 0;
+    }
+
+    String getETag() {
+        return eTag;
+    }
+
+    String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Method to check if the entry can still be used without contacting the API's host.
+     *
+     * @param now Current epoch milliseconds.
+     * @return True if the entry has not expired.
+     */
+    boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+
+    /**
+     * Method to check if a fresh entry has lived through a given part of its lifetime, and should be refreshed
+     * before it expires.
+     *
+     * @param now      Current epoch milliseconds.
+     * @param fraction Part of the lifetime, between 0 and 1.
+     * @return True if the entry is past that part of its lifetime.
+     */
+    boolean isNearExpiry(long now, double fraction) {
+        return now >= storedAt + (long) ((expiresAt - storedAt) * fraction);
+    }
+
+    /**
+     * Method to check if an entry can still be served while it is refreshed.
+     *
+     * @param now Current epoch milliseconds.
+     * @return True if the entry has not left its stale-while-revalidate window.
+     */
+    boolean isServableStale(long now) {
+        return now < staleUntil;
+    }
+
+    /**
+     * Method to check if the entry can be revalidated with a conditional request.
+     *
+     * @return True if the response had an ETag or a Last-Modified header.
+     */
+    boolean hasValidators() {
+        return eTag != null || lastModified != null;
+    }
+
+    /**
+     * Method to return a copy of this entry with a new expiry. Used after a 304 (Not Modified) response.
+     * The copy keeps the hits counted so far.
+     *
+     * @param now           Epoch milliseconds at which the entry was revalidated.
+     * @param newExpiresAt  Epoch milliseconds after which the copy is stale.
+     * @param newStaleUntil Epoch milliseconds until which the copy may be served stale.
+     * @return {@link CachedResponse} instance.
+     */
+    CachedResponse renew(long now, long newExpiresAt, long newStaleUntil) {
+        CachedResponse copy = new CachedResponse(status, headers, body, parsed, now, newExpiresAt, newStaleUntil,
+                keepParsed);
+        copy.hits = hits;
+        return copy;
+    }
+}
@@ -0,0 +1,100 @@
+package com.dffrs.handler;
+
+import com.dffrs.cache.ResponseCodec;
+import com.dffrs.transport.TransportResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link ResponseCodec} for {@link CachedResponse} entries. Only the raw response (status, headers and body)
+ * and its lifetime are written. The parsed response is rebuilt, when needed, after decoding.
+ * <p>
+ * Layout: version (negative int), status (int), storedAt, expiresAt and staleUntil (longs), number of headers
+ * (int), then, for each header, its name (UTF), number of values (int) and each value (UTF), and, at last, the
+ * body's length (int) and bytes. Records written before the version was added start with the status (always
+ * positive) and only have expiresAt. They are still read, as entries without a stale-while-revalidate window.
+ */
+final class CachedResponseCodec implements ResponseCodec<CachedResponse> {
+    private static final int VERSION = -2;
+
+    private final boolean keepParsed;
+
+    /**
+     * Construct a {@link CachedResponseCodec} instance.
+     *
+     * @param keepParsed Value given to every decoded {@link CachedResponse}.
+     */
+    CachedResponseCodec(boolean keepParsed) {
+        this.keepParsed = keepParsed;
+    }
+
+    @Override
+    public byte[] encode(CachedResponse value) throws IOException {
+        TransportResponse raw = value.getRaw();
+        byte[] body = raw.getBody();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(VERSION);
+            out.writeInt(raw.getStatus());
+            out.writeLong(value.getStoredAt());
+            out.writeLong(value.getExpiresAt());
+            out.writeLong(value.getStaleUntil());
+            out.writeInt(raw.getHeaders().size());
+            for (Map.Entry<String, List<String>> header : raw.getHeaders().entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeInt(header.getValue().size());
+                for (String headerValue : header.getValue()) {
+                    out.writeUTF(headerValue);
+                }
+            }
+            out.writeInt(body.length);
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public CachedResponse decode(byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int status = in.readInt();
+            long storedAt;
+            long expiresAt;
+            long staleUntil;
+            if (status == VERSION) {
+                status = in.readInt();
+                storedAt = in.readLong();
+                expiresAt = in.readLong();
+                staleUntil = in.readLong();
+            } else if (status >= 0) {
+                expiresAt = in.readLong();
+                storedAt = expiresAt;
+                staleUntil = expiresAt;
+            } else {
+                throw new IOException("ERROR: Unknown cached response version " + status + ".\n");
+            }
+            int headerCount = in.readInt();
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (int i = 0; i != headerCount; i++) {
+                String name = in.readUTF();
+                int valueCount = in.readInt();
+                List<String> values = new ArrayList<>(valueCount);
+                for (int j = 0; j != valueCount; j++) {
+                    values.add(in.readUTF());
+                }
+                headers.put(name, values);
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new CachedResponse(new TransportResponse(status, headers, body), null, storedAt, expiresAt,
+                    staleUntil, keepParsed);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.dffrs.handler;
+
+/**
+ * Enumerator to list how {@link APIHandler} runs upstream calls that do not block the caller
+ * (See {@link APIHandler#makeAPIRequestAsync(APIHandler.Request)} and {@link APIHandler#makeAPIRequests(java.util.List)}).
+ * Each mode has an id, which is the value expected inside the Configuration Options file
+ * (ex: execution_mode -> virtual).
+ */
+public enum ExecutionMode {
+    /**
+     * Calls are sent through the transport's non-blocking client, and completed on its threads.
+     */
+    PLATFORM("platform"),
+    /**
+     * Each call runs the blocking client on its own virtual thread. Requires Java 21, or newer, at runtime.
+     */
+    VIRTUAL("virtual");
+
+    private final String modeIdentifier;
+
+    ExecutionMode(String id) {
+        this.modeIdentifier = id;
+    }
+
+    public String getModeIdentifier() {
+        return modeIdentifier;
+    }
+
+    /**
+     * Public static method to map an id to its {@link ExecutionMode}.
+     *
+     * @param id String representing the mode (case insensitive).
+     * @return Matched {@link ExecutionMode}.
+     * @throws IllegalArgumentException If no mode matches the id.
+     */
+    public static ExecutionMode fromIdentifier(String id) {
+        for (ExecutionMode mode : values()) {
+            if (mode.modeIdentifier.equalsIgnoreCase(id))
+                return mode;
+        }
+        throw new IllegalArgumentException("ERROR: Unknown execution mode (" + id + ").\n");
+    }
+}
@@ -0,0 +1,198 @@
+package com.dffrs.handler;
+
+import com.dffrs.transport.TransportResponse;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable set of JSON pointers (RFC 6901, ex: "/code" or "/results/0/name") a request reads from its
+ * response. Only the values they point to are cached, in the same structure (ex: {"results":[{"name":"..."}]}),
+ * so entries take less memory, and missing values are left out.
+ * <p>
+ * A projection is part of its request's cache key, after a space (which an encoded URL never holds), so each
+ * projection of the same call has its own entry: "obd2/P0001 %2Fcode%2C%2Fdefinition". Pointers are sorted, and
+ * pointers inside another one are dropped, so the same fields always give the same key.
+ */
+final class Projection {
+    /**
+     * Character between the call and the projection, in a cache key.
+     */
+    static final char SEPARATOR = ' ';
+
+    private final String[][] tokens;
+    private final String keySuffix;
+
+    private Projection(String[][] tokens, String keySuffix) {
+        this.tokens = tokens;
+        this.keySuffix = keySuffix;
+    }
+
+    /**
+     * Static method to compile a list of JSON pointers.
+     *
+     * @param pointers List of JSON pointers.
+     * @return {@link Projection} instance, or a NULL Reference if the pointers select the whole document
+     * (ex: the list is empty, or holds "").
+     * @throws IllegalArgumentException If a pointer is a NULL Reference, or does not start with "/".
+     */
+    static Projection compile(List<String> pointers) {
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String pointer : pointers) {
+            if (pointer == null)
+                throw new IllegalArgumentException("ERROR: JSON pointer can not be a NULL REFERENCE.\n");
+            if (pointer.isEmpty())
+                return null;
+            if (pointer.charAt(0) != '/')
+                throw new IllegalArgumentException("ERROR: " + pointer + " is not a JSON pointer.\n");
+            sorted.add(pointer);
+        }
+        if (sorted.isEmpty())
+            return null;
+
+        List<String> kept = new ArrayList<>(sorted.size());
+        List<String[]> tokens = new ArrayList<>(sorted.size());
+        StringBuilder keySuffix = new StringBuilder().append(SEPARATOR);
+        for (String pointer : sorted) {
+            // A pointer holding another one sorts before it, but not always right before it (ex: "/a", "/a-b",
+            // "/a/b"), so each pointer is checked against every kept one.
+            if (isInside(pointer, kept))
+                continue;
+            kept.add(pointer);
+            tokens.add(parse(pointer));
+            if (keySuffix.length() != 1)
+                keySuffix.append(',');
+            QueryEncoder.appendEncoded(keySuffix, pointer);
+        }
+        return new Projection(tokens.toArray(new String[0][]), keySuffix.toString());
+    }
+
+    /**
+     * Method to return what is appended to a call's key, to tell this projection apart.
+     *
+     * @return String starting with {@link #SEPARATOR}.
+     */
+    String getKeySuffix() {
+        return keySuffix;
+    }
+
+    /**
+     * Method to keep only the projected values of a response's body. The status and headers are kept, except
+     * Content-Length.
+     *
+     * @param response {@link TransportResponse} received from the API's host.
+     * @return Projected {@link TransportResponse}, or the same one if its body is not a JSON object or array.
+     */
+    TransportResponse apply(TransportResponse response) {
+        Object document;
+        try {
+            document = new JSONTokener(new String(response.getBody(), StandardCharsets.UTF_8)).nextValue();
+        } catch (JSONException e) {
+            return response;
+        }
+        if (!(document instanceof JSONObject) && !(document instanceof JSONArray))
+            return response;
+
+        Object projected = document instanceof JSONObject ? new JSONObject() : new JSONArray();
+        for (String[] pointer : tokens) {
+            copy(document, projected, pointer);
+        }
+
+        Map<String, List<String>> headers = new LinkedHashMap<>(response.getHeaders());
+        headers.keySet().removeIf(name -> "Content-Length".equalsIgnoreCase(name));
+        return new TransportResponse(response.getStatus(), headers,
+                projected.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Private static procedure to copy the value a pointer points to, creating the objects and arrays holding it.
+     * Nothing is copied if the value is missing.
+     */
+    private static void copy(Object source, Object target, String[] pointer) {
+        for (int i = 0; i != pointer.length; i++) {
+            Object value = get(source, pointer[i]);
+            if (value == null)
+                return;
+            if (i == pointer.length - 1) {
+                put(target, pointer[i], value);
+                return;
+            }
+            if (!(value instanceof JSONObject) && !(value instanceof JSONArray))
+                return; // The pointer goes through a scalar.
+
+            Object next = get(target, pointer[i]);
+            if (!(next instanceof JSONObject) && !(next instanceof JSONArray)) {
+                next = value instanceof JSONObject ? new JSONObject() : new JSONArray();
+                put(target, pointer[i], next);
+            }
+            source = value;
+            target = next;
+        }
+    }
+
+    /**
+     * Private static method to return a member of an object, or an element of an array.
+     *
+     * @return Value, or a NULL Reference if it is missing.
+     */
+    private static Object get(Object container, String token) {
+        if (container instanceof JSONObject)
+            return ((JSONObject) container).opt(token);
+        int index = index(token);
+        return index < 0 ? null : ((JSONArray) container).opt(index);
+    }
+
+    private static void put(Object container, String token, Object value) {
+        if (container instanceof JSONObject)
+            ((JSONObject) container).put(token, value);
+        else
+            ((JSONArray) container).put(index(token), value); // Missing elements before it become null.
+    }
+
+    /**
+     * Private static method to read an array index.
+     *
+     * @return Index, or -1 if the token is not one (ex: "-", or a member's name).
+     */
+    private static int index(String token) {
+        if (token.isEmpty() || token.length() > 9 || (token.length() > 1 && token.charAt(0) == '0'))
+            return -1;
+        for (int i = 0; i != token.length(); i++) {
+            if (token.charAt(i) < '0' || token.charAt(i) > '9')
+                return -1;
+        }
+        return Integer.parseInt(token);
+    }
+
+    /**
+     * Private static method to check if a pointer points inside the value of one of the given pointers.
+     */
+    private static boolean isInside(String pointer, List<String> pointers) {
+        for (String container : pointers) {
+            if (pointer.length() > container.length() && pointer.startsWith(container)
+                    && pointer.charAt(container.length()) == '/')
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Private static method to split a pointer into its reference tokens, unescaping "~1" ("/") and "~0" ("~").
+     */
+    private static String[] parse(String pointer) {
+        String[] tokens = pointer.substring(1).split("/", -1);
+        for (int i = 0; i != tokens.length; i++) {
+            if (tokens[i].indexOf('~') >= 0)
+                tokens[i] = tokens[i].replace("~1", "/").replace("~0", "~");
+        }
+        return tokens;
+    }
+}
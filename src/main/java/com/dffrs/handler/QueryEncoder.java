@@ -0,0 +1,221 @@
+package com.dffrs.handler;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Utility class to build URL queries ("?param=value&amp;param=value") and paths ("value/value"). Query values are
+ * percent-encoded exactly like {@link java.net.URLEncoder#encode(String, java.nio.charset.Charset)} with UTF-8,
+ * and path values like RFC 3986 path segments (a space is "%20", and "/" is encoded too), but straight into a
+ * single buffer, and values made only of safe characters are copied as they are.
+ * <p>
+ * Queries are canonical, so requests that only differ in their params' order, or in how a param's name was
+ * written, share a cache entry: params are sorted by name (params with the same name keep their order), and
+ * names are encoded like values, after decoding the escapes they already had (ex: "a b", "a+b" and "a%20b" all
+ * become "a+b").
+ * <p>
+ * Each query is built in a single buffer, sized up front for its params and values, so building it allocates
+ * little more than the resulting String. The buffer is not kept per thread: with a virtual thread per call
+ * (See {@link ExecutionMode#VIRTUAL}), each thread would allocate its own and throw it away.
+ */
+final class QueryEncoder {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private QueryEncoder() {
+    }
+
+    /**
+     * Static method to build an encoded and canonical URL query.
+     *
+     * @param params List containing all params needed for the URL.
+     * @param values List containing all the elements to match the params's.
+     * @return String representing the final and encoded query, or an empty String if there are no params.
+     */
+    static String buildQuery(List<String> params, List<String> values) {
+        if (params.isEmpty())
+            return "";
+
+        String[] names = null; // Only copied if a name is not canonical yet.
+        for (int i = 0; i != params.size(); i++) {
+            String name = canonicalName(params.get(i));
+            if (name != params.get(i)) {
+                if (names == null)
+                    names = params.toArray(new String[0]);
+                names[i] = name;
+            }
+        }
+        int[] order = sortedOrder(names == null ? params : List.of(names));
+
+        StringBuilder query = buffer(params, values);
+        query.append('?');
+        for (int i = 0; i != params.size(); i++) {
+            int index = order == null ? i : order[i];
+            if (i != 0)
+                query.append('&');
+            query.append(names == null ? params.get(index) : names[index]).append('=');
+            appendEncoded(query, values.get(index));
+        }
+        return query.toString();
+    }
+
+    /**
+     * Static method to build an encoded URL path, one segment per value.
+     *
+     * @param values List containing the path's values.
+     * @return String representing the encoded values, joined by "/".
+     */
+    static String buildPath(List<String> values) {
+        StringBuilder path = buffer(List.of(), values);
+        for (int i = 0; i != values.size(); i++) {
+            if (i != 0)
+                path.append('/');
+            appendPathSegment(path, values.get(i));
+        }
+        return path.toString();
+    }
+
+    /**
+     * Private static method to return a param's name, encoded like a value. Names already (partially) encoded are
+     * decoded first, so each name has a single form.
+     *
+     * @return Same String, if it was already canonical, or its canonical form.
+     */
+    private static String canonicalName(String name) {
+        int i = 0;
+        while (i != name.length() && isSafe(name.charAt(i), true)) {
+            i++;
+        }
+        if (i == name.length())
+            return name;
+
+        String decoded;
+        try {
+            decoded = URLDecoder.decode(name, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            decoded = name; // Not an escape (ex: "100%"), so the '%' itself is encoded.
+        }
+        StringBuilder out = new StringBuilder(name.length() + 8);
+        appendEncoded(out, decoded);
+        return out.toString();
+    }
+
+    /**
+     * Private static method to sort params by name, keeping the order of params with the same name.
+     *
+     * @return Indexes of the params, in order, or a NULL Reference if they are already sorted.
+     */
+    private static int[] sortedOrder(List<String> names) {
+        int size = names.size();
+        int i = 1;
+        while (i < size && names.get(i - 1).compareTo(names.get(i)) <= 0) {
+            i++;
+        }
+        if (i >= size)
+            return null;
+
+        // Insertion sort: queries have few params, and it is stable.
+        int[] order = new int[size];
+        for (int j = 0; j != size; j++) {
+            int k = j;
+            while (k != 0 && names.get(order[k - 1]).compareTo(names.get(j)) > 0) {
+                order[k] = order[k - 1];
+                k--;
+            }
+            order[k] = j;
+        }
+        return order;
+    }
+
+    /**
+     * Static procedure to append a query value, percent-encoded, to a buffer.
+     *
+     * @param out   Buffer to append to.
+     * @param value String representing the value to encode.
+     */
+    static void appendEncoded(StringBuilder out, String value) {
+        appendEncoded(out, value, true);
+    }
+
+    /**
+     * Static procedure to append a path segment, percent-encoded, to a buffer.
+     *
+     * @param out   Buffer to append to.
+     * @param value String representing the segment to encode.
+     */
+    static void appendPathSegment(StringBuilder out, String value) {
+        appendEncoded(out, value, false);
+    }
+
+    /**
+     * Private static procedure to percent-encode a value, as a query value (form is true) or a path segment.
+     */
+    private static void appendEncoded(StringBuilder out, String value, boolean form) {
+        int length = value.length();
+        int i = 0;
+        while (i != length && isSafe(value.charAt(i), form)) {
+            i++;
+        }
+        if (i == length) { // Nothing to encode.
+            out.append(value);
+            return;
+        }
+
+        out.append(value, 0, i);
+        while (i != length) {
+            char c = value.charAt(i++);
+            if (isSafe(c, form)) {
+                out.append(c);
+            } else if (c == ' ' && form) {
+                out.append('+');
+            } else if (c < 0x80) {
+                appendByte(out, c);
+            } else if (c < 0x800) {
+                appendByte(out, 0xC0 | (c >> 6));
+                appendByte(out, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i != length && Character.isLowSurrogate(value.charAt(i))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(i++));
+                appendByte(out, 0xF0 | (codePoint >> 18));
+                appendByte(out, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendByte(out, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendByte(out, 0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates can not be written as UTF-8, so they become '?', like in String.getBytes.
+                appendByte(out, '?');
+            } else {
+                appendByte(out, 0xE0 | (c >> 12));
+                appendByte(out, 0x80 | ((c >> 6) & 0x3F));
+                appendByte(out, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Static method to check if a character is kept as is by {@link java.net.URLEncoder} (form is true), or in
+     * an RFC 3986 path segment (unreserved characters, sub-delimiters, ':' and '@').
+     */
+    private static boolean isSafe(char c, boolean form) {
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '_' || c == '.' || c == '*')
+            return true;
+        return !form && (c == '~' || c == '!' || c == '$' || c == '&' || c == '\'' || c == '(' || c == ')'
+                || c == '+' || c == ',' || c == ';' || c == '=' || c == ':' || c == '@');
+    }
+
+    private static void appendByte(StringBuilder out, int b) {
+        out.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+    }
+
+    /**
+     * Private static method to return a new buffer, large enough for most queries (or paths, if params is empty)
+     * with these params and values, so it is rarely grown.
+     */
+    private static StringBuilder buffer(List<String> params, List<String> values) {
+        int estimate = 1;
+        for (int i = 0; i != values.size(); i++) {
+            estimate += (params.isEmpty() ? 0 : params.get(i).length()) + values.get(i).length() + 2;
+        }
+        // Some room for escapes, which take 3 characters each.
+        return new StringBuilder(estimate + (estimate >> 2));
+    }
+}
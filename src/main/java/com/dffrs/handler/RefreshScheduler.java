@@ -0,0 +1,268 @@
+package com.dffrs.handler;
+
+import com.dffrs.transport.TokenBucket;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded scheduler for background refreshes of cached entries (refresh-ahead and stale-while-revalidate).
+ * Keys waiting to be refreshed are kept once each, and the most read ones go first. At most a given number of
+ * refreshes are in progress, and, optionally, they are started no faster than a rate budget, so refreshes never
+ * take the capacity needed by callers waiting for a response.
+ * <p>
+ * It has no threads of its own: refreshes are started by the thread scheduling them, or by the one finishing
+ * the previous refresh, and the refresher is expected not to block (ex: a non-blocking upstream call).
+ * When the waiting keys exceed the capacity, the least read one is dropped, and it is refreshed on a later read.
+ *
+ * @param <K> Type of the keys.
+ */
+final class RefreshScheduler<K> {
+    /**
+     * Waiting keys ordered by hits (most read first), then by arrival.
+     */
+    private static final Comparator<Task<?>> PRIORITY = Comparator.comparingInt((Task<?> t) -> -t.hits)
+            .thenComparingLong(t -> t.sequence);
+
+    private final Function<K, CompletableFuture<?>> refresher;
+    private final int maxConcurrency;
+    private final int capacity;
+    /**
+     * Rate budget, or a NULL Reference if refreshes are only bounded by {@link #maxConcurrency}.
+     */
+    private final TokenBucket budget;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Task<K>> queue = new TreeSet<>(PRIORITY);
+    /**
+     * Every key waiting or being refreshed.
+     */
+    private final Map<K, Task<K>> scheduled = new HashMap<>();
+    private int running;
+    private long sequence;
+    /**
+     * True while a delayed drain is waiting for {@link #budget}.
+     */
+    private boolean drainPending;
+
+    private final LongAdder started = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Construct a {@link RefreshScheduler} instance.
+     *
+     * @param refresher      Function starting a key's refresh and returning its future. Failures are ignored.
+     * @param maxConcurrency Maximum number of refreshes in progress.
+     * @param capacity       Maximum number of keys waiting.
+     * @param budget         {@link TokenBucket} each refresh takes a token from, or a NULL Reference.
+     * @throws IllegalArgumentException If refresher is a NULL Reference, or maxConcurrency or capacity are
+     *                                  not positive.
+     */
+    RefreshScheduler(Function<K, CompletableFuture<?>> refresher, int maxConcurrency, int capacity,
+                     TokenBucket budget) {
+        if (refresher == null)
+            throw new IllegalArgumentException("ERROR: Refresher can not be a NULL REFERENCE.\n");
+        if (maxConcurrency <= 0 || capacity <= 0)
+            throw new IllegalArgumentException("ERROR: Refresh concurrency and capacity must be greater than zero.\n");
+
+        this.refresher = refresher;
+        this.maxConcurrency = maxConcurrency;
+        this.capacity = capacity;
+        this.budget = budget;
+    }
+
+    /**
+     * Method to ask for a key to be refreshed. A key already waiting only has its priority raised, and a key
+     * being refreshed is ignored.
+     *
+     * @param key  Key to refresh.
+     * @param hits Number of times the key's entry was read, used as its priority.
+     * @return True if the key was added to the waiting keys.
+     */
+    boolean schedule(K key, int hits) {
+        return schedule(key, hits, null);
+    }
+
+    /**
+     * Method to ask for a key to be refreshed, like {@link #schedule(Object, int)}, and be told when it is no
+     * longer waiting nor being refreshed (ex: to reset a flag letting callers skip this method meanwhile).
+     *
+     * @param key    Key to refresh.
+     * @param hits   Number of times the key's entry was read, used as its priority.
+     * @param onDone Procedure run once the refresh finishes, or the key is dropped, if this call added the key.
+     *               It may be a NULL Reference.
+     * @return True if the key was added to the waiting keys.
+     */
+    boolean schedule(K key, int hits, Runnable onDone) {
+        Task<K> evicted = null;
+        lock.lock();
+        try {
+            Task<K> task = scheduled.get(key);
+            if (task != null) {
+                if (task.waiting && hits > task.hits) {
+                    queue.remove(task);
+                    task.hits = hits;
+                    queue.add(task);
+                }
+                return false;
+            }
+            if (queue.size() >= capacity) {
+                Task<K> last = queue.last();
+                if (last.hits >= hits) {
+                    dropped.increment();
+                    return false;
+                }
+                queue.pollLast();
+                scheduled.remove(last.key);
+                dropped.increment();
+                evicted = last;
+            }
+            task = new Task<>(key, hits, sequence++, onDone);
+            queue.add(task);
+            scheduled.put(key, task);
+        } finally {
+            lock.unlock();
+        }
+        if (evicted != null)
+            evicted.done();
+        drain();
+        return true;
+    }
+
+    /**
+     * Method to return the number of keys waiting or being refreshed.
+     *
+     * @return Number of keys.
+     */
+    int pendingCount() {
+        lock.lock();
+        try {
+            return scheduled.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Method to return the number of refreshes started so far.
+     *
+     * @return Number of refreshes.
+     */
+    long getStartedCount() {
+        return started.sum();
+    }
+
+    /**
+     * Method to return the number of keys dropped because too many were waiting.
+     *
+     * @return Number of keys.
+     */
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Private procedure to start waiting refreshes, while the concurrency limit and the budget allow it.
+     * When the budget is empty, it runs again once a token is available.
+     */
+    private void drain() {
+        while (true) {
+            Task<K> task;
+            lock.lock();
+            try {
+                if (drainPending || running >= maxConcurrency || queue.isEmpty())
+                    return;
+                long wait = budget == null ? 0 : budget.tryReserve();
+                if (wait > 0) {
+                    drainPending = true;
+                    CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(this::drainLater);
+                    return;
+                }
+                task = queue.pollFirst();
+                task.waiting = false;
+                running++;
+            } finally {
+                lock.unlock();
+            }
+            start(task);
+        }
+    }
+
+    private void drainLater() {
+        lock.lock();
+        try {
+            drainPending = false;
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * Private procedure to run a refresh, releasing its slot once it finishes.
+     */
+    private void start(Task<K> task) {
+        started.increment();
+        CompletableFuture<?> future;
+        try {
+            future = refresher.apply(task.key);
+        } catch (RuntimeException e) {
+            future = null;
+        }
+        if (future == null) {
+            finish(task);
+            return;
+        }
+        future.whenComplete((result, error) -> finish(task));
+    }
+
+    private void finish(Task<K> task) {
+        lock.lock();
+        try {
+            running--;
+            scheduled.remove(task.key, task);
+        } finally {
+            lock.unlock();
+        }
+        task.done();
+        drain();
+    }
+
+    /**
+     * Key waiting or being refreshed. Its mutable fields are guarded by {@link #lock}.
+     */
+    private static final class Task<K> {
+        private final K key;
+        private final long sequence;
+        private final Runnable onDone;
+        private int hits;
+        private boolean waiting = true;
+
+        private Task(K key, int hits, long sequence, Runnable onDone) {
+            this.key = key;
+            this.hits = hits;
+            this.sequence = sequence;
+            this.onDone = onDone;
+        }
+
+        /**
+         * Procedure to run {@link #onDone}, outside {@link #lock}. Its failures are ignored, like the refresh's.
+         */
+        private void done() {
+            if (onDone == null)
+                return;
+            try {
+                onDone.run();
+            } catch (RuntimeException e) {
+                // Ignored.
+            }
+        }
+    }
+}
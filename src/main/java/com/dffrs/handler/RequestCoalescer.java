@@ -0,0 +1,59 @@
+package com.dffrs.handler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Class responsible for request coalescing (single-flight). While a call for a given key is in progress,
+ * every other caller asking for the same key receives the same future, instead of starting its own call.
+ * Once the call completes (successfully or not), the key is released and the next caller starts a new one.
+ *
+ * @param <K> Type of the keys.
+ * @param <V> Type of the results.
+ */
+final class RequestCoalescer<K, V> {
+    /**
+     * Map used to keep every call currently in progress.
+     */
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Method to join the call in progress for the key, or start a new one using loader.
+     * The loader runs on the calling thread, and only for the caller that owns the call.
+     *
+     * @param key    Key identifying the call.
+     * @param loader Function that starts the call and returns its future.
+     * @return Future shared by every caller of the same key.
+     */
+    CompletableFuture<V> execute(K key, Function<K, CompletableFuture<V>> loader) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null)
+            return existing;
+
+        try {
+            loader.apply(key).whenComplete((value, error) -> {
+                inFlight.remove(key, promise);
+                if (error != null)
+                    promise.completeExceptionally(error);
+                else
+                    promise.complete(value);
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise;
+    }
+
+    /**
+     * Method to return the number of calls currently in progress.
+     *
+     * @return Number of keys being loaded.
+     */
+    int inFlightCount() {
+        return inFlight.size();
+    }
+}
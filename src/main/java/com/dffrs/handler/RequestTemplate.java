@@ -0,0 +1,158 @@
+package com.dffrs.handler;
+
+import com.dffrs.transport.TransportRequest;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, precompiled form of the options every call needs: the base URI ("host/"), the headers and the
+ * endpoint, already encoded. Built once per configuration (See {@link #compile(Map)}), so each call only adds its
+ * own path or query.
+ * <p>
+ * The endpoint may hold path parameters, between braces (ex: "obd2/{code}/details"). They are replaced, in
+ * order, by the values of requests without params, and extra values are appended as more segments. Endpoints
+ * without path parameters get the request's path or query after a "/", as before.
+ */
+final class RequestTemplate {
+    private final String endpoint;
+    private final String baseUri;
+    /**
+     * Header names and values, alternated. Shared by every {@link TransportRequest} built, and never changed.
+     */
+    private final String[] headers;
+    /**
+     * Encoded parts of the endpoint around its path parameters. One more than the number of parameters.
+     */
+    private final String[] literals;
+
+    private RequestTemplate(String endpoint, String baseUri, String[] headers, String[] literals) {
+        this.endpoint = endpoint;
+        this.baseUri = baseUri;
+        this.headers = headers;
+        this.literals = literals;
+    }
+
+    /**
+     * Static method to compile the options read from a Configuration Options file. Headers missing a name or a
+     * value are left out.
+     *
+     * @param options Map of the options ("host", "endpoint", "header", "rapid_api_host", "header1" and
+     *                "rapid_api_key" are used).
+     * @return {@link RequestTemplate} instance.
+     * @throws IllegalArgumentException If the endpoint has an unclosed path parameter.
+     */
+    static RequestTemplate compile(Map<String, String> options) {
+        String endpoint = String.valueOf(options.get("endpoint"));
+        List<String> headers = new ArrayList<>(4);
+        addHeader(headers, options.get("header"), options.get("rapid_api_host"));
+        addHeader(headers, options.get("header1"), options.get("rapid_api_key"));
+        return new RequestTemplate(endpoint, options.get("host") + "/", headers.toArray(new String[0]),
+                compileEndpoint(endpoint));
+    }
+
+    /**
+     * Method to return the endpoint, as configured.
+     *
+     * @return String representing the endpoint.
+     */
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Method to build the key identifying a request, i.e. the endpoint, with its path parameters replaced, and
+     * the request's path or query.
+     *
+     * @param query      Request's encoded path or query.
+     * @param pathValues Request's encoded path values, or a NULL Reference if it has a query.
+     * @return String representing the endpoint and query (ex: "obd2/P0001").
+     * @throws IllegalArgumentException If the endpoint has more path parameters than the request has values.
+     */
+    String buildAPICall(String query, String[] pathValues) {
+        if (literals.length == 1)
+            return new StringBuilder(literals[0].length() + 1 + query.length())
+                    .append(literals[0]).append('/').append(query).toString();
+
+        int parameters = literals.length - 1;
+        if (pathValues == null || pathValues.length < parameters)
+            throw new IllegalArgumentException("ERROR: Endpoint " + endpoint + " needs " + parameters +
+                    " path values.\n");
+
+        StringBuilder apiCall = new StringBuilder(endpoint.length() + query.length() + 1);
+        for (int i = 0; i != parameters; i++) {
+            apiCall.append(literals[i]).append(pathValues[i]);
+        }
+        apiCall.append(literals[parameters]);
+        for (int i = parameters; i != pathValues.length; i++) {
+            apiCall.append('/').append(pathValues[i]);
+        }
+        return apiCall.toString();
+    }
+
+    /**
+     * Method to build the upstream GET request for a key built by {@link #buildAPICall(String, String[])}.
+     *
+     * @param apiCall      String representing the endpoint and query.
+     * @param extraHeaders Header names and values to send as well (ex: conditional headers).
+     * @return {@link TransportRequest} ready to be sent.
+     */
+    TransportRequest newRequest(String apiCall, String... extraHeaders) {
+        URI uri = URI.create(baseUri.concat(apiCall));
+        if (extraHeaders.length == 0)
+            return new TransportRequest(uri, headers);
+
+        String[] all = new String[headers.length + extraHeaders.length];
+        System.arraycopy(headers, 0, all, 0, headers.length);
+        System.arraycopy(extraHeaders, 0, all, headers.length, extraHeaders.length);
+        return new TransportRequest(uri, all);
+    }
+
+    private static void addHeader(List<String> headers, String name, String value) {
+        if (name != null && value != null) {
+            headers.add(name);
+            headers.add(value);
+        }
+    }
+
+    /**
+     * Private static method to split an endpoint around its path parameters, percent-encoding each part's
+     * segments.
+     */
+    private static String[] compileEndpoint(String endpoint) {
+        List<String> literals = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int start = 0;
+        while (true) {
+            int open = endpoint.indexOf('{', start);
+            if (open < 0)
+                break;
+            int close = endpoint.indexOf('}', open);
+            if (close < 0)
+                throw new IllegalArgumentException("ERROR: Endpoint " + endpoint + " has an unclosed path parameter.\n");
+            appendPath(literal, endpoint.substring(start, open));
+            literals.add(literal.toString());
+            literal.setLength(0);
+            start = close + 1;
+        }
+        appendPath(literal, endpoint.substring(start));
+        literals.add(literal.toString());
+        return literals.toArray(new String[0]);
+    }
+
+    /**
+     * Private static procedure to append part of a path, encoding each segment but keeping the "/" between them.
+     */
+    private static void appendPath(StringBuilder out, String path) {
+        int start = 0;
+        int slash;
+        while ((slash = path.indexOf('/', start)) >= 0) {
+            QueryEncoder.appendPathSegment(out, path.substring(start, slash));
+            out.append('/');
+            start = slash + 1;
+        }
+        QueryEncoder.appendPathSegment(out, path.substring(start));
+    }
+}
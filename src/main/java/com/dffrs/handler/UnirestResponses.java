@@ -0,0 +1,76 @@
+package com.dffrs.handler;
+
+import com.dffrs.transport.TransportResponse;
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+import com.mashape.unirest.http.exceptions.UnirestException;
+import com.mashape.unirest.http.utils.ResponseUtils;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class to convert {@link TransportResponse} objects into Unirest's HttpResponse, which is the
+ * type {@link APIHandler}'s public methods return.
+ */
+final class UnirestResponses {
+
+    private UnirestResponses() {
+    }
+
+    /**
+     * Static method to convert a {@link TransportResponse}. The body is parsed as JSON.
+     *
+     * @param response {@link TransportResponse} to convert.
+     * @return HttpResponse object.
+     * @throws UnirestException If the body is not valid JSON.
+     */
+    static HttpResponse<JsonNode> toHttpResponse(TransportResponse response) throws UnirestException {
+        BasicHttpResponse apacheResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, response.getStatus(), "");
+        for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            for (String value : header.getValue()) {
+                apacheResponse.addHeader(header.getKey(), value);
+            }
+        }
+
+        if (response.getBody().length != 0) {
+            ByteArrayEntity entity = new ByteArrayEntity(response.getBody());
+            String contentType = CacheDirectives.firstHeader(response.getHeaders(), "Content-Type");
+            if (contentType != null)
+                entity.setContentType(contentType);
+            apacheResponse.setEntity(entity);
+        }
+
+        try {
+            return new HttpResponse<>(apacheResponse, JsonNode.class);
+        } catch (RuntimeException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    /**
+     * Static method to encode the parsed body of a response back into bytes, with the charset it was decoded
+     * with (the one in its Content-Type header, UTF-8 by default). The JSON is written again, so its layout may
+     * differ from the original body, but not its content.
+     *
+     * @param response    Parsed response, as returned by {@link #toHttpResponse(TransportResponse)}.
+     * @param contentType Value of the response's Content-Type header, or a NULL Reference.
+     * @return Array of bytes, empty if the response had no body.
+     */
+    static byte[] toBody(HttpResponse<JsonNode> response, String contentType) {
+        JsonNode body = response.getBody();
+        if (body == null)
+            return new byte[0];
+
+        Charset charset = StandardCharsets.UTF_8;
+        String name = contentType == null ? null : ResponseUtils.getCharsetFromContentType(contentType);
+        if (name != null && !name.isBlank())
+            charset = Charset.forName(name);
+        return body.toString().getBytes(charset);
+    }
+}
@@ -0,0 +1,58 @@
+package com.dffrs.handler;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Utility class to create virtual-thread executors without requiring Java 21 at compile time.
+ * The library still targets older releases, so the factory method is looked up once, at runtime.
+ */
+final class VirtualThreads {
+    /**
+     * Handle to Executors.newVirtualThreadPerTaskExecutor(), or a NULL Reference if the running JVM
+     * does not support virtual threads.
+     */
+    private static final MethodHandle NEW_EXECUTOR = findFactory();
+
+    private VirtualThreads() {
+    }
+
+    private static MethodHandle findFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Static method to check if the running JVM supports virtual threads.
+     *
+     * @return True on Java 21, or newer.
+     */
+    static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * Static method to create an executor that starts a new virtual thread for each task.
+     *
+     * @return ExecutorService instance.
+     * @throws UnsupportedOperationException If the running JVM does not support virtual threads.
+     */
+    static ExecutorService newExecutor() {
+        if (NEW_EXECUTOR == null)
+            throw new UnsupportedOperationException("ERROR: Virtual threads require Java 21, or newer.\n");
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
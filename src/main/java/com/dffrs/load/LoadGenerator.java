@@ -0,0 +1,172 @@
+package com.dffrs.load;
+
+import com.dffrs.handler.APIHandler;
+import com.dffrs.metrics.LatencyHistogram;
+import com.dffrs.replay.ReplayServer;
+import com.mashape.unirest.http.HttpResponse;
+import com.mashape.unirest.http.JsonNode;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator for an {@link APIHandler}: several clients call it in a loop, each one waiting for its response
+ * before making the next call, for a given duration. Each call is picked at random from a mix of requests, so a
+ * request listed twice is made twice as often.
+ * <p>
+ * Pointed at a {@link ReplayServer} ("replay_mode -> replay"), it measures the handler without
+ * any network, so performance regressions can be caught offline (ex: in CI). Cached responses are served without
+ * reaching the server, so the mix (and "cache_capacity") sets how much of the load reaches it.
+ * <p>
+ * Also runnable from the command line (See {@link #main(String[])}).
+ */
+public final class LoadGenerator {
+    private final APIHandler handler;
+    private final List<APIHandler.Request> mix;
+    private final int clients;
+    private final Duration duration;
+
+    /**
+     * Construct a {@link LoadGenerator} instance.
+     *
+     * @param handler  {@link APIHandler} to call.
+     * @param mix      List of requests to pick each call from.
+     * @param clients  Number of clients calling at the same time.
+     * @param duration Duration of a run.
+     * @throws IllegalArgumentException If an argument is a NULL Reference, mix is empty, or clients or duration
+     *                                  are not positive.
+     */
+    public LoadGenerator(APIHandler handler, List<APIHandler.Request> mix, int clients, Duration duration) {
+        if (handler == null || mix == null || duration == null)
+            throw new IllegalArgumentException("ERROR: Load generator's arguments can not be NULL REFERENCES.\n");
+        if (mix.isEmpty() || mix.stream().anyMatch(Objects::isNull))
+            throw new IllegalArgumentException("ERROR: Load generator's mix must hold at least one request, "
+                    + "and no NULL REFERENCES.\n");
+        if (clients <= 0 || duration.isNegative() || duration.isZero())
+            throw new IllegalArgumentException("ERROR: Load generator's clients and duration must be positive.\n");
+
+        this.handler = handler;
+        this.mix = List.copyOf(mix);
+        this.clients = clients;
+        this.duration = duration;
+    }
+
+    /**
+     * Public method to make calls for the whole duration, and report on them. The caller is blocked meanwhile.
+     *
+     * @return {@link LoadReport} of every call made.
+     * @throws InterruptedException If the caller was interrupted while waiting. The clients are stopped.
+     */
+    public LoadReport run() throws InterruptedException {
+        ReplayServer server = handler.getReplayServer();
+        long missesBefore = server == null ? 0 : server.getMissCount();
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder requests = new LongAdder();
+        LongAdder errors = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1];
+
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i != clients; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() - deadline[0] < 0 && !Thread.currentThread().isInterrupted()) {
+                    APIHandler.Request request = mix.get(random.nextInt(mix.size()));
+                    long begin = System.nanoTime();
+                    boolean failed;
+                    try {
+                        HttpResponse<JsonNode> response = handler.makeAPIRequest(request);
+                        failed = response == null || response.getStatus() >= 400;
+                    } catch (Exception e) {
+                        failed = true;
+                    }
+                    latencies.record(System.nanoTime() - begin);
+                    requests.increment();
+                    if (failed)
+                        errors.increment();
+                }
+            }, "api-handler-load-client-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        long begin = System.nanoTime();
+        deadline[0] = begin + duration.toNanos(); // Published to the clients by the latch.
+        start.countDown();
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            threads.forEach(Thread::interrupt);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - begin;
+        long misses = server == null ? 0 : server.getMissCount() - missesBefore;
+        return new LoadReport(requests.sum(), errors.sum(), misses, elapsed, latencies);
+    }
+
+    /**
+     * Public static procedure to run a load from the command line, and print its {@link LoadReport}:
+     * <pre>
+     * java com.dffrs.load.LoadGenerator &lt;configuration file&gt; &lt;clients&gt; &lt;seconds&gt; &lt;request&gt;...
+     * </pre>
+     * Each request is either a path value (ex: "P0001"), or params (ex: "q=Kendrick Lamar&amp;per_page=5").
+     * Exits with 1 if any call failed (including calls the replay server had no recording of), and with 2 if the
+     * arguments are wrong.
+     *
+     * @param args Command line arguments.
+     * @throws InterruptedException If interrupted while running.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        LoadGenerator generator;
+        try {
+            if (args.length < 4)
+                throw new IllegalArgumentException("ERROR: Missing arguments.\n");
+            List<APIHandler.Request> mix = new ArrayList<>();
+            for (int i = 3; i != args.length; i++) {
+                mix.add(parseRequest(args[i]));
+            }
+            generator = new LoadGenerator(APIHandler.getInstance(args[0]), mix, Integer.parseInt(args[1]),
+                    Duration.ofSeconds(Long.parseLong(args[2])));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + "\nUsage: LoadGenerator <configuration file> <clients> <seconds> "
+                    + "<request>...");
+            System.exit(2);
+            return;
+        }
+
+        LoadReport report = generator.run();
+        System.out.println(report);
+        System.exit(report.getErrorCount() == 0 && report.getReplayMissCount() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Private static method to read a request from the command line: "name=value" pairs, separated by "&amp;",
+     * are params, and anything else is a path value.
+     */
+    private static APIHandler.Request parseRequest(String argument) {
+        if (argument.indexOf('=') < 0)
+            return new APIHandler.Request(null, List.of(argument));
+
+        List<String> params = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (String pair : argument.split("&")) {
+            int separator = pair.indexOf('=');
+            params.add(separator < 0 ? pair : pair.substring(0, separator));
+            values.add(separator < 0 ? "" : pair.substring(separator + 1));
+        }
+        return new APIHandler.Request(params, values);
+    }
+}
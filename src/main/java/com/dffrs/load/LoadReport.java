@@ -0,0 +1,100 @@
+package com.dffrs.load;
+
+import com.dffrs.metrics.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable result of a {@link LoadGenerator} run: how many calls were made, how many failed (and how many the
+ * replay server could not answer), and how long they took.
+ */
+public final class LoadReport {
+    private final long requests;
+    private final long errors;
+    private final long replayMisses;
+    private final long elapsedNanos;
+    private final LatencyHistogram latencies;
+
+    /**
+     * Construct a {@link LoadReport} instance.
+     *
+     * @param requests     Number of calls made.
+     * @param errors       Number of calls that failed.
+     * @param replayMisses Number of calls the replay server had no recording of.
+     * @param elapsedNanos Duration of the run.
+     * @param latencies    {@link LatencyHistogram} of every call's duration. It must not be changed afterwards.
+     */
+    LoadReport(long requests, long errors, long replayMisses, long elapsedNanos, LatencyHistogram latencies) {
+        this.requests = requests;
+        this.errors = errors;
+        this.replayMisses = replayMisses;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies;
+    }
+
+    public long getRequestCount() {
+        return requests;
+    }
+
+    /**
+     * Public method to return the number of calls that failed: the ones throwing an exception, or answered with
+     * a 4xx or 5xx status.
+     *
+     * @return Number of failed calls.
+     */
+    public long getErrorCount() {
+        return errors;
+    }
+
+    /**
+     * Public method to return the number of calls the {@link com.dffrs.replay.ReplayServer} had no recording of
+     * (answered with a 404), which usually means the recording is out of date. Cached answers are not counted.
+     *
+     * @return Number of calls, or 0 if the handler was not replaying.
+     */
+    public long getReplayMissCount() {
+        return replayMisses;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Public method to return the number of calls made per second.
+     *
+     * @return Calls per second, or 0 if the run took no time.
+     */
+    public double getThroughput() {
+        return elapsedNanos <= 0 ? 0 : requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Public method to return the duration below which a percentage of the calls completed.
+     *
+     * @param percentile Value between 0 and 100 (ex: 99.9).
+     * @return Nanoseconds, or 0 if no call was made.
+     * @throws IllegalArgumentException If percentile is not between 0 and 100.
+     */
+    public long getLatencyAtPercentile(double percentile) {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    public long getMaxLatency() {
+        return latencies.getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "requests=%d, errors=%d, replay misses=%d, throughput=%.1f/s, "
+                        + "latency (ms): p50=%.3f, p90=%.3f, p99=%.3f, p99.9=%.3f, max=%.3f",
+                requests, errors, replayMisses, getThroughput(), millis(getLatencyAtPercentile(50)),
+                millis(getLatencyAtPercentile(90)), millis(getLatencyAtPercentile(99)),
+                millis(getLatencyAtPercentile(99.9)), millis(getMaxLatency()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,139 @@
+package com.dffrs.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and upstream latencies recorded by {@link InMemoryMetrics} for one endpoint. Thread-safe and lock-free.
+ */
+public final class EndpointMetrics {
+    /**
+     * Status codes from which a response counts as an error.
+     */
+    private static final int FIRST_ERROR_STATUS = 400;
+
+    private final String endpoint;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder upstreamCalls = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final ConcurrentMap<Integer, LongAdder> errorsByStatus = new ConcurrentHashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    EndpointMetrics(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    void recordRequest() {
+        requests.increment();
+    }
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    void recordUpstreamStart() {
+        upstreamCalls.increment();
+        inFlight.increment();
+    }
+
+    void recordUpstreamResponse(int status, long elapsedNanos) {
+        inFlight.decrement();
+        latency.record(elapsedNanos);
+        if (status >= FIRST_ERROR_STATUS)
+            errorsByStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
+    }
+
+    void recordUpstreamFailure(long elapsedNanos) {
+        inFlight.decrement();
+        latency.record(elapsedNanos);
+        failures.increment();
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Public method to return the ratio of requests answered from the cache.
+     *
+     * @return Value between 0 and 1. If there were no lookups, it returns 1.
+     */
+    public double getCacheHitRate() {
+        long hits = cacheHits.sum();
+        long lookups = hits + cacheMisses.sum();
+        return lookups == 0 ? 1.0 : (double) hits / lookups;
+    }
+
+    public long getUpstreamCallCount() {
+        return upstreamCalls.sum();
+    }
+
+    /**
+     * Public method to return the number of upstream calls sent and not yet finished.
+     *
+     * @return Number of calls.
+     */
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * Public method to return the number of upstream calls that failed without a response.
+     *
+     * @return Number of failures.
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * Public method to return the number of responses with an error status code (4xx and 5xx), by status code.
+     *
+     * @return Unmodifiable Map, sorted by status code.
+     */
+    public Map<Integer, Long> getErrorsByStatus() {
+        Map<Integer, Long> errors = new TreeMap<>();
+        errorsByStatus.forEach((status, count) -> errors.put(status, count.sum()));
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * Public method to return the upstream calls' durations, whether they got a response or failed.
+     *
+     * @return {@link LatencyHistogram} instance.
+     */
+    public LatencyHistogram getUpstreamLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointMetrics{endpoint=" + endpoint + ", requests=" + getRequestCount()
+                + ", cacheHitRate=" + getCacheHitRate() + ", upstreamCalls=" + getUpstreamCallCount()
+                + ", inFlight=" + getInFlight() + ", failures=" + getFailureCount()
+                + ", errorsByStatus=" + getErrorsByStatus() + ", upstreamLatency=" + latency + "}";
+    }
+}
@@ -0,0 +1,80 @@
+package com.dffrs.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Interface notified by {@link com.dffrs.handler.APIHandler} of what happens on each call, so it can be exported
+ * to a monitoring system. Every method has an empty default, so implementations only override what they need.
+ * <p>
+ * Methods are called on the hot path, from several threads at the same time: implementations must be
+ * thread-safe, must not block, and should not allocate.
+ * <ul>
+ *     <li>{@link NoOpMetrics}: default, records nothing.</li>
+ *     <li>{@link InMemoryMetrics}: keeps counters and latency histograms, per endpoint.</li>
+ * </ul>
+ */
+public interface HandlerMetrics {
+
+    /**
+     * Public procedure called once per request given to the handler, before the cache is checked.
+     *
+     * @param endpoint Handler's endpoint.
+     */
+    default void onRequest(String endpoint) {
+    }
+
+    /**
+     * Public procedure called when a request is answered with a fresh cached response.
+     *
+     * @param endpoint Handler's endpoint.
+     */
+    default void onCacheHit(String endpoint) {
+    }
+
+    /**
+     * Public procedure called when a request has no fresh cached response.
+     *
+     * @param endpoint Handler's endpoint.
+     */
+    default void onCacheMiss(String endpoint) {
+    }
+
+    /**
+     * Public procedure called right before an upstream call is sent. Each call is followed by exactly one
+     * {@link #onUpstreamResponse(String, int, long)} or {@link #onUpstreamFailure(String, Throwable, long)}.
+     *
+     * @param endpoint Handler's endpoint.
+     */
+    default void onUpstreamStart(String endpoint) {
+    }
+
+    /**
+     * Public procedure called when an upstream call receives a response, whatever its status code.
+     *
+     * @param endpoint     Handler's endpoint.
+     * @param status       Response's status code.
+     * @param elapsedNanos Nanoseconds since the call was sent.
+     */
+    default void onUpstreamResponse(String endpoint, int status, long elapsedNanos) {
+    }
+
+    /**
+     * Public procedure called when an upstream call fails without a response (ex: timeout, connection refused).
+     *
+     * @param endpoint     Handler's endpoint.
+     * @param error        Failure.
+     * @param elapsedNanos Nanoseconds since the call was sent.
+     */
+    default void onUpstreamFailure(String endpoint, Throwable error, long elapsedNanos) {
+    }
+
+    /**
+     * Public procedure called by the handler to expose a value that is read, instead of recorded
+     * (ex: cache size, number of evictions).
+     *
+     * @param name  Name of the gauge, prefixed with the handler's endpoint.
+     * @param value Supplier of the current value. It is cheap and thread-safe.
+     */
+    default void registerGauge(String name, LongSupplier value) {
+    }
+}
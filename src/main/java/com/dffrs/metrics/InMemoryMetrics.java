@@ -0,0 +1,99 @@
+package com.dffrs.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link HandlerMetrics} that keeps everything in memory, grouped by endpoint (See {@link EndpointMetrics}),
+ * to be read by the application (ex: logged periodically, or exposed on a status page).
+ * A single instance may be shared by several handlers.
+ */
+public final class InMemoryMetrics implements HandlerMetrics {
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRequest(String endpoint) {
+        endpointMetrics(endpoint).recordRequest();
+    }
+
+    @Override
+    public void onCacheHit(String endpoint) {
+        endpointMetrics(endpoint).recordCacheHit();
+    }
+
+    @Override
+    public void onCacheMiss(String endpoint) {
+        endpointMetrics(endpoint).recordCacheMiss();
+    }
+
+    @Override
+    public void onUpstreamStart(String endpoint) {
+        endpointMetrics(endpoint).recordUpstreamStart();
+    }
+
+    @Override
+    public void onUpstreamResponse(String endpoint, int status, long elapsedNanos) {
+        endpointMetrics(endpoint).recordUpstreamResponse(status, elapsedNanos);
+    }
+
+    @Override
+    public void onUpstreamFailure(String endpoint, Throwable error, long elapsedNanos) {
+        endpointMetrics(endpoint).recordUpstreamFailure(elapsedNanos);
+    }
+
+    @Override
+    public void registerGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Public method to return the metrics recorded for an endpoint.
+     *
+     * @param endpoint Endpoint, as written in the Configuration Options file.
+     * @return {@link EndpointMetrics} instance, or a NULL Reference if nothing was recorded for it.
+     */
+    public EndpointMetrics getEndpoint(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    /**
+     * Public method to return the metrics recorded for every endpoint.
+     *
+     * @return Unmodifiable view, updated as new endpoints are recorded.
+     */
+    public Map<String, EndpointMetrics> getEndpoints() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+    /**
+     * Public method to read a gauge registered by a handler.
+     *
+     * @param name Name of the gauge (ex: "obd2.cache.evictions").
+     * @return Current value, or -1 if there is no such gauge.
+     */
+    public long getGauge(String name) {
+        LongSupplier gauge = gauges.get(name);
+        return gauge == null ? -1 : gauge.getAsLong();
+    }
+
+    /**
+     * Public method to read every registered gauge.
+     *
+     * @return Unmodifiable Map, sorted by name.
+     */
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return Collections.unmodifiableMap(values);
+    }
+
+    private EndpointMetrics endpointMetrics(String endpoint) {
+        EndpointMetrics metrics = endpoints.get(endpoint);
+        return metrics != null ? metrics : endpoints.computeIfAbsent(endpoint, EndpointMetrics::new);
+    }
+}
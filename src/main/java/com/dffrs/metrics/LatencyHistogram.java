@@ -0,0 +1,133 @@
+package com.dffrs.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations, in nanoseconds, with log-linear buckets (like HdrHistogram): each power of two is split
+ * into {@value #SUB_BUCKETS} buckets, so any recorded value is reported with less than about 3% of error, from
+ * nanoseconds up to centuries, in a fixed amount of memory.
+ * <p>
+ * Recording is lock-free (one atomic increment). Reads may run at the same time as recordings, and then see some
+ * of them and not others.
+ */
+public final class LatencyHistogram {
+    /**
+     * Number of buckets each power of two is split into.
+     */
+    private static final int SUB_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = 5;
+    /**
+     * Values below this have one bucket each.
+     */
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Public procedure to record a duration. Negative values are recorded as 0.
+     *
+     * @param nanos Duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Public method to return the average of the recorded durations.
+     *
+     * @return Nanoseconds, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Public method to return the duration below which a percentage of the recorded durations fall.
+     *
+     * @param percentile Value between 0 and 100 (ex: 99.9).
+     * @return Nanoseconds (the highest value of the matching bucket, but never more than {@link #getMax()}),
+     * or 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("ERROR: Percentile must be between 0 and 100.\n");
+
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i != BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i != BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(highestValueOf(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Public procedure to forget every recorded duration. Not atomic: recordings made at the same time may be
+     * partially kept.
+     */
+    public void reset() {
+        for (int i = 0; i != BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_LIMIT)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + mantissa;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < LINEAR_LIMIT)
+            return bucket;
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        long mantissa = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowest = (SUB_BUCKETS + mantissa) * width;
+        return lowest + width - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + getCount() + ", mean=" + (long) getMean()
+                + ", p50=" + getValueAtPercentile(50) + ", p99=" + getValueAtPercentile(99)
+                + ", max=" + getMax() + "}";
+    }
+}
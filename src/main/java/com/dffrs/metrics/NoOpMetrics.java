@@ -0,0 +1,20 @@
+package com.dffrs.metrics;
+
+/**
+ * {@link HandlerMetrics} that records nothing. Used by every handler, unless other metrics are configured.
+ */
+public final class NoOpMetrics implements HandlerMetrics {
+    private static final NoOpMetrics INSTANCE = new NoOpMetrics();
+
+    private NoOpMetrics() {
+    }
+
+    /**
+     * Public Static Factory method to return the shared {@link NoOpMetrics} instance.
+     *
+     * @return {@link NoOpMetrics} instance.
+     */
+    public static NoOpMetrics getInstance() {
+        return INSTANCE;
+    }
+}
@@ -0,0 +1,338 @@
+package com.dffrs.replay;
+
+import com.dffrs.transport.TransportResponse;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Responses captured from an API's host, kept in a compact (gzip) file, so they can be served again without any
+ * network (See {@link ReplayServer}). Responses are found by their call: the path, without its leading "/", and
+ * the query (ex: "obd2/P0001", or "search/?q=Kendrick+Lamar"). A call recorded again replaces the previous
+ * response.
+ * <p>
+ * Only the status, the headers and the body are kept. The requests' headers, which may hold API keys, are not.
+ * Headers describing the connection (ex: Content-Length) are dropped too, since the server replaying the
+ * response sets its own.
+ * <p>
+ * Each recorded response is appended to the file, and flushed right away, so recording stays cheap however many
+ * responses the file holds, and a recording interrupted halfway still holds every response recorded before.
+ * Responses recorded again are only dropped from the file when it is rewritten, on {@link #close()}.
+ * <p>
+ * Instances are safe to use from several threads at the same time. Reads never wait for a recording in progress.
+ */
+public final class Recording implements Closeable {
+    /**
+     * First bytes of a recording file ("RPLY").
+     */
+    private static final int MAGIC = 0x52504C59;
+    /**
+     * Version 1 files hold a count of entries, and can not be appended to. Version 2 files hold entries until
+     * their end, each one starting with {@link #ENTRY}, possibly across several gzip members.
+     */
+    private static final int VERSION = 2;
+    private static final int ENTRY = 1;
+    private static final List<String> CONNECTION_HEADERS = List.of("content-length", "transfer-encoding",
+            "connection", "keep-alive");
+
+    private final Path file;
+    private final Map<String, TransportResponse> responses = new ConcurrentHashMap<>();
+
+    /**
+     * Guards the writes to the file, and {@link #responses}' updates, so both see the same order.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    /**
+     * Stream appending to the file, or a NULL Reference if none is open.
+     */
+    private DataOutputStream out;
+    /**
+     * Number of entries in the file, including replaced ones.
+     */
+    private int written;
+    /**
+     * True if the file must be rewritten before anything is appended to it (ex: an older version, or a
+     * recording that was not closed).
+     */
+    private boolean rewrite;
+
+    private Recording(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Public static method to open a recording file, reading the responses it already holds. The file is only
+     * created when the first response is recorded.
+     *
+     * @param file Path of the recording file.
+     * @return {@link Recording} instance.
+     * @throws IllegalArgumentException If file is a NULL Reference.
+     * @throws IOException              If the file exists, but can not be read, or is not a recording.
+     */
+    public static Recording open(Path file) throws IOException {
+        if (file == null)
+            throw new IllegalArgumentException("ERROR: Recording's file can not be a NULL REFERENCE.\n");
+
+        Recording recording = new Recording(file);
+        if (Files.exists(file))
+            recording.load();
+        return recording;
+    }
+
+    /**
+     * Public static method to return the call a request's URI stands for, i.e. how it is found in a recording.
+     *
+     * @param uri URI of the request.
+     * @return String holding the path, without its leading "/", and the query (both still encoded).
+     */
+    public static String callOf(URI uri) {
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+        if (path.startsWith("/"))
+            path = path.substring(1);
+        return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Public method to return the response recorded for a call.
+     *
+     * @param call String representing the call (See {@link #callOf(URI)}).
+     * @return {@link TransportResponse}, or a NULL Reference if the call was not recorded.
+     */
+    public TransportResponse get(String call) {
+        return responses.get(call);
+    }
+
+    public int size() {
+        return responses.size();
+    }
+
+    /**
+     * Public method to record a response, and append it to the file.
+     *
+     * @param call     String representing the call (See {@link #callOf(URI)}).
+     * @param response {@link TransportResponse} received from the API's host.
+     * @throws IllegalArgumentException If an argument is a NULL Reference.
+     * @throws IOException              If the file can not be written.
+     */
+    public void record(String call, TransportResponse response) throws IOException {
+        if (call == null || response == null)
+            throw new IllegalArgumentException("ERROR: Recorded call and response can not be NULL REFERENCES.\n");
+
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        response.getHeaders().forEach((name, values) -> {
+            // HTTP/2 pseudo-headers (ex: ":status") are not headers of the response itself.
+            if (name != null && !name.startsWith(":") && !CONNECTION_HEADERS.contains(name.toLowerCase()))
+                headers.put(name, values);
+        });
+        TransportResponse recorded = new TransportResponse(response.getStatus(), headers, response.getBody());
+
+        writeLock.lock();
+        try {
+            responses.put(call, recorded);
+            if (out == null)
+                openForAppend();
+            write(out, call, recorded);
+            out.flush(); // Reaches the file, without ending the gzip member.
+            written++;
+        } catch (IOException e) {
+            closeQuietly();
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Public procedure to end the file's last gzip member, so the file is complete. A file holding many replaced
+     * responses is rewritten with the latest ones only. Responses recorded afterwards are appended again.
+     *
+     * @throws IOException If the file can not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (out == null)
+                return;
+            DataOutputStream current = out;
+            out = null;
+            current.close();
+            if (written > 2 * responses.size())
+                save();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Private procedure to open the file for appending, rewriting it first if needed, and starting a new gzip
+     * member. Guarded by {@link #writeLock}.
+     */
+    private void openForAppend() throws IOException {
+        boolean exists = Files.exists(file);
+        if (exists && rewrite) {
+            save();
+            rewrite = false;
+        }
+        if (!exists)
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 8192, true)));
+        if (!exists) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+    }
+
+    private void closeQuietly() {
+        if (out == null)
+            return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            // Already failing.
+        }
+        out = null;
+        rewrite = true; // The last member may be incomplete.
+    }
+
+    /**
+     * Private procedure to write every response to a temporary file, and then move it over the recording file.
+     * Guarded by {@link #writeLock}, with no stream open.
+     */
+    private void save() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            int count = 0;
+            try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temporary))))) {
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                for (Map.Entry<String, TransportResponse> entry : responses.entrySet()) {
+                    write(data, entry.getKey(), entry.getValue());
+                    count++;
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            written = count;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Private procedure to read the file's responses. An entry cut short (ex: the recording was interrupted) is
+     * dropped, and the file is rewritten before anything is appended to it.
+     */
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            int version;
+            try {
+                if (in.readInt() != MAGIC)
+                    throw new IOException("ERROR: " + file + " is not a recording.\n");
+                version = in.readInt();
+            } catch (EOFException e) {
+                throw new IOException("ERROR: " + file + " is truncated.\n", e);
+            }
+            if (version == 1) {
+                loadCounted(in);
+                return;
+            }
+            if (version != VERSION)
+                throw new IOException("ERROR: " + file + " is not a recording.\n");
+
+            try {
+                int marker;
+                while ((marker = in.read()) == ENTRY) {
+                    String call = in.readUTF();
+                    responses.put(call, read(in));
+                    written++;
+                }
+                if (marker != -1)
+                    throw new IOException("ERROR: " + file + " is not a recording.\n");
+            } catch (EOFException e) {
+                rewrite = true; // Cut short, or its last gzip member was never ended.
+            }
+        }
+    }
+
+    /**
+     * Private procedure to read the responses of a version 1 file, which is rewritten before anything is
+     * appended to it.
+     */
+    private void loadCounted(DataInputStream in) throws IOException {
+        try {
+            int count = in.readInt();
+            for (int i = 0; i != count; i++) {
+                String call = in.readUTF();
+                responses.put(call, read(in));
+            }
+        } catch (EOFException e) {
+            throw new IOException("ERROR: " + file + " is truncated.\n", e);
+        }
+        rewrite = true;
+    }
+
+    /**
+     * Private static procedure to write an entry: {@link #ENTRY}, call, status, headers (name, and each of its
+     * values) and body.
+     */
+    private static void write(DataOutputStream out, String call, TransportResponse response) throws IOException {
+        out.writeByte(ENTRY);
+        out.writeUTF(call);
+        out.writeShort(response.getStatus());
+        out.writeShort(response.getHeaders().size());
+        for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            out.writeUTF(header.getKey());
+            out.writeShort(header.getValue().size());
+            for (String value : header.getValue()) {
+                out.writeUTF(value);
+            }
+        }
+        out.writeInt(response.getBody().length);
+        out.write(response.getBody());
+    }
+
+    private static TransportResponse read(DataInputStream in) throws IOException {
+        int status = in.readUnsignedShort();
+        int headerCount = in.readUnsignedShort();
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (int i = 0; i != headerCount; i++) {
+            String name = in.readUTF();
+            int valueCount = in.readUnsignedShort();
+            List<String> values = new ArrayList<>(valueCount);
+            for (int j = 0; j != valueCount; j++) {
+                values.add(in.readUTF());
+            }
+            headers.put(name, values);
+        }
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        return new TransportResponse(status, headers, body);
+    }
+}
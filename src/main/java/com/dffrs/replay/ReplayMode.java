@@ -0,0 +1,46 @@
+package com.dffrs.replay;
+
+/**
+ * Enumerator to list how {@link com.dffrs.handler.APIHandler} uses a {@link Recording}.
+ * Each mode has an id, which is the value expected inside the Configuration Options file
+ * (ex: replay_mode -> replay).
+ */
+public enum ReplayMode {
+    /**
+     * Calls go to the API's host, and nothing is recorded.
+     */
+    OFF("off"),
+    /**
+     * Calls go to the API's host, and every response is recorded.
+     */
+    RECORD("record"),
+    /**
+     * Calls go to a local {@link ReplayServer}, answering with the recorded responses.
+     */
+    REPLAY("replay");
+
+    private final String modeIdentifier;
+
+    ReplayMode(String id) {
+        this.modeIdentifier = id;
+    }
+
+    public String getModeIdentifier() {
+        return modeIdentifier;
+    }
+
+    /**
+     * Public static method to map an id to its {@link ReplayMode}.
+     *
+     * @param id String representing the mode (case insensitive).
+     * @return Matched {@link ReplayMode}.
+     * @throws IllegalArgumentException If no mode matches the id.
+     */
+    public static ReplayMode fromIdentifier(String id) {
+        for (ReplayMode mode : values()) {
+            if (mode.modeIdentifier.equalsIgnoreCase(id))
+                return mode;
+        }
+        throw new IllegalArgumentException("ERROR: Unknown replay mode (" + id + ").\n");
+    }
+}
@@ -0,0 +1,204 @@
+package com.dffrs.replay;
+
+import com.dffrs.transport.TransportResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local HTTP server answering with the responses of a {@link Recording}, so an {@link com.dffrs.handler.APIHandler}
+ * can be tested, and load-tested, without the API's host (or any network). It listens on the loopback address,
+ * on a free port (See {@link #getURI()}).
+ * <p>
+ * Every request is found in the recording by its path and query, whatever its host or headers. Calls that were
+ * not recorded are answered with a 404 (Not Found), and a request whose "If-None-Match" holds the recorded
+ * "ETag" with a 304 (Not Modified).
+ * <p>
+ * Answers can be slowed down by a fixed latency, and a share of them replaced by a 503 (Service Unavailable), to
+ * reproduce a slow, or failing, host.
+ */
+public final class ReplayServer implements Closeable {
+    static {
+        // Otherwise, Nagle's algorithm delays every small response by tens of milliseconds. Must be set
+        // before the first server is created.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private static final byte[] NOT_RECORDED = "{\"error\":\"not recorded\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] INJECTED_ERROR = "{\"error\":\"injected error\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final Recording recording;
+    private final long latencyNanos;
+    private final double errorRate;
+    private final ExecutorService executor;
+    private final HttpServer server;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+
+    /**
+     * Construct a {@link ReplayServer} instance, and start it.
+     *
+     * @param recording {@link Recording} holding the responses to serve.
+     * @param latency   Time waited before answering each request.
+     * @param errorRate Share of the requests (between 0 and 1) answered with a 503 instead.
+     * @throws IllegalArgumentException If recording or latency are NULL References, latency is negative, or
+     *                                  errorRate is not between 0 and 1.
+     * @throws IOException              If the server can not be started.
+     */
+    public ReplayServer(Recording recording, Duration latency, double errorRate) throws IOException {
+        if (recording == null || latency == null)
+            throw new IllegalArgumentException("ERROR: Replay server's arguments can not be NULL REFERENCES.\n");
+        if (latency.isNegative())
+            throw new IllegalArgumentException("ERROR: Replay server's latency can not be negative.\n");
+        if (!(errorRate >= 0 && errorRate <= 1))
+            throw new IllegalArgumentException("ERROR: Replay server's error rate must be between 0 and 1.\n");
+
+        this.recording = recording;
+        this.latencyNanos = latency.toNanos();
+        this.errorRate = errorRate;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "api-handler-replay-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        start(server);
+    }
+
+    /**
+     * Public method to return the server's base URI, to be used as the API's host (ex: "http://127.0.0.1:50123").
+     *
+     * @return URI of the server, without a path.
+     */
+    public URI getURI() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+    }
+
+    public Recording getRecording() {
+        return recording;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Public method to return the number of requests whose call was not recorded.
+     *
+     * @return Number of requests answered with a 404 (Not Found).
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Public method to return the number of requests answered with an injected error.
+     *
+     * @return Number of requests answered with a 503 (Service Unavailable).
+     */
+    public long getInjectedErrorCount() {
+        return injectedErrors.sum();
+    }
+
+    /**
+     * Public procedure to stop the server. Requests in progress are dropped.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Private procedure, used as the server's handler, to answer a request.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try {
+            if (latencyNanos > 0)
+                TimeUnit.NANOSECONDS.sleep(latencyNanos);
+
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.increment();
+                send(exchange, 503, Map.of("Content-Type", List.of("application/json")), INJECTED_ERROR);
+                return;
+            }
+
+            TransportResponse response = recording.get(Recording.callOf(exchange.getRequestURI()));
+            if (response == null) {
+                misses.increment();
+                send(exchange, 404, Map.of("Content-Type", List.of("application/json")), NOT_RECORDED);
+                return;
+            }
+
+            String tag = first(response.getHeaders(), "ETag");
+            String candidate = exchange.getRequestHeaders().getFirst("If-None-Match");
+            if (tag != null && tag.equals(candidate))
+                send(exchange, 304, response.getHeaders(), new byte[0]);
+            else
+                send(exchange, response.getStatus(), response.getHeaders(), response.getBody());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Server is closing.
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, Map<String, List<String>> headers, byte[] body)
+            throws IOException {
+        headers.forEach((name, values) -> exchange.getResponseHeaders().put(name, new ArrayList<>(values)));
+        boolean empty = body.length == 0 || status == 304 || status == 204;
+        exchange.sendResponseHeaders(status, empty ? -1 : body.length);
+        if (!empty) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static String first(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty())
+                return header.getValue().get(0);
+        }
+        return null;
+    }
+
+    /**
+     * Private static procedure to start the server from a daemon thread. Its dispatcher thread inherits it, so a
+     * server that is never closed does not keep the JVM running.
+     */
+    private static void start(HttpServer server) throws IOException {
+        Thread starter = new Thread(server::start, "api-handler-replay-server-start");
+        starter.setDaemon(true);
+        starter.start();
+        try {
+            starter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.stop(0);
+            throw new IOException("ERROR: Replay server was interrupted while starting.\n", e);
+        }
+    }
+}
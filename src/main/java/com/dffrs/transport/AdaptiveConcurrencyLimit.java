@@ -0,0 +1,197 @@
+package com.dffrs.transport;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limit on the number of calls in progress that adapts to the API's host (AIMD: additive increase,
+ * multiplicative decrease):
+ * <ul>
+ *     <li>Each successful call raises the limit by 1 / limit, i.e. by one per round of calls.</li>
+ *     <li>A throttled call (429) halves it.</li>
+ *     <li>A call much slower than the baseline (the fastest call of the last window) lowers it by 10%. Increases
+ *     below a millisecond are ignored.</li>
+ * </ul>
+ * After a decrease, the limit is not decreased again before a full round of calls, so one burst of bad
+ * responses counts once. Calls waiting for a slot are queued and served in order.
+ */
+final class AdaptiveConcurrencyLimit {
+    private static final double THROTTLED_BACKOFF = 0.5;
+    private static final double LATENCY_BACKOFF = 0.9;
+    /**
+     * Latency, relative to the baseline, above which a call counts as slow.
+     */
+    private static final double LATENCY_TOLERANCE = 2.0;
+    /**
+     * Smallest increase over the baseline that counts as slow, so the jitter of very fast calls is ignored.
+     */
+    private static final long MIN_LATENCY_INCREASE_NANOS = 1_000_000;
+    /**
+     * Number of calls after which the baseline is replaced by the fastest of them, so it follows lasting
+     * changes of the host's speed.
+     */
+    private static final int BASELINE_WINDOW = 256;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private long samplesSinceDecrease;
+
+    /**
+     * Construct an {@link AdaptiveConcurrencyLimit} instance.
+     *
+     * @param initialLimit Starting limit.
+     * @param minLimit     Lowest limit.
+     * @param maxLimit     Highest limit.
+     * @throws IllegalArgumentException If the limits are not positive, or not in order.
+     */
+    AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || minLimit > maxLimit)
+            throw new IllegalArgumentException("ERROR: Concurrency limits must be positive, and min <= max.\n");
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Method to ask for a slot. Every completed future must be followed by exactly one {@link #release()}.
+     * A waiting caller that gives up must cancel its future, and release the slot if the cancellation fails
+     * (the slot was granted in the meantime).
+     *
+     * @return Future completed once the caller holds a slot. Already completed if one was free.
+     */
+    CompletableFuture<Void> acquire() {
+        lock.lock();
+        try {
+            if (waiting.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> slot = new CompletableFuture<>();
+            waiting.add(slot);
+            return slot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Procedure to give a slot back, handing it to the next waiting caller, if any.
+     */
+    void release() {
+        lock.lock();
+        try {
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+        grantWaiting();
+    }
+
+    /**
+     * Procedure to adapt the limit to a finished call.
+     *
+     * @param latencyNanos Call's duration.
+     * @param throttled    True if the host answered that too many calls were made.
+     */
+    void onResponse(long latencyNanos, boolean throttled) {
+        lock.lock();
+        try {
+            samplesSinceDecrease++;
+            if (throttled) {
+                decrease(THROTTLED_BACKOFF);
+                return;
+            }
+
+            baselineNanos = Math.min(baselineNanos, latencyNanos);
+            windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+            if (++windowSamples == BASELINE_WINDOW) {
+                baselineNanos = windowMinNanos;
+                windowMinNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+
+            if (latencyNanos > baselineNanos * LATENCY_TOLERANCE
+                    && latencyNanos - baselineNanos > MIN_LATENCY_INCREASE_NANOS)
+                decrease(LATENCY_BACKOFF);
+            else
+                limit = Math.min(maxLimit, limit + 1 / limit);
+        } finally {
+            lock.unlock();
+        }
+        grantWaiting();
+    }
+
+    /**
+     * Method to return the current limit.
+     *
+     * @return Maximum number of calls in progress, right now.
+     */
+    int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Private procedure to lower the limit, unless it was lowered less than a round of calls ago.
+     * Must be called while holding {@link #lock}.
+     */
+    private void decrease(double factor) {
+        if (samplesSinceDecrease < limit)
+            return;
+        limit = Math.max(minLimit, limit * factor);
+        samplesSinceDecrease = 0;
+    }
+
+    /**
+     * Private procedure to hand free slots to waiting callers. Futures are completed without holding the lock,
+     * since their callers' work may run right away, on this thread.
+     */
+    private void grantWaiting() {
+        while (true) {
+            List<CompletableFuture<Void>> granted = new ArrayList<>();
+            lock.lock();
+            try {
+                while (!waiting.isEmpty() && inFlight < (int) limit) {
+                    granted.add(waiting.poll());
+                    inFlight++;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (granted.isEmpty())
+                return;
+
+            int cancelled = 0;
+            for (CompletableFuture<Void> slot : granted) {
+                if (!slot.complete(null))
+                    cancelled++;
+            }
+            if (cancelled == 0)
+                return;
+            // Slots granted to callers that gave up go to the next ones.
+            lock.lock();
+            try {
+                inFlight -= cancelled;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.dffrs.transport;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breaker guarding one host. After a number of consecutive failed calls, the circuit opens and calls
+ * fail right away, instead of waiting for a host that is down. Once the open period is over, a single call is
+ * let through (half open): it closes the circuit if it succeeds, or opens it again if it fails.
+ */
+final class CircuitBreaker {
+    static final int CLOSED = 0;
+    static final int OPEN = 1;
+    static final int HALF_OPEN = 2;
+    /**
+     * Transient state, while an opening circuit sets its open period. Calls are refused meanwhile.
+     */
+    private static final int OPENING = 3;
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final AtomicInteger state = new AtomicInteger(CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    /**
+     * Moment (System.nanoTime) at which an open circuit lets a trial call through.
+     */
+    private volatile long openUntil;
+
+    /**
+     * Construct a closed {@link CircuitBreaker} instance.
+     *
+     * @param failureThreshold Number of consecutive failures that opens the circuit.
+     * @param openNanos        Time the circuit stays open before a trial call.
+     * @throws IllegalArgumentException If failureThreshold is not positive.
+     */
+    CircuitBreaker(int failureThreshold, long openNanos) {
+        if (failureThreshold <= 0)
+            throw new IllegalArgumentException("ERROR: Circuit breaker's threshold must be greater than zero.\n");
+
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Method to check if a call may be made. When it returns true, the call's outcome must be reported with
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return True if the circuit is closed, or this call is the trial call of an open circuit.
+     */
+    boolean allowRequest() {
+        int current = state.get();
+        if (current == CLOSED)
+            return true;
+        if (current != OPEN || System.nanoTime() - openUntil < 0)
+            return false;
+        return state.compareAndSet(OPEN, HALF_OPEN);
+    }
+
+    /**
+     * Procedure to report a successful call, closing the circuit.
+     */
+    void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.get() != CLOSED)
+            state.set(CLOSED);
+    }
+
+    /**
+     * Procedure to report a failed call, opening the circuit if it was the trial call, or one failure too many.
+     */
+    void onFailure() {
+        if (state.get() == HALF_OPEN) {
+            open(HALF_OPEN);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(CLOSED);
+        }
+    }
+
+    /**
+     * Method to return the circuit's state.
+     *
+     * @return {@link #CLOSED}, {@link #OPEN} or {@link #HALF_OPEN}.
+     */
+    int getState() {
+        int current = state.get();
+        return current == OPENING ? OPEN : current;
+    }
+
+    /**
+     * Private procedure to open the circuit. Only the failure making the transition sets the open period, so
+     * failures of calls still in progress do not extend it.
+     */
+    private void open(int from) {
+        if (!state.compareAndSet(from, OPENING))
+            return; // Already opened by another failure.
+        consecutiveFailures.set(0);
+        openUntil = System.nanoTime() + openNanos;
+        state.compareAndSet(OPENING, OPEN); // Unless a success closed it meanwhile.
+    }
+}
@@ -0,0 +1,20 @@
+package com.dffrs.transport;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown by {@link ResilientTransport} when a request is not sent because its host's circuit is open,
+ * i.e. the last requests kept failing. Callers holding a cached response may serve it instead.
+ */
+public final class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Construct a {@link CircuitOpenException} instance.
+     *
+     * @param host String representing the host that was not called.
+     */
+    public CircuitOpenException(String host) {
+        super("ERROR: Circuit open for " + host + ", request not sent.\n");
+    }
+}
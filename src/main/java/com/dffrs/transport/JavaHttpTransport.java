@@ -0,0 +1,177 @@
+package com.dffrs.transport;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Default {@link Transport}, based on java.net.http.HttpClient.
+ * A single client is kept for the transport's whole life, so connections (and TLS sessions) are reused.
+ * HTTP/2 is preferred, and several requests to the same host are multiplexed over one connection.
+ * Servers that do not support it are called over HTTP/1.1, with keep-alive.
+ * <p>
+ * The number of requests in progress can be limited. Blocking callers wait for a free slot, while
+ * non-blocking ones are queued and started, in order, as soon as a slot is released.
+ */
+public final class JavaHttpTransport implements Transport {
+    private final HttpClient client;
+    private final Duration readTimeout;
+    /**
+     * Free slots for requests in progress, or a NULL Reference if there is no limit.
+     */
+    private final Semaphore permits;
+    /**
+     * Non-blocking requests waiting for a free slot.
+     */
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Construct a {@link JavaHttpTransport} instance.
+     *
+     * @param connectTimeout Maximum time to establish a connection.
+     * @param readTimeout    Maximum time to wait for a response, once the request is sent.
+     * @param maxConnections Maximum number of requests in progress. Zero, or less, means no limit.
+     * @param version        Preferred HTTP version.
+     * @param executor       Executor used by the client for non-blocking work. A NULL Reference means the
+     *                       client's default one.
+     */
+    public JavaHttpTransport(Duration connectTimeout, Duration readTimeout, int maxConnections,
+                             HttpClient.Version version, Executor executor) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (executor != null)
+            builder.executor(executor);
+
+        this.client = builder.build();
+        this.readTimeout = readTimeout;
+        this.permits = maxConnections > 0 ? new Semaphore(maxConnections) : null;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException, InterruptedException {
+        if (permits == null)
+            return toTransportResponse(client.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofByteArray()));
+
+        permits.acquire();
+        try {
+            return toTransportResponse(client.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofByteArray()));
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * The request keeps its slot (See maxConnections) until the returned response is closed.
+     */
+    @Override
+    public StreamingResponse stream(TransportRequest request) throws IOException, InterruptedException {
+        if (permits != null)
+            permits.acquire();
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(toHttpRequest(request), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            if (permits != null)
+                release();
+            throw e;
+        }
+        InputStream body = permits == null ? response.body() : new FilterInputStream(response.body()) {
+            private final AtomicBoolean closed = new AtomicBoolean();
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (closed.compareAndSet(false, true))
+                        release();
+                }
+            }
+        };
+        return new StreamingResponse(response.statusCode(), response.headers().map(), body);
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        HttpRequest httpRequest;
+        try {
+            httpRequest = toHttpRequest(request);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (permits == null)
+            return client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray())
+                    .thenApply(JavaHttpTransport::toTransportResponse);
+
+        CompletableFuture<TransportResponse> future = new CompletableFuture<>();
+        Runnable start = () -> client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> {
+                    release();
+                    if (error != null)
+                        future.completeExceptionally(error);
+                    else
+                        future.complete(toTransportResponse(response));
+                });
+
+        if (permits.tryAcquire()) {
+            start.run();
+        } else {
+            waiting.add(start);
+            // A slot may have been released between tryAcquire and add.
+            if (permits.tryAcquire())
+                startNextOrRelease();
+        }
+        return future;
+    }
+
+    /**
+     * Private procedure to give a released slot to the next queued request, or back to the semaphore.
+     */
+    private void release() {
+        Runnable next = waiting.poll();
+        if (next != null) {
+            next.run();
+            return;
+        }
+        permits.release();
+        // A request may have been queued between poll and release.
+        if (!waiting.isEmpty() && permits.tryAcquire())
+            startNextOrRelease();
+    }
+
+    private void startNextOrRelease() {
+        Runnable next = waiting.poll();
+        if (next != null)
+            next.run();
+        else
+            permits.release();
+    }
+
+    private HttpRequest toHttpRequest(TransportRequest request) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri())
+                .timeout(readTimeout)
+                .GET();
+        String[] headers = request.headerArray();
+        if (headers.length != 0)
+            builder.headers(headers);
+        return builder.build();
+    }
+
+    private static TransportResponse toTransportResponse(HttpResponse<byte[]> response) {
+        return new TransportResponse(response.statusCode(), response.headers().map(), response.body());
+    }
+}
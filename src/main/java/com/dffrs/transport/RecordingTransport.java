@@ -0,0 +1,60 @@
+package com.dffrs.transport;
+
+import com.dffrs.replay.Recording;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@link Transport} that keeps every response received through another one in a {@link Recording}, so it can
+ * be replayed later, without the API's host (See {@link com.dffrs.replay.ReplayServer}).
+ * <p>
+ * A response that can not be recorded is still returned to the caller, and the error is reported on System.err.
+ * Streamed responses are read whole before being returned, so they can be recorded. 304 (Not Modified) responses
+ * are not recorded, so the response they revalidate is kept.
+ */
+public final class RecordingTransport implements Transport {
+    private final Transport delegate;
+    private final Recording recording;
+
+    /**
+     * Construct a {@link RecordingTransport} instance.
+     *
+     * @param delegate  {@link Transport} sending the requests.
+     * @param recording {@link Recording} keeping the responses.
+     * @throws IllegalArgumentException If an argument is a NULL Reference.
+     */
+    public RecordingTransport(Transport delegate, Recording recording) {
+        if (delegate == null || recording == null)
+            throw new IllegalArgumentException("ERROR: Recording transport's arguments can not be NULL REFERENCES.\n");
+
+        this.delegate = delegate;
+        this.recording = recording;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException, InterruptedException {
+        TransportResponse response = delegate.send(request);
+        record(request, response);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        return delegate.sendAsync(request).thenApply(response -> {
+            record(request, response);
+            return response;
+        });
+    }
+
+    private void record(TransportRequest request, TransportResponse response) {
+        if (response.getStatus() == 304)
+            return; // Answers a revalidation, so it would replace the recorded body with nothing.
+        try {
+            recording.record(Recording.callOf(request.getUri()), response);
+        } catch (IOException e) {
+            System.err.println("ERROR: Response could not be recorded in " + recording.getFile() + ".\n\n"
+                    + e.getClass() + ": " + e.getMessage());
+        }
+    }
+}
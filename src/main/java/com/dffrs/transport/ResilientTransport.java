@@ -0,0 +1,426 @@
+package com.dffrs.transport;
+
+import com.dffrs.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link Transport} that shields callers from a failing or slow host, on top of another one:
+ * <ul>
+ *     <li>Retries: requests that fail, or get a transient status (408, 429, 500, 502, 503 or 504), are sent
+ *     again after an exponential backoff with full jitter (a random wait between 0 and base * 2^attempt),
+ *     or after the host's "Retry-After", if longer. Every request is a GET, so retrying is safe.</li>
+ *     <li>Hedging: when a response takes longer than the 95th percentile of the recent ones, a second, identical
+ *     request is sent, and the first response wins. Roughly 5% of the requests are hedged.</li>
+ *     <li>Circuit breaker: after a number of consecutive failures (errors or 5xx), requests fail right away with
+ *     {@link CircuitOpenException}, until a trial request succeeds (See {@link CircuitBreaker}).</li>
+ * </ul>
+ * Each feature can be turned off. Streamed requests are retried and guarded, but not hedged.
+ */
+public final class ResilientTransport implements Transport {
+    /**
+     * Longest wait between two attempts.
+     */
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+    /**
+     * Number of latencies needed before hedging starts.
+     */
+    private static final int MIN_HEDGE_SAMPLES = 32;
+    /**
+     * Number of latencies after which the hedging delay is computed again.
+     */
+    private static final int HEDGE_UPDATE_INTERVAL = 64;
+    /**
+     * Number of latencies after which older ones are forgotten, so the hedging delay follows the host.
+     */
+    private static final int HEDGE_WINDOW = 4096;
+    private static final double HEDGE_PERCENTILE = 95;
+    private static final int NO_STATUS = -1;
+
+    private final Transport delegate;
+    private final int maxRetries;
+    private final long baseBackoffNanos;
+    private final boolean hedging;
+    /**
+     * Breaker guarding the host, or a NULL Reference if there is none.
+     */
+    private final CircuitBreaker breaker;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong samples = new AtomicLong();
+    /**
+     * Delay before a request is hedged, or -1 while there are not enough samples.
+     */
+    private volatile long hedgeDelayNanos = -1;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    /**
+     * Construct a {@link ResilientTransport} instance.
+     *
+     * @param delegate         {@link Transport} sending the requests.
+     * @param maxRetries       Maximum number of attempts after the first one. Zero, or less, means no retries.
+     * @param baseBackoff      Wait before the first retry, doubled for each following one (before jitter).
+     * @param hedging          True to hedge slow requests.
+     * @param failureThreshold Consecutive failures that open the circuit. Zero, or less, means no circuit breaker.
+     * @param openDuration     Time the circuit stays open before a trial request.
+     * @throws IllegalArgumentException If delegate, baseBackoff or openDuration are NULL References.
+     */
+    public ResilientTransport(Transport delegate, int maxRetries, Duration baseBackoff, boolean hedging,
+                              int failureThreshold, Duration openDuration) {
+        if (delegate == null || baseBackoff == null || openDuration == null)
+            throw new IllegalArgumentException("ERROR: Resilient transport's arguments can not be NULL REFERENCES.\n");
+
+        this.delegate = delegate;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.baseBackoffNanos = Math.max(0, baseBackoff.toNanos());
+        this.hedging = hedging;
+        this.breaker = failureThreshold > 0 ? new CircuitBreaker(failureThreshold, openDuration.toNanos()) : null;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException, InterruptedException {
+        checkCircuit(request);
+        try {
+            TransportResponse response = sendWithRetries(request);
+            onOutcome(response.getStatus(), null);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            onOutcome(NO_STATUS, e);
+            throw e;
+        } catch (InterruptedException e) {
+            onOutcome(NO_STATUS, null);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        try {
+            checkCircuit(request);
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return attemptAsync(request, 0).whenComplete((response, error) ->
+                onOutcome(response == null ? NO_STATUS : response.getStatus(), error));
+    }
+
+    /**
+     * {@inheritDoc}
+     * Retried responses are closed before the next attempt.
+     */
+    @Override
+    public StreamingResponse stream(TransportRequest request) throws IOException, InterruptedException {
+        checkCircuit(request);
+        try {
+            for (int attempt = 0; ; attempt++) {
+                StreamingResponse response;
+                try {
+                    response = delegate.stream(request);
+                } catch (IOException e) {
+                    if (attempt == maxRetries)
+                        throw e;
+                    backoff(attempt, null);
+                    continue;
+                }
+                if (attempt == maxRetries || !isRetryable(response.getStatus())) {
+                    onOutcome(response.getStatus(), null);
+                    return response;
+                }
+                response.close();
+                backoff(attempt, response.getHeaders());
+            }
+        } catch (IOException | RuntimeException e) {
+            onOutcome(NO_STATUS, e);
+            throw e;
+        } catch (InterruptedException e) {
+            onOutcome(NO_STATUS, null);
+            throw e;
+        }
+    }
+
+    /**
+     * Public method to return the number of retries sent so far.
+     *
+     * @return Number of retries.
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Public method to return the number of hedged requests sent so far.
+     *
+     * @return Number of hedged requests.
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * Public method to check if the circuit is open, i.e. requests are failing right away.
+     *
+     * @return True if the circuit is open (or waiting for a trial request's outcome).
+     */
+    public boolean isCircuitOpen() {
+        return breaker != null && breaker.getState() != CircuitBreaker.CLOSED;
+    }
+
+    /**
+     * Private method to send a request, blocking, until it gets a final response or runs out of attempts.
+     */
+    private TransportResponse sendWithRetries(TransportRequest request) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            TransportResponse response;
+            try {
+                response = hedging ? awaitHedged(request) : timedSend(request);
+            } catch (IOException e) {
+                if (attempt == maxRetries)
+                    throw e;
+                backoff(attempt, null);
+                continue;
+            }
+            if (attempt == maxRetries || !isRetryable(response.getStatus()))
+                return response;
+            backoff(attempt, response.getHeaders());
+        }
+    }
+
+    /**
+     * Private method to send a request, without blocking, until it gets a final response or runs out of
+     * attempts.
+     */
+    private CompletableFuture<TransportResponse> attemptAsync(TransportRequest request, int attempt) {
+        CompletableFuture<TransportResponse> response = hedging ? sendHedged(request) : timedSendAsync(request);
+        return response.handle((r, error) -> {
+            boolean failed = error != null;
+            if (attempt == maxRetries || (failed ? !isRetryable(error) : !isRetryable(r.getStatus())))
+                return failed ? CompletableFuture.<TransportResponse>failedFuture(unwrap(error))
+                        : CompletableFuture.completedFuture(r);
+
+            retries.incrementAndGet();
+            long wait = backoffNanos(attempt, failed ? null : r.getHeaders());
+            return CompletableFuture.supplyAsync(() -> null,
+                            CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS))
+                    .thenCompose(nothing -> attemptAsync(request, attempt + 1));
+        }).thenCompose(next -> next);
+    }
+
+    /**
+     * Private method to send a request and, if no response arrives within the hedging delay, a second one.
+     * The first response received completes the returned future, and the other request is cancelled.
+     * A failure only completes it once no other request is left.
+     */
+    private CompletableFuture<TransportResponse> sendHedged(TransportRequest request) {
+        long delay = hedgeDelayNanos;
+        if (delay < 0)
+            return timedSendAsync(request);
+
+        Hedge hedge = new Hedge();
+        hedge.first = timedSendAsync(request);
+        hedge.first.whenComplete(hedge::onComplete);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() -> {
+            if (!hedge.startSecond())
+                return;
+            hedges.incrementAndGet();
+            CompletableFuture<TransportResponse> second = timedSendAsync(request);
+            hedge.setSecond(second);
+            second.whenComplete(hedge::onComplete);
+        });
+        return hedge.result;
+    }
+
+    /**
+     * Private method to wait, blocking, for {@link #sendHedged(TransportRequest)}.
+     */
+    private TransportResponse awaitHedged(TransportRequest request) throws IOException, InterruptedException {
+        CompletableFuture<TransportResponse> response = sendHedged(request);
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            response.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private TransportResponse timedSend(TransportRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        TransportResponse response = delegate.send(request);
+        recordLatency(System.nanoTime() - start);
+        return response;
+    }
+
+    /**
+     * Private method to send a request through the delegate without blocking, recording its latency.
+     * The delegate's own future is returned, so cancelling it reaches the delegate.
+     */
+    private CompletableFuture<TransportResponse> timedSendAsync(TransportRequest request) {
+        long start = System.nanoTime();
+        CompletableFuture<TransportResponse> response = delegate.sendAsync(request);
+        response.whenComplete((r, error) -> {
+            if (r != null)
+                recordLatency(System.nanoTime() - start);
+        });
+        return response;
+    }
+
+    /**
+     * Private procedure to record a response's latency, updating the hedging delay every
+     * {@link #HEDGE_UPDATE_INTERVAL} samples.
+     */
+    private void recordLatency(long nanos) {
+        if (!hedging)
+            return;
+
+        latencies.record(nanos);
+        long n = samples.incrementAndGet();
+        if (n >= MIN_HEDGE_SAMPLES && n % HEDGE_UPDATE_INTERVAL == 0) {
+            hedgeDelayNanos = latencies.getValueAtPercentile(HEDGE_PERCENTILE);
+            if (n % HEDGE_WINDOW == 0)
+                latencies.reset();
+        } else if (n == MIN_HEDGE_SAMPLES) {
+            hedgeDelayNanos = latencies.getValueAtPercentile(HEDGE_PERCENTILE);
+        }
+    }
+
+    /**
+     * Private procedure to wait, blocking, before the next attempt.
+     */
+    private void backoff(int attempt, Map<String, List<String>> headers) throws InterruptedException {
+        retries.incrementAndGet();
+        long wait = backoffNanos(attempt, headers);
+        if (wait > 0)
+            TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    /**
+     * Private method to return the wait before the next attempt: a random duration up to base * 2^attempt
+     * (full jitter), or the host's "Retry-After", if longer.
+     */
+    private long backoffNanos(int attempt, Map<String, List<String>> headers) {
+        long ceiling = baseBackoffNanos << Math.min(attempt, 30);
+        if (ceiling < 0 || ceiling > MAX_BACKOFF_NANOS)
+            ceiling = MAX_BACKOFF_NANOS;
+        long wait = ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (headers != null)
+            wait = Math.max(wait, Math.min(MAX_BACKOFF_NANOS, ThrottledTransport.retryAfterNanos(headers)));
+        return wait;
+    }
+
+    private void checkCircuit(TransportRequest request) throws CircuitOpenException {
+        if (breaker != null && !breaker.allowRequest())
+            throw new CircuitOpenException(request.getUri().getHost());
+    }
+
+    /**
+     * Private procedure to report a request's outcome to the circuit breaker. Errors and 5xx responses are
+     * failures. A trial request that was cancelled or interrupted opens the circuit again, since its outcome
+     * is unknown.
+     *
+     * @param status Response's status, or {@link #NO_STATUS} if there was no response.
+     * @param error  Failure, or a NULL Reference.
+     */
+    private void onOutcome(int status, Throwable error) {
+        if (breaker == null)
+            return;
+
+        if (status != NO_STATUS) {
+            if (status < 500)
+                breaker.onSuccess();
+            else
+                breaker.onFailure();
+        } else if ((error != null && !(unwrap(error) instanceof CancellationException))
+                || breaker.getState() == CircuitBreaker.HALF_OPEN) {
+            breaker.onFailure();
+        }
+    }
+
+    private static boolean isRetryable(int status) {
+        return status == 408 || status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        return unwrap(error) instanceof IOException;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * State of a hedged request: the first request, the second one (if sent) and the future given to the caller.
+     */
+    private static final class Hedge {
+        final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        CompletableFuture<TransportResponse> first;
+        private CompletableFuture<TransportResponse> second;
+        private int outstanding = 1;
+        private boolean secondAllowed = true;
+        private boolean decided;
+
+        Hedge() {
+            // Cancelling the result (ex: the caller gave up) cancels both requests.
+            result.whenComplete((r, error) -> cancelLosers());
+        }
+
+        synchronized boolean startSecond() {
+            if (!secondAllowed || result.isDone())
+                return false;
+            secondAllowed = false;
+            outstanding++;
+            return true;
+        }
+
+        synchronized void setSecond(CompletableFuture<TransportResponse> second) {
+            this.second = second;
+            if (result.isDone())
+                second.cancel(true);
+        }
+
+        void onComplete(TransportResponse response, Throwable error) {
+            synchronized (this) {
+                if (decided)
+                    return; // Ex: the loser, cancelled.
+                outstanding--;
+                if (error != null && outstanding != 0)
+                    return; // The other request may still succeed.
+                decided = true;
+                secondAllowed = false;
+            }
+            if (error == null) {
+                cancelLosers(); // Before completing, so the loser is gone once the caller sees the response.
+                result.complete(response);
+            } else {
+                result.completeExceptionally(unwrap(error));
+            }
+        }
+
+        private void cancelLosers() {
+            CompletableFuture<TransportResponse> other;
+            synchronized (this) {
+                secondAllowed = false;
+                other = second;
+            }
+            first.cancel(true);
+            if (other != null)
+                other.cancel(true);
+        }
+    }
+}
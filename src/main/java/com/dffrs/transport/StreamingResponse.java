@@ -0,0 +1,50 @@
+package com.dffrs.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response whose body is read as it arrives, instead of being buffered first. It must be closed once the
+ * body is consumed (or no longer needed), so the connection can be reused.
+ * <p>
+ * ex: new JSONTokener(new InputStreamReader(response.getBody(), UTF_8)) pulls JSON tokens straight from it.
+ */
+public final class StreamingResponse implements Closeable {
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final InputStream body;
+
+    /**
+     * Construct a {@link StreamingResponse} instance.
+     *
+     * @param status  Status code.
+     * @param headers Headers received. A NULL Reference means there were none.
+     * @param body    Body's stream.
+     */
+    public StreamingResponse(int status, Map<String, List<String>> headers, InputStream body) {
+        this.status = status;
+        this.headers = headers == null ? Collections.emptyMap() : Collections.unmodifiableMap(headers);
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    @Override
+    public void close() throws IOException {
+        body.close();
+    }
+}
@@ -0,0 +1,316 @@
+package com.dffrs.transport;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link Transport} that paces the requests sent through another one, so the API's host is not overwhelmed
+ * (and does not start rejecting them):
+ * <ul>
+ *     <li>A rate limit (See {@link TokenBucket}) spaces requests, allowing short bursts.</li>
+ *     <li>An adaptive limit on the requests in progress (See {@link AdaptiveConcurrencyLimit}) grows while the
+ *     host answers quickly, and shrinks when it slows down or throttles (429, or 503).</li>
+ * </ul>
+ * A "Retry-After" header, sent with a 429 or 503, pauses the rate limit until the given moment.
+ * <p>
+ * Waiting requests are served in order. Blocking callers sleep, and non-blocking ones are scheduled, so no
+ * thread spins or is held while waiting.
+ */
+public final class ThrottledTransport implements Transport {
+    /**
+     * Longest pause accepted from a "Retry-After" header.
+     */
+    private static final long MAX_RETRY_AFTER_NANOS = TimeUnit.MINUTES.toNanos(5);
+    /**
+     * Starting limit on the requests in progress, before any feedback from the host.
+     */
+    private static final int INITIAL_CONCURRENCY = 16;
+
+    private final Transport delegate;
+    /**
+     * Rate limit, or a NULL Reference if there is none.
+     */
+    private final TokenBucket bucket;
+    /**
+     * Limit on the requests in progress, or a NULL Reference if there is none.
+     */
+    private final AdaptiveConcurrencyLimit limit;
+
+    /**
+     * Construct a {@link ThrottledTransport} instance.
+     *
+     * @param delegate          {@link Transport} sending the requests.
+     * @param requestsPerSecond Maximum rate of requests. Zero, or less, means no rate limit.
+     * @param burst             Number of requests that may be sent at once, after an idle period.
+     * @param maxConcurrency    Highest limit on the requests in progress. Zero, or less, means no limit.
+     * @throws IllegalArgumentException If delegate is a NULL Reference, or the rate limit is set and burst is
+     *                                  not positive.
+     */
+    public ThrottledTransport(Transport delegate, double requestsPerSecond, int burst, int maxConcurrency) {
+        if (delegate == null)
+            throw new IllegalArgumentException("ERROR: Transport can not be a NULL REFERENCE.\n");
+
+        this.delegate = delegate;
+        this.bucket = requestsPerSecond > 0 ? new TokenBucket(requestsPerSecond, burst) : null;
+        this.limit = maxConcurrency > 0
+                ? new AdaptiveConcurrencyLimit(Math.min(INITIAL_CONCURRENCY, maxConcurrency), 1, maxConcurrency)
+                : null;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException, InterruptedException {
+        acquire();
+        try {
+            waitForToken();
+            long start = System.nanoTime();
+            TransportResponse response = delegate.send(request);
+            onResponse(response.getStatus(), response.getHeaders(), System.nanoTime() - start);
+            return response;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * Cancelling the returned future reaches the delegate's request, or gives up the request's place if it is
+     * still waiting.
+     */
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        return new AsyncCall(request).result;
+    }
+
+    /**
+     * {@inheritDoc}
+     * The request keeps its slot (See maxConcurrency) until the returned response is closed.
+     */
+    @Override
+    public StreamingResponse stream(TransportRequest request) throws IOException, InterruptedException {
+        acquire();
+        StreamingResponse response;
+        try {
+            waitForToken();
+            long start = System.nanoTime();
+            response = delegate.stream(request);
+            onResponse(response.getStatus(), response.getHeaders(), System.nanoTime() - start);
+        } catch (IOException | InterruptedException | RuntimeException | Error e) {
+            release();
+            throw e;
+        }
+
+        AtomicBoolean released = new AtomicBoolean();
+        InputStream body = new FilterInputStream(response.getBody()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (released.compareAndSet(false, true))
+                        release();
+                }
+            }
+        };
+        return new StreamingResponse(response.getStatus(), response.getHeaders(), body);
+    }
+
+    /**
+     * Public method to return the current limit on the requests in progress.
+     *
+     * @return Limit, or -1 if there is none.
+     */
+    public int getConcurrencyLimit() {
+        return limit == null ? -1 : limit.getLimit();
+    }
+
+    /**
+     * Private procedure to wait, blocking, for a slot.
+     */
+    private void acquire() throws InterruptedException {
+        if (limit == null)
+            return;
+
+        CompletableFuture<Void> slot = limit.acquire();
+        try {
+            slot.get();
+        } catch (InterruptedException e) {
+            if (!slot.cancel(false)) // Granted in the meantime.
+                limit.release();
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause()); // Never happens, slots are only completed normally.
+        }
+    }
+
+    private void release() {
+        if (limit != null)
+            limit.release();
+    }
+
+    /**
+     * Private procedure to wait, blocking, until a request may be sent, according to the rate limit.
+     */
+    private void waitForToken() throws InterruptedException {
+        if (bucket == null)
+            return;
+
+        long wait = bucket.reserve();
+        if (wait > 0)
+            TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    /**
+     * Non-blocking request, going through its steps (waiting for a slot, then for the rate limit, then for the
+     * delegate's response). The step in progress is cancelled along with the result.
+     */
+    private final class AsyncCall {
+        private final TransportRequest request;
+        private final CompletableFuture<TransportResponse> result = new CompletableFuture<>();
+        /**
+         * Step in progress, guarded by this.
+         */
+        private CompletableFuture<?> step;
+
+        AsyncCall(TransportRequest request) {
+            this.request = request;
+            result.whenComplete((response, error) -> {
+                if (result.isCancelled())
+                    setStep(null);
+            });
+
+            CompletableFuture<Void> slot = limit == null ? CompletableFuture.completedFuture(null) : limit.acquire();
+            setStep(slot);
+            slot.whenComplete((ignored, error) -> {
+                if (slot.isCancelled()) // Never granted.
+                    return;
+                if (result.isDone()) {
+                    release();
+                    return;
+                }
+                long wait;
+                try {
+                    wait = bucket == null ? 0 : bucket.reserve();
+                } catch (RuntimeException e) {
+                    release();
+                    result.completeExceptionally(e);
+                    return;
+                }
+                if (wait <= 0) {
+                    send();
+                    return;
+                }
+                CompletableFuture<Void> delay = CompletableFuture.runAsync(() -> {
+                }, CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS));
+                setStep(delay);
+                delay.whenComplete((nothing, cancelled) -> {
+                    if (delay.isCancelled())
+                        release();
+                    else
+                        send();
+                });
+            });
+        }
+
+        /**
+         * Private procedure to send the request through the delegate, and feed the result back to the limits.
+         */
+        private void send() {
+            long start = System.nanoTime();
+            CompletableFuture<TransportResponse> response;
+            try {
+                response = delegate.sendAsync(request);
+            } catch (RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            response.whenComplete((r, error) -> {
+                release();
+                if (r != null) {
+                    onResponse(r.getStatus(), r.getHeaders(), System.nanoTime() - start);
+                    result.complete(r);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+            setStep(response);
+        }
+
+        /**
+         * Private procedure to replace the step in progress, or to cancel it if the result was cancelled.
+         *
+         * @param next Step starting, or a NULL Reference when the result was cancelled.
+         */
+        private void setStep(CompletableFuture<?> next) {
+            CompletableFuture<?> cancelled;
+            synchronized (this) {
+                if (next != null && !result.isCancelled()) {
+                    step = next;
+                    return;
+                }
+                cancelled = next != null ? next : step;
+                step = null;
+            }
+            if (cancelled != null)
+                cancelled.cancel(true);
+        }
+    }
+
+    /**
+     * Private procedure to adapt the limits to a response received from the host.
+     */
+    private void onResponse(int status, Map<String, List<String>> headers, long latencyNanos) {
+        boolean throttled = status == 429 || status == 503;
+        if (bucket != null && throttled) {
+            long retryAfter = retryAfterNanos(headers);
+            if (retryAfter > 0)
+                bucket.pauseUntil(System.nanoTime() + retryAfter);
+        }
+        if (limit != null)
+            limit.onResponse(latencyNanos, throttled);
+    }
+
+    /**
+     * Static method to read a "Retry-After" header, either in seconds or as an HTTP date.
+     *
+     * @param headers Response's headers.
+     * @return Nanoseconds to wait, capped to {@link #MAX_RETRY_AFTER_NANOS}, or 0 if the header is missing or
+     * invalid.
+     */
+    static long retryAfterNanos(Map<String, List<String>> headers) {
+        String value = null;
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(entry.getKey()) && entry.getValue() != null
+                    && !entry.getValue().isEmpty()) {
+                value = entry.getValue().get(0).trim();
+                break;
+            }
+        }
+        if (value == null || value.isEmpty())
+            return 0;
+
+        long nanos;
+        try {
+            nanos = TimeUnit.SECONDS.toNanos(Long.parseLong(value));
+        } catch (NumberFormatException notSeconds) {
+            try {
+                ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+                nanos = Duration.between(ZonedDateTime.now(date.getZone()), date).toNanos();
+            } catch (DateTimeParseException | ArithmeticException invalid) {
+                return 0;
+            }
+        }
+        return Math.max(0, Math.min(MAX_RETRY_AFTER_NANOS, nanos));
+    }
+}
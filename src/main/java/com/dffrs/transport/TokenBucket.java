@@ -0,0 +1,101 @@
+package com.dffrs.transport;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket rate limiter. Tokens are added at a fixed rate, up to a maximum (the burst), and each call takes
+ * one. When the bucket is empty, each call reserves the next token to be added, so callers are served in the
+ * order they arrive, and each one knows, right away, how long it has to wait: blocking callers sleep, and
+ * non-blocking ones are scheduled, without polling. Optional work (ex: background refreshes) can take a token
+ * only if one is available, instead (See {@link #tryReserve()}).
+ */
+public final class TokenBucket {
+    private final double nanosPerToken;
+    private final double maxTokens;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double storedTokens;
+    /**
+     * Moment (System.nanoTime) at which the next token can be taken. Ahead of now when tokens were reserved.
+     */
+    private long nextFreeNanos;
+
+    /**
+     * Construct a full {@link TokenBucket} instance.
+     *
+     * @param tokensPerSecond Rate at which tokens are added.
+     * @param burst           Maximum number of tokens kept, i.e. calls allowed at once after an idle period.
+     * @throws IllegalArgumentException If tokensPerSecond or burst are not positive.
+     */
+    public TokenBucket(double tokensPerSecond, int burst) {
+        if (!(tokensPerSecond > 0) || burst <= 0)
+            throw new IllegalArgumentException("ERROR: Rate limit and burst must be greater than zero.\n");
+
+        this.nanosPerToken = 1_000_000_000 / tokensPerSecond;
+        this.maxTokens = burst;
+        this.storedTokens = burst;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Public method to take a token, reserving the next one if the bucket is empty.
+     *
+     * @return Nanoseconds the caller must wait before using the token (0 if it can be used right away).
+     */
+    public long reserve() {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            if (now > nextFreeNanos) {
+                storedTokens = Math.min(maxTokens, storedTokens + (now - nextFreeNanos) / nanosPerToken);
+                nextFreeNanos = now;
+            }
+            double fromStored = Math.min(1, storedTokens);
+            storedTokens -= fromStored;
+            nextFreeNanos += (long) ((1 - fromStored) * nanosPerToken);
+            return Math.max(0, nextFreeNanos - now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Public method to take a token only if one is available right away. Nothing is reserved otherwise.
+     *
+     * @return 0 if a token was taken, or the nanoseconds until one is available.
+     */
+    public long tryReserve() {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            if (now - nextFreeNanos < 0)
+                return nextFreeNanos - now;
+            storedTokens = Math.min(maxTokens, storedTokens + (now - nextFreeNanos) / nanosPerToken);
+            nextFreeNanos = now;
+            if (storedTokens < 1)
+                return (long) ((1 - storedTokens) * nanosPerToken) + 1;
+            storedTokens -= 1;
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Public procedure to hand out no token before a moment (ex: the API's host asked to retry later).
+     * Stored tokens are dropped.
+     *
+     * @param nanoTime Moment, as given by System.nanoTime.
+     */
+    public void pauseUntil(long nanoTime) {
+        lock.lock();
+        try {
+            if (nanoTime - nextFreeNanos > 0) {
+                nextFreeNanos = nanoTime;
+                storedTokens = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
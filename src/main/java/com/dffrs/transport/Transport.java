@@ -0,0 +1,49 @@
+package com.dffrs.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interface that every HTTP transport used by {@link com.dffrs.handler.APIHandler} must implement.
+ * The default implementation is {@link JavaHttpTransport}. Tests may provide their own, to avoid calling
+ * the real API's host.
+ * Implementations must be safe to use from several threads at the same time.
+ */
+public interface Transport {
+
+    /**
+     * Public method to send a request, blocking the caller until the whole response is received.
+     *
+     * @param request {@link TransportRequest} to send.
+     * @return {@link TransportResponse} received.
+     * @throws IOException          If the request could not be sent, or the response could not be read.
+     * @throws InterruptedException If the caller was interrupted while waiting.
+     */
+    TransportResponse send(TransportRequest request) throws IOException, InterruptedException;
+
+    /**
+     * Public method to send a request without blocking the caller.
+     *
+     * @param request {@link TransportRequest} to send.
+     * @return CompletableFuture completed with the {@link TransportResponse}, or with an IOException.
+     */
+    CompletableFuture<TransportResponse> sendAsync(TransportRequest request);
+
+    /**
+     * Public method to send a request, returning as soon as the headers are received. The body is read
+     * from the returned {@link StreamingResponse}.
+     * By default, it buffers the whole body with {@link #send(TransportRequest)}. Transports able to stream
+     * should override it.
+     *
+     * @param request {@link TransportRequest} to send.
+     * @return {@link StreamingResponse}, which must be closed by the caller.
+     * @throws IOException          If the request could not be sent.
+     * @throws InterruptedException If the caller was interrupted while waiting.
+     */
+    default StreamingResponse stream(TransportRequest request) throws IOException, InterruptedException {
+        TransportResponse response = send(request);
+        return new StreamingResponse(response.getStatus(), response.getHeaders(),
+                new ByteArrayInputStream(response.getBody()));
+    }
+}
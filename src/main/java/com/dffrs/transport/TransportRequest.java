@@ -0,0 +1,70 @@
+package com.dffrs.transport;
+
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * Immutable GET request sent through a {@link Transport}.
+ */
+public final class TransportRequest {
+    private final URI uri;
+    /**
+     * Header names and values, alternated (name, value, name, value, ...).
+     */
+    private final String[] headers;
+
+    /**
+     * Construct a {@link TransportRequest} instance.
+     *
+     * @param uri     URI to call.
+     * @param headers Header names and values, alternated (name, value, name, value, ...).
+     * @throws IllegalArgumentException If uri is a NULL Reference, or headers has an odd length.
+     */
+    public TransportRequest(URI uri, String... headers) {
+        if (uri == null)
+            throw new IllegalArgumentException("ERROR: Request's URI can not be a NULL REFERENCE.\n");
+        if (headers.length % 2 != 0)
+            throw new IllegalArgumentException("ERROR: Every header name must have a value.\n");
+        this.uri = uri;
+        this.headers = headers;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Public method to return the header names and values.
+     *
+     * @return Copy of the array, alternating names and values.
+     */
+    public String[] getHeaders() {
+        return headers.clone();
+    }
+
+    /**
+     * Public method to return the first value of a header, ignoring the header name's case.
+     *
+     * @param name Header's name.
+     * @return Header's value, or a NULL Reference if it is not present.
+     */
+    public String getHeader(String name) {
+        for (int i = 0; i < headers.length; i += 2) {
+            if (headers[i].equalsIgnoreCase(name))
+                return headers[i + 1];
+        }
+        return null;
+    }
+
+    /**
+     * Method to give transports direct access to the header array, without copying it.
+     */
+    String[] headerArray() {
+        return headers;
+    }
+
+    @Override
+    public String toString() {
+        return "GET " + uri + " " + Arrays.toString(headers);
+    }
+}
@@ -0,0 +1,44 @@
+package com.dffrs.transport;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable response received through a {@link Transport}: status code, headers and the raw body.
+ */
+public final class TransportResponse {
+    private final int status;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+
+    /**
+     * Construct a {@link TransportResponse} instance.
+     *
+     * @param status  Status code.
+     * @param headers Headers received. A NULL Reference means there were none.
+     * @param body    Raw body. A NULL Reference means there was none.
+     */
+    public TransportResponse(int status, Map<String, List<String>> headers, byte[] body) {
+        this.status = status;
+        this.headers = headers == null ? Collections.emptyMap() : Collections.unmodifiableMap(headers);
+        this.body = body == null ? new byte[0] : body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Public method to return the raw body. The array is not copied, so it must not be modified.
+     *
+     * @return Array of bytes, empty if there was no body.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+}
@@ -2,9 +2,17 @@ package com.dffrs.util;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.regex.PatternSyntaxException;
 
 public final class APIConfigurationReader {
@@ -17,15 +25,23 @@ public final class APIConfigurationReader {
      */
     public static final String DELIMITER = "->";
     /**
-     * Object representing {@link APIConfigurationReader} instance.
+     * Registry of {@link APIConfigurationReader} instances, one per Configuration Options file.
+     * Lookups do not lock, and each instance is created only once.
      */
-    private static APIConfigurationReader instance;
+    private static final ConcurrentMap<String, APIConfigurationReader> instances = new ConcurrentHashMap<>();
 
     /**
      * String used to specify the path to the Configuration Options file.
      */
     private final String pathToConfFile;
 
+    /**
+     * Options read from the file, or a NULL Reference if it was never read. Replaced, never changed, on reload.
+     */
+    private final AtomicReference<ConfigurationSnapshot> snapshot = new AtomicReference<>();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private final List<Consumer<ConfigurationSnapshot>> listeners = new CopyOnWriteArrayList<>();
+
     /**
      * Class's static attribute to keep loaded all the {@link ConfigurationOptions} values.
      * Used to compare with the values read from the Configuration Options file.
@@ -51,7 +67,43 @@ public final class APIConfigurationReader {
         RAPID_API_HOST("rapid_api_host"),
         RAPID_API_KEY("rapid_api_key"),
         HEADER("header"),
-        ENDPOINT("endpoint");
+        ENDPOINT("endpoint"),
+        CACHE_CAPACITY("cache_capacity"),
+        CACHE_POLICY("cache_policy"),
+        CACHE_STORAGE("cache_storage"),
+        OFFHEAP_CACHE_SIZE("offheap_cache_size"),
+        OFFHEAP_CACHE_COMPRESSION("offheap_cache_compression"),
+        DISK_CACHE_DIRECTORY("disk_cache_directory"),
+        DISK_CACHE_SIZE("disk_cache_size"),
+        REMOTE_CACHE("remote_cache"),
+        REMOTE_CACHE_TIMEOUT("remote_cache_timeout"),
+        REMOTE_CACHE_CONNECTIONS("remote_cache_connections"),
+        CACHE_TTL("cache_ttl"),
+        NEGATIVE_CACHE_TTL("negative_cache_ttl"),
+        BATCH_CONCURRENCY("batch_concurrency"),
+        EXECUTION_MODE("execution_mode"),
+        CONNECT_TIMEOUT("connect_timeout"),
+        READ_TIMEOUT("read_timeout"),
+        MAX_CONNECTIONS("max_connections"),
+        HTTP_VERSION("http_version"),
+        RATE_LIMIT("rate_limit"),
+        RATE_LIMIT_BURST("rate_limit_burst"),
+        ADAPTIVE_CONCURRENCY("adaptive_concurrency"),
+        MAX_RETRIES("max_retries"),
+        RETRY_BACKOFF("retry_backoff"),
+        HEDGE_REQUESTS("hedge_requests"),
+        CIRCUIT_BREAKER_THRESHOLD("circuit_breaker_threshold"),
+        CIRCUIT_BREAKER_TIMEOUT("circuit_breaker_timeout"),
+        REFRESH_AHEAD("refresh_ahead"),
+        STALE_WHILE_REVALIDATE("stale_while_revalidate"),
+        REFRESH_CONCURRENCY("refresh_concurrency"),
+        REFRESH_RATE_LIMIT("refresh_rate_limit"),
+        REPLAY_MODE("replay_mode"),
+        REPLAY_FILE("replay_file"),
+        REPLAY_LATENCY("replay_latency"),
+        REPLAY_ERROR_RATE("replay_error_rate"),
+        HOT_RELOAD("hot_reload"),
+        METRICS("metrics");
 
         private final String confIdentifier;
 
@@ -88,14 +140,17 @@ public final class APIConfigurationReader {
 
     /**
      * Public Static Factory method to instantiate an {@link #APIConfigurationReader(String)} object.
+     * Each file gets its own instance, shared by every call with the same path.
      *
      * @param pathToConfFile String to pass the path to the API configuration file.
      * @return #APIConfigurationReader instance.
+     * @throws IllegalArgumentException When passed an empty string.
      */
     public static APIConfigurationReader getInstance(String pathToConfFile) {
-        if (instance == null || !instance.pathToConfFile.equals(pathToConfFile))
-            instance = new APIConfigurationReader(pathToConfFile);
-        return instance;
+        APIConfigurationReader reader = instances.get(pathToConfFile);
+        if (reader != null)
+            return reader;
+        return instances.computeIfAbsent(pathToConfFile, APIConfigurationReader::new);
     }
 
     /**
@@ -121,6 +176,8 @@ public final class APIConfigurationReader {
     /**
      * Public method that is responsible to load API configuration options through the specified file path,
      * given when {@link APIConfigurationReader} instance was created.
+     * The file is only read on the first call. Later calls return the same options, until the file is reloaded
+     * (See {@link #reload()} and {@link #watch()}).
      * It compares each element read to {@link #confParameter} entries. Everytime it fails to map
      * the String read to an entry, it adds a NULL reference, i.e.
      * <p>
@@ -128,33 +185,138 @@ public final class APIConfigurationReader {
      *      map -|-(String that failed) ----> null
      *          (...)
      *
-     * @return HashMap structure containing every #ConfigurationOptions found.
+     * @return Unmodifiable Map containing every #ConfigurationOptions found.
      * @throws FileNotFoundException Whenever the Configuration Options file was not found.
      */
     public Map<String, String> getConfigurations() throws FileNotFoundException, PatternSyntaxException,
             ArrayIndexOutOfBoundsException, IllegalStateException {
+        return getSnapshot().asMap();
+    }
+
+    /**
+     * Public method to return the current {@link ConfigurationSnapshot}, reading the file if it was never read.
+     * It does not lock, once the file was read.
+     *
+     * @return {@link ConfigurationSnapshot} instance.
+     * @throws FileNotFoundException Whenever the Configuration Options file was not found.
+     */
+    public ConfigurationSnapshot getSnapshot() throws FileNotFoundException {
+        ConfigurationSnapshot current = snapshot.get();
+        return current != null ? current : reload();
+    }
+
+    /**
+     * Public method to read the file again, replacing the current {@link ConfigurationSnapshot} if the options
+     * changed, and notifying the listeners (See {@link #addListener(Consumer)}). If the file can not be read,
+     * the current snapshot is kept.
+     *
+     * @return {@link ConfigurationSnapshot} in use after the reload.
+     * @throws FileNotFoundException Whenever the Configuration Options file was not found.
+     */
+    public ConfigurationSnapshot reload() throws FileNotFoundException {
+        ConfigurationSnapshot reloaded;
+        reloadLock.lock();
+        try {
+            Map<String, String> options = parse();
+            ConfigurationSnapshot current = snapshot.get();
+            if (current != null && current.asMap().equals(options))
+                return current;
+            reloaded = new ConfigurationSnapshot(options, current == null ? 1 : current.getVersion() + 1);
+            snapshot.set(reloaded);
+            if (current == null)
+                return reloaded; // First read: nothing changed, for the listeners.
+        } finally {
+            reloadLock.unlock();
+        }
+
+        for (Consumer<ConfigurationSnapshot> listener : listeners) {
+            try {
+                listener.accept(reloaded);
+            } catch (RuntimeException e) {
+                System.err.println("ERROR: Configuration Options listener failed. " +
+                        "Check " + pathToConfFile + "\n\n" + e.getClass() + ": " + e.getMessage());
+            }
+        }
+        return reloaded;
+    }
+
+    /**
+     * Public procedure to be notified of every new {@link ConfigurationSnapshot}. Listeners run on the thread that
+     * reloaded the file.
+     *
+     * @param listener Consumer of the new snapshot.
+     */
+    public void addListener(Consumer<ConfigurationSnapshot> listener) {
+        if (listener == null)
+            throw new IllegalArgumentException("ERROR: Listener can not be a NULL REFERENCE.\n");
+        listeners.add(listener);
+    }
+
+    /**
+     * Public procedure to stop notifying a listener.
+     *
+     * @param listener Consumer given to {@link #addListener(Consumer)}.
+     */
+    public void removeListener(Consumer<ConfigurationSnapshot> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Public procedure to reload the file, in the background, whenever it changes (See
+     * {@link ConfigurationWatcher}). Calling it again has no effect.
+     *
+     * @throws IOException If the file's directory can not be watched.
+     */
+    public void watch() throws IOException {
+        ConfigurationWatcher.getInstance().register(this);
+    }
+
+    /**
+     * Private method to read and parse the file. Spaces are ignored, and each line holds an option, the
+     * {@link #DELIMITER} and its value. An option found more than once is kept with a number appended to it
+     * (ex: header, header1).
+     *
+     * @return Map of the options read.
+     * @throws FileNotFoundException          Whenever the Configuration Options file was not found.
+     * @throws ArrayIndexOutOfBoundsException Whenever a known option has no value.
+     * @throws IllegalStateException          Whenever the file has no options.
+     */
+    private Map<String, String> parse() throws FileNotFoundException {
         Map<String, String> aux = new HashMap<>();
         try (Scanner scanner = new Scanner(new File(this.pathToConfFile))) {
-            String temp;
-            String[] array;
+            StringBuilder line = new StringBuilder();
             int i = 1;
             while (scanner.hasNext()) {
-                temp = scanner.nextLine().replaceAll(" ", "");
-                if (!temp.isEmpty()) {
-                    array = temp.split(DELIMITER);
-                    if (APIConfigurationReader.confParameter.containsKey(array[0])) {
-                        // Temp solution. If map already contains one, add another with "name"+1.
-                        if (aux.containsKey(array[0])) {
-                            aux.put(array[0] + i, array[1]);
-                            i++;
-                        } else {
-                            aux.put(array[0], array[1]);
-                        }
-                    } else {
-                        // Everytime a configuration option is not recognised inside the file, it will be
-                        // associated with a NULL Reference
-                        aux.put(array[0], null);
-                    }
+                String temp = scanner.nextLine();
+                line.setLength(0);
+                for (int c = 0; c != temp.length(); c++) {
+                    if (temp.charAt(c) != ' ')
+                        line.append(temp.charAt(c));
+                }
+                if (line.length() == 0)
+                    continue;
+
+                int delimiter = line.indexOf(DELIMITER);
+                String key = delimiter < 0 ? line.toString() : line.substring(0, delimiter);
+                if (!APIConfigurationReader.confParameter.containsKey(key)) {
+                    // Everytime a configuration option is not recognised inside the file, it will be
+                    // associated with a NULL Reference
+                    aux.put(key, null);
+                    continue;
+                }
+
+                int valueEnd = delimiter < 0 ? -1 : line.indexOf(DELIMITER, delimiter + DELIMITER.length());
+                String value = delimiter < 0 ? ""
+                        : line.substring(delimiter + DELIMITER.length(), valueEnd < 0 ? line.length() : valueEnd);
+                if (value.isEmpty())
+                    throw new ArrayIndexOutOfBoundsException("ERROR: Configuration option " + key + " has no value.\n");
+
+                // Temp solution. If map already contains one, add another with "name"+1.
+                if (aux.containsKey(key)) {
+                    aux.put(key + i, value);
+                    i++;
+                } else {
+                    aux.put(key, value);
                 }
             }
         }
@@ -163,4 +325,4 @@ public final class APIConfigurationReader {
             throw new IllegalStateException();
         return aux;
     }
-}
\ No newline at end of file
+}
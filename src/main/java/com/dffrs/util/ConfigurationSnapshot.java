@@ -0,0 +1,58 @@
+package com.dffrs.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable view of a Configuration Options file, as it was when read by {@link APIConfigurationReader}.
+ * A reload never changes a snapshot: it replaces it, so a thread holding one always sees consistent options.
+ */
+public final class ConfigurationSnapshot {
+    private final Map<String, String> options;
+    private final long version;
+
+    /**
+     * Construct a {@link ConfigurationSnapshot} instance.
+     *
+     * @param options Map of the options read. Copied, so later changes do not affect the snapshot.
+     * @param version Number of the snapshot: the first one read from a file is 1, and each reload adds one.
+     */
+    ConfigurationSnapshot(Map<String, String> options, long version) {
+        this.options = Collections.unmodifiableMap(new HashMap<>(options));
+        this.version = version;
+    }
+
+    /**
+     * Public method to return an option's value.
+     *
+     * @param option String representing the option (ex: "host").
+     * @return String representing the value, or a NULL Reference if it is missing, or not a known option.
+     */
+    public String get(String option) {
+        return options.get(option);
+    }
+
+    /**
+     * Public method to return every option read.
+     *
+     * @return Unmodifiable Map of the options and their values (NULL References for unknown options).
+     */
+    public Map<String, String> asMap() {
+        return options;
+    }
+
+    /**
+     * Public method to return the snapshot's number.
+     *
+     * @return 1 for the first snapshot read from a file, increased by one on each reload that changed it.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigurationSnapshot{version=" + version + ", options=" + options.keySet() + "}";
+    }
+}
@@ -0,0 +1,125 @@
+package com.dffrs.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Watches the directories of Configuration Options files, and reloads an {@link APIConfigurationReader} when
+ * its file changes. A single daemon thread, started by the first registration, serves every file.
+ * <p>
+ * Editors often write a file in several steps (ex: truncate, then write). Events are given a moment to settle
+ * before reloading, and a reload that fails (ex: a half written file) keeps the previous snapshot, so the next
+ * event fixes it.
+ */
+final class ConfigurationWatcher {
+    /**
+     * Milliseconds to wait, after an event, for the following ones.
+     */
+    private static final long SETTLE_MILLIS = 50;
+    private static final ConfigurationWatcher INSTANCE = new ConfigurationWatcher();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Readers of each watched file, by the file's absolute path.
+     */
+    private final Map<Path, List<APIConfigurationReader>> readers = new ConcurrentHashMap<>();
+    /**
+     * Watched directories, by their watch key.
+     */
+    private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+    private WatchService service;
+
+    private ConfigurationWatcher() {
+    }
+
+    static ConfigurationWatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Procedure to reload a reader whenever its file changes. Registering the same reader twice has no effect.
+     *
+     * @param reader {@link APIConfigurationReader} to reload.
+     * @throws IOException If the file's directory can not be watched.
+     */
+    void register(APIConfigurationReader reader) throws IOException {
+        Path file = Path.of(reader.getFilePath()).toAbsolutePath().normalize();
+        Path directory = file.getParent();
+        lock.lock();
+        try {
+            if (service == null) {
+                service = FileSystems.getDefault().newWatchService();
+                Thread thread = new Thread(this::run, "api-handler-configuration-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            if (!directories.containsValue(directory)) {
+                WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, directory);
+            }
+            List<APIConfigurationReader> fileReaders = readers.computeIfAbsent(file, f -> new CopyOnWriteArrayList<>());
+            if (!fileReaders.contains(reader))
+                fileReaders.add(reader);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Private procedure run by the watcher's thread, until the JVM exits.
+     */
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Thread.sleep(SETTLE_MILLIS);
+                Path directory = directories.get(key);
+                boolean overflow = false;
+                Set<Path> changed = new HashSet<>();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                        overflow = true;
+                    else if (directory != null)
+                        changed.add(directory.resolve((Path) event.context()));
+                }
+                if (!key.reset())
+                    directories.remove(key);
+
+                for (Map.Entry<Path, List<APIConfigurationReader>> entry : readers.entrySet()) {
+                    boolean inDirectory = entry.getKey().getParent().equals(directory);
+                    if (changed.contains(entry.getKey()) || (overflow && inDirectory)) {
+                        for (APIConfigurationReader reader : entry.getValue()) {
+                            reload(reader);
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Daemon thread: nothing left to do.
+        }
+    }
+
+    private static void reload(APIConfigurationReader reader) {
+        try {
+            reader.reload();
+        } catch (FileNotFoundException | RuntimeException e) {
+            System.err.println("ERROR: Configuration Options File could not be reloaded, previous options kept. " +
+                    "Check " + reader.getFilePath() + "\n\n" + e.getClass() + ": " + e.getMessage());
+        }
+    }
+}
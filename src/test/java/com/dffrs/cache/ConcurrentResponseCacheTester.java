@@ -0,0 +1,117 @@
+package com.dffrs.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentResponseCacheTester {
+
+    @Test
+    public void getAfterPutTest() {
+        ResponseCache<String, String> cache = new ConcurrentResponseCache<>(10, EvictionPolicy.LRU);
+        cache.put("obd2/P0001", "value");
+
+        Assert.assertEquals("value", cache.get("obd2/P0001"));
+        Assert.assertNull(cache.get("obd2/P0002"));
+    }
+
+    @Test
+    public void lruEvictsLeastRecentlyUsedTest() {
+        ResponseCache<String, String> cache = new ConcurrentResponseCache<>(2, EvictionPolicy.LRU);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertEquals(1, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void tinyLfuKeepsFrequentElementsTest() {
+        ResponseCache<String, String> cache = new ConcurrentResponseCache<>(100, EvictionPolicy.TINY_LFU);
+        for (int i = 0; i != 50; i++) {
+            cache.put("hot" + i, "value");
+        }
+        for (int round = 0; round != 5; round++) {
+            for (int i = 0; i != 50; i++) {
+                cache.get("hot" + i);
+            }
+        }
+        // A scan of keys seen only once should not push the popular ones out.
+        for (int i = 0; i != 1000; i++) {
+            cache.put("scan" + i, "value");
+        }
+
+        int kept = 0;
+        for (int i = 0; i != 50; i++) {
+            if (cache.get("hot" + i) != null)
+                kept++;
+        }
+        Assert.assertTrue(kept > 45);
+        Assert.assertTrue(cache.size() <= cache.getCapacity());
+    }
+
+    @Test
+    public void statsTest() {
+        ResponseCache<String, String> cache = new ConcurrentResponseCache<>(10, EvictionPolicy.TINY_LFU);
+        cache.put("a", "1");
+        cache.get("a");
+        cache.get("b");
+
+        CacheStats stats = cache.getStats();
+        Assert.assertEquals(1, stats.getHitCount());
+        Assert.assertEquals(1, stats.getMissCount());
+        Assert.assertEquals(0.5, stats.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void concurrentAccessTest() throws InterruptedException {
+        ResponseCache<String, String> cache = new ConcurrentResponseCache<>(512, EvictionPolicy.LRU);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> errors = new ArrayList<>();
+
+        for (int t = 0; t != 8; t++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i != 10_000; i++) {
+                        String key = "key" + (i % 1024);
+                        if (cache.get(key) == null)
+                            cache.put(key, key);
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Assert.assertTrue(errors.isEmpty());
+        Assert.assertTrue(cache.size() <= 512);
+        Assert.assertEquals(80_000, cache.getStats().getRequestCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCapacityTest() {
+        new ConcurrentResponseCache<String, String>(0, EvictionPolicy.LRU);
+    }
+
+    @Test
+    public void policyFromIdentifierTest() {
+        Assert.assertEquals(EvictionPolicy.TINY_LFU, EvictionPolicy.fromIdentifier("TinyLFU"));
+        Assert.assertEquals(EvictionPolicy.LRU, EvictionPolicy.fromIdentifier("lru"));
+    }
+}
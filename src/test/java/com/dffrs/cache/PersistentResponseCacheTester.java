@@ -0,0 +1,124 @@
+package com.dffrs.cache;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class PersistentResponseCacheTester {
+    private static final ResponseCodec<String> CODEC = new ResponseCodec<>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PersistentResponseCache<String> open(Path directory, long maxBytes) throws IOException {
+        return new PersistentResponseCache<>(new ConcurrentResponseCache<>(16, EvictionPolicy.LRU), directory,
+                maxBytes, CODEC, value -> Long.MAX_VALUE);
+    }
+
+    @Test
+    public void survivesRestartTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (PersistentResponseCache<String> cache = open(directory, 1 << 20)) {
+            cache.put("obd2/P0001", "first");
+            cache.put("obd2/P0002", "second");
+            cache.put("obd2/P0001", "replaced");
+            cache.invalidate("obd2/P0002");
+        }
+
+        try (PersistentResponseCache<String> cache = open(directory, 1 << 20)) {
+            Assert.assertEquals("replaced", cache.get("obd2/P0001"));
+            Assert.assertNull(cache.get("obd2/P0002"));
+            Assert.assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    public void directoryCanOnlyBeUsedOnceTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (PersistentResponseCache<String> cache = open(directory, 1 << 20)) {
+            Assert.assertThrows(IOException.class, () -> open(directory, 1 << 20));
+            Assert.assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void incompleteRecordIsDiscardedTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (PersistentResponseCache<String> cache = open(directory, 1 << 20)) {
+            cache.put("obd2/P0001", "first");
+        }
+        long validLength = Files.size(directory.resolve(DiskStore.DATA_FILE));
+        // Simulates a process stopped in the middle of a write.
+        try (FileChannel data = FileChannel.open(directory.resolve(DiskStore.DATA_FILE), StandardOpenOption.APPEND)) {
+            data.write(ByteBuffer.wrap(new byte[]{0x44, 0x48, 0x41, 0x52, 1, 2, 3}));
+        }
+
+        try (PersistentResponseCache<String> cache = open(directory, 1 << 20)) {
+            Assert.assertEquals("first", cache.get("obd2/P0001"));
+            Assert.assertEquals(validLength, cache.getDiskBytes());
+            cache.put("obd2/P0002", "second");
+            Assert.assertEquals("second", cache.get("obd2/P0002"));
+        }
+    }
+
+    @Test
+    public void missingIndexIsRebuiltTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (PersistentResponseCache<String> cache = open(directory, 1 << 20)) {
+            for (int i = 0; i != 2000; i++) { // Grows the index, at least once.
+                cache.put("obd2/P" + i, "value" + i);
+            }
+            cache.invalidate("obd2/P7");
+        }
+        Files.delete(directory.resolve(DiskStore.INDEX_FILE));
+
+        try (PersistentResponseCache<String> cache = open(directory, 1 << 20)) {
+            Assert.assertEquals(1999, cache.size());
+            Assert.assertEquals("value1234", cache.get("obd2/P1234"));
+            Assert.assertNull(cache.get("obd2/P7"));
+        }
+    }
+
+    @Test
+    public void compactionDropsExpiredAndOldestTest() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        long maxBytes = 16 * 1024;
+        try (PersistentResponseCache<String> cache = new PersistentResponseCache<>(
+                new ConcurrentResponseCache<>(16, EvictionPolicy.LRU), directory, maxBytes, CODEC,
+                value -> value.startsWith("expired") ? 0 : Long.MAX_VALUE)) {
+            cache.put("obd2/expired", "expired");
+            for (int i = 0; i != 1000; i++) {
+                cache.put("obd2/P" + i, "value" + i);
+            }
+
+            Assert.assertTrue(cache.getDiskBytes() <= maxBytes);
+            Assert.assertTrue(cache.getStats().getEvictionCount() > 0);
+            Assert.assertEquals("value999", cache.get("obd2/P999"));
+        }
+
+        try (PersistentResponseCache<String> cache = open(directory, maxBytes)) {
+            Assert.assertNull(cache.get("obd2/expired"));
+            Assert.assertNull(cache.get("obd2/P0"));
+            Assert.assertEquals("value999", cache.get("obd2/P999"));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.dffrs.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class RedisRemoteCacheTester {
+    private RedisStandIn server;
+    private RedisRemoteCache cache;
+
+    @Before
+    public void init() throws IOException {
+        server = new RedisStandIn("secret");
+        cache = new RedisRemoteCache(URI.create(server.getURI() + "/2"), Duration.ofSeconds(2), 2);
+    }
+
+    @After
+    public void close() throws IOException {
+        cache.close();
+        server.close();
+    }
+
+    @Test
+    public void getPutRemoveTest() throws IOException, InterruptedException {
+        byte[] value = "{\"code\":\"P0001\"}".getBytes(StandardCharsets.UTF_8);
+        Assert.assertNull(cache.get("obd2/P0001"));
+
+        cache.put("obd2/P0001", value, RemoteCache.NO_EXPIRY);
+        cache.put("obd2/P0002", value, 50);
+        Assert.assertArrayEquals(value, cache.get("obd2/P0001"));
+        Assert.assertArrayEquals(value, cache.get("obd2/P0002"));
+
+        cache.remove("obd2/P0001");
+        Thread.sleep(100);
+        Assert.assertNull(cache.get("obd2/P0001"));
+        Assert.assertNull(cache.get("obd2/P0002"));
+        // Connections are authenticated and reused.
+        Assert.assertEquals(1, server.getCommandCount("AUTH"));
+        Assert.assertEquals(1, server.getCommandCount("SELECT"));
+    }
+
+    @Test
+    public void wrongPasswordFailsTest() throws IOException {
+        try (RedisRemoteCache other = new RedisRemoteCache(
+                URI.create(server.getURI().replace("secret", "wrong")), Duration.ofSeconds(2), 1)) {
+            Assert.assertThrows(IOException.class, () -> other.get("obd2/P0001"));
+        }
+    }
+
+    @Test
+    public void invalidURIIsRejectedTest() {
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new RedisRemoteCache(URI.create("http://localhost:6379"), Duration.ofSeconds(1), 1));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new RedisRemoteCache(URI.create("redis://localhost/db"), Duration.ofSeconds(1), 1));
+    }
+
+    @Test
+    public void subscriptionSurvivesReconnectTest() throws IOException, InterruptedException {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        cache.subscribe("api-handler:invalidations", messages::add);
+        awaitSize(server, "SUBSCRIBE", 1);
+
+        cache.publish("api-handler:invalidations", "node obd2/P0001");
+        awaitMessages(messages, 1);
+        Assert.assertEquals("node obd2/P0001", messages.get(0));
+
+        server.dropConnections();
+        awaitSize(server, "SUBSCRIBE", 2);
+        awaitMessages(messages, 2);
+        Assert.assertNull(messages.get(1)); // Messages may have been lost meanwhile.
+
+        cache.publish("api-handler:invalidations", "node obd2/P0002");
+        awaitMessages(messages, 3);
+        Assert.assertEquals("node obd2/P0002", messages.get(2));
+    }
+
+    @Test
+    public void closedSubscriptionStopsMessagesTest() throws IOException, InterruptedException {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        Closeable subscription = cache.subscribe("api-handler:invalidations", messages::add);
+        awaitSize(server, "SUBSCRIBE", 1);
+
+        subscription.close();
+        cache.publish("api-handler:invalidations", "node obd2/P0001");
+        Thread.sleep(100);
+        Assert.assertTrue(messages.isEmpty());
+    }
+
+    @Test
+    public void malformedReplyFailsWithIOExceptionTest() throws IOException {
+        try (ServerSocket garbage = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            Thread responder = new Thread(() -> {
+                try (Socket socket = garbage.accept()) {
+                    socket.getOutputStream().write("$abc\r\n".getBytes(StandardCharsets.UTF_8));
+                    socket.getOutputStream().flush();
+                    socket.getInputStream().read();
+                } catch (IOException e) {
+                    // The client gave up.
+                }
+            });
+            responder.setDaemon(true);
+            responder.start();
+
+            try (RedisRemoteCache other = new RedisRemoteCache(
+                    URI.create("redis://127.0.0.1:" + garbage.getLocalPort()), Duration.ofSeconds(2), 1)) {
+                Assert.assertThrows(IOException.class, () -> other.get("obd2/P0001"));
+            }
+        }
+    }
+
+    private static void awaitSize(RedisStandIn server, String command, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getCommandCount(command) < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, server.getCommandCount(command));
+    }
+
+    private static void awaitMessages(List<String> messages, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (messages.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, messages.size());
+    }
+}
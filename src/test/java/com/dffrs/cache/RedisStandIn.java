@@ -0,0 +1,225 @@
+package com.dffrs.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for a Redis server, for tests. It speaks enough of the protocol for {@link RedisRemoteCache}:
+ * AUTH, SELECT, PING, GET, SET (with PX), DEL, PUBLISH and SUBSCRIBE, and counts the commands it receives.
+ */
+public class RedisStandIn implements Closeable {
+    private final ServerSocket server;
+    private final String password;
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+    private final Map<String, List<OutputStream>> subscribers = new ConcurrentHashMap<>();
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+    private final Map<String, AtomicLong> commands = new ConcurrentHashMap<>();
+
+    public RedisStandIn(String password) throws IOException {
+        this.password = password;
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "redis-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public String getURI() {
+        return "redis://" + (password == null ? "" : ":" + password + "@") + "127.0.0.1:" + server.getLocalPort();
+    }
+
+    public long getCommandCount(String command) {
+        AtomicLong count = commands.get(command);
+        return count == null ? 0 : count.get();
+    }
+
+    public byte[] getValue(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * Returns the epoch milliseconds at which the key expires, or a NULL Reference if it was set without PX.
+     */
+    public Long getExpiry(String key) {
+        return expiries.get(key);
+    }
+
+    /**
+     * Drops every connection, like a server restart, but keeps accepting new ones.
+     */
+    public void dropConnections() throws IOException {
+        for (Socket client : clients) {
+            client.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        dropConnections();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket client = server.accept();
+                clients.add(client);
+                Thread thread = new Thread(() -> serve(client), "redis-stand-in-client");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        boolean authenticated = password == null;
+        OutputStream out = null;
+        try (Socket socket = client) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                List<byte[]> command = readCommand(in);
+                if (command == null)
+                    return;
+                String name = new String(command.get(0), StandardCharsets.UTF_8).toUpperCase();
+                commands.computeIfAbsent(name, k -> new AtomicLong()).incrementAndGet();
+                synchronized (out) {
+                    if (name.equals("AUTH")) {
+                        authenticated = password.equals(string(command.get(command.size() - 1)));
+                        writeLine(out, authenticated ? "+OK" : "-WRONGPASS invalid password");
+                    } else if (!authenticated) {
+                        writeLine(out, "-NOAUTH Authentication required.");
+                    } else {
+                        execute(name, command, out);
+                    }
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Client gone.
+        } finally {
+            clients.remove(client);
+            for (List<OutputStream> outputs : subscribers.values()) {
+                outputs.remove(out);
+            }
+        }
+    }
+
+    private void execute(String name, List<byte[]> command, OutputStream out) throws IOException {
+        switch (name) {
+            case "PING":
+            case "SELECT":
+                writeLine(out, "+OK");
+                break;
+            case "GET": {
+                String key = string(command.get(1));
+                Long expiry = expiries.get(key);
+                if (expiry != null && expiry <= System.currentTimeMillis()) {
+                    values.remove(key);
+                    expiries.remove(key);
+                }
+                writeBulk(out, values.get(key));
+                break;
+            }
+            case "SET": {
+                String key = string(command.get(1));
+                values.put(key, command.get(2));
+                if (command.size() == 5)
+                    expiries.put(key, System.currentTimeMillis() + Long.parseLong(string(command.get(4))));
+                else
+                    expiries.remove(key);
+                writeLine(out, "+OK");
+                break;
+            }
+            case "DEL":
+                writeLine(out, ":" + (values.remove(string(command.get(1))) == null ? 0 : 1));
+                break;
+            case "PUBLISH": {
+                List<OutputStream> outputs = subscribers.getOrDefault(string(command.get(1)), List.of());
+                for (OutputStream subscriber : outputs) {
+                    synchronized (subscriber) {
+                        subscriber.write(("*3\r\n$7\r\nmessage\r\n").getBytes(StandardCharsets.UTF_8));
+                        writeBulk(subscriber, command.get(1));
+                        writeBulk(subscriber, command.get(2));
+                        subscriber.flush();
+                    }
+                }
+                writeLine(out, ":" + outputs.size());
+                break;
+            }
+            case "SUBSCRIBE":
+                subscribers.computeIfAbsent(string(command.get(1)), k -> new CopyOnWriteArrayList<>()).add(out);
+                out.write(("*3\r\n$9\r\nsubscribe\r\n").getBytes(StandardCharsets.UTF_8));
+                writeBulk(out, command.get(1));
+                writeLine(out, ":1");
+                break;
+            default:
+                writeLine(out, "-ERR unknown command '" + name + "'");
+        }
+    }
+
+    private static List<byte[]> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1)
+            return null;
+        if (type != '*')
+            throw new IOException("Inline commands are not supported.");
+        int count = Integer.parseInt(readLine(in));
+        List<byte[]> args = new ArrayList<>(count);
+        for (int i = 0; i != count; i++) {
+            if (in.read() != '$')
+                throw new IOException("Bulk string expected.");
+            int length = Integer.parseInt(readLine(in));
+            args.add(in.readNBytes(length));
+            in.read();
+            in.read();
+        }
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c == -1)
+                throw new IOException("Connection closed.");
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private static void writeLine(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            writeLine(out, "$-1");
+            return;
+        }
+        writeLine(out, "$" + value.length);
+        out.write(value);
+        writeLine(out, "");
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,191 @@
+package com.dffrs.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+public class SharedResponseCacheTester {
+    private static final ResponseCodec<String> CODEC = new ResponseCodec<>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    private RedisStandIn server;
+    private final List<SharedResponseCache<String>> nodes = new ArrayList<>();
+
+    @Before
+    public void init() throws IOException {
+        server = new RedisStandIn(null);
+    }
+
+    @After
+    public void close() throws IOException {
+        for (SharedResponseCache<String> node : nodes) {
+            node.close();
+        }
+        server.close();
+    }
+
+    private SharedResponseCache<String> node(String uri) throws IOException {
+        SharedResponseCache<String> node = new SharedResponseCache<>(
+                new ConcurrentResponseCache<>(16, EvictionPolicy.LRU),
+                new RedisRemoteCache(URI.create(uri), Duration.ofMillis(500), 4), CODEC,
+                value -> value.startsWith("expired") ? 0 : Long.MAX_VALUE, "api-handler:test");
+        nodes.add(node);
+        return node;
+    }
+
+    @Test
+    public void nodesShareResponsesTest() throws IOException, InterruptedException {
+        SharedResponseCache<String> first = node(server.getURI());
+        SharedResponseCache<String> second = node(server.getURI());
+        first.put("obd2/P0001", "first");
+        first.put("obd2/expired", "expired");
+        awaitRemote("api-handler:test:obd2/P0001", "first");
+
+        Assert.assertEquals("first", second.get("obd2/P0001"));
+        Assert.assertEquals(1, second.getRemoteHitCount());
+        Assert.assertEquals("first", second.get("obd2/P0001")); // Now on its local tier.
+        Assert.assertEquals(1, second.getRemoteHitCount());
+        Assert.assertNull(second.get("obd2/expired"));
+    }
+
+    @Test
+    public void updatesInvalidateOtherNodesTest() throws IOException, InterruptedException {
+        SharedResponseCache<String> first = node(server.getURI());
+        SharedResponseCache<String> second = node(server.getURI());
+        awaitSubscribers(2);
+        first.put("obd2/P0001", "first");
+        awaitRemote("api-handler:test:obd2/P0001", "first");
+        Assert.assertEquals("first", second.get("obd2/P0001"));
+
+        first.put("obd2/P0001", "replaced");
+        awaitValue(second, "obd2/P0001", "replaced");
+        first.invalidate("obd2/P0001");
+        awaitValue(second, "obd2/P0001", null);
+        Assert.assertNull(first.get("obd2/P0001"));
+        awaitRemote("api-handler:test:obd2/P0001", null); // The update and the invalidation were not reordered.
+    }
+
+    @Test
+    public void concurrentMissesShareLookupTest() throws IOException, InterruptedException {
+        SharedResponseCache<String> first = node(server.getURI());
+        SharedResponseCache<String> second = node(server.getURI());
+        first.put("obd2/P0001", "first");
+        awaitRemote("api-handler:test:obd2/P0001", "first");
+        long lookups = server.getCommandCount("GET");
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i != 8; i++) {
+            results.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return second.get("obd2/P0001");
+            }));
+        }
+        start.countDown();
+        for (CompletableFuture<String> result : results) {
+            Assert.assertEquals("first", result.join());
+        }
+        Assert.assertTrue(server.getCommandCount("GET") - lookups < 8);
+    }
+
+    @Test
+    public void asyncLookupDoesNotBlockCallerTest() throws IOException, InterruptedException {
+        SharedResponseCache<String> first = node(server.getURI());
+        SharedResponseCache<String> second = node(server.getURI());
+        first.put("obd2/P0001", "first");
+        awaitRemote("api-handler:test:obd2/P0001", "first");
+
+        Assert.assertTrue(first.getAsync("obd2/P0001").isDone()); // Local hit.
+        CompletableFuture<String> remote = second.getAsync("obd2/P0001");
+        Assert.assertEquals("first", remote.join());
+        Assert.assertEquals(1, second.getRemoteHitCount());
+        Assert.assertNull(second.getAsync("obd2/P0002").join());
+        Assert.assertEquals(1, second.getStats().getMissCount()); // The local miss is not counted twice.
+        Assert.assertEquals(1, second.getStats().getHitCount());
+    }
+
+    @Test
+    public void namespaceChangeStopsSharingTest() throws IOException, InterruptedException {
+        SharedResponseCache<String> first = node(server.getURI());
+        SharedResponseCache<String> second = node(server.getURI());
+        awaitSubscribers(2);
+        first.put("obd2/P0001", "first");
+        awaitRemote("api-handler:test:obd2/P0001", "first");
+        Assert.assertEquals("first", second.get("obd2/P0001"));
+
+        second.setNamespace("api-handler:other");
+        awaitSubscribers(3);
+        Assert.assertNull(second.get("obd2/P0001")); // Neither the local copy, nor the previous namespace's.
+        second.put("obd2/P0001", "second");
+        awaitRemote("api-handler:other:obd2/P0001", "second");
+        Assert.assertArrayEquals("first".getBytes(StandardCharsets.UTF_8),
+                server.getValue("api-handler:test:obd2/P0001"));
+
+        // The previous namespace's announcements are no longer received.
+        first.put("obd2/P0001", "replaced");
+        Thread.sleep(100);
+        Assert.assertEquals("second", second.get("obd2/P0001"));
+        Assert.assertEquals("replaced", first.get("obd2/P0001"));
+    }
+
+    @Test
+    public void unreachableRemoteFallsBackToLocalTest() throws IOException {
+        server.close();
+        SharedResponseCache<String> node = node(server.getURI());
+        node.put("obd2/P0001", "local");
+
+        Assert.assertEquals("local", node.get("obd2/P0001"));
+        Assert.assertNull(node.get("obd2/P0002"));
+        Assert.assertEquals(1, node.getStats().getHitCount());
+    }
+
+    private void awaitSubscribers(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getCommandCount("SUBSCRIBE") < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void awaitRemote(String key, String expected) throws InterruptedException {
+        byte[] bytes = expected == null ? null : expected.getBytes(StandardCharsets.UTF_8);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Arrays.equals(bytes, server.getValue(key)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertArrayEquals(bytes, server.getValue(key));
+    }
+
+    private static void awaitValue(SharedResponseCache<String> node, String key, String expected)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Objects.equals(expected, node.get(key)) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expected, node.get(key));
+    }
+}
@@ -0,0 +1,86 @@
+package com.dffrs.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class TieredResponseCacheTester {
+    private static final ResponseCodec<String> CODEC = new ResponseCodec<>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    @Test
+    public void evictedElementsAreDemotedTest() {
+        TieredResponseCache<String, String> cache = new TieredResponseCache<>(2, EvictionPolicy.LRU, 4096, false, CODEC);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+
+        Assert.assertEquals(1, cache.getOffHeapSize());
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals("1", cache.get("a")); // Promoted back, demoting "b".
+        Assert.assertEquals("2", cache.get("b"));
+        Assert.assertEquals(0, cache.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void offHeapTierIsBoundedByBytesTest() {
+        TieredResponseCache<String, String> cache = new TieredResponseCache<>(1, EvictionPolicy.LRU,
+                4 * OffHeapStore.BLOCK_SIZE, false, CODEC);
+        char[] large = new char[OffHeapStore.BLOCK_SIZE + 1]; // Takes two blocks.
+        Arrays.fill(large, 'x');
+        for (int i = 0; i != 5; i++) {
+            cache.put("k" + i, new String(large));
+        }
+
+        Assert.assertEquals(2, cache.getOffHeapSize());
+        Assert.assertEquals(cache.getOffHeapMaxBytes(), cache.getOffHeapUsedBytes());
+        Assert.assertEquals(2, cache.getStats().getEvictionCount());
+        Assert.assertNull(cache.get("k0"));
+        Assert.assertNotNull(cache.get("k2"));
+    }
+
+    @Test
+    public void invalidateRemovesFromBothTiersTest() {
+        TieredResponseCache<String, String> cache = new TieredResponseCache<>(1, EvictionPolicy.LRU, 4096, false, CODEC);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.invalidate("a");
+        cache.invalidate("b");
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getOffHeapUsedBytes());
+    }
+
+    @Test
+    public void compressedValuesRoundTripTest() {
+        OffHeapStore<String> store = new OffHeapStore<>(4096, true);
+        char[] repetitive = new char[3 * OffHeapStore.BLOCK_SIZE];
+        Arrays.fill(repetitive, 'a');
+        byte[] value = new String(repetitive).getBytes(StandardCharsets.UTF_8);
+
+        Assert.assertTrue(store.put("a", value));
+        Assert.assertEquals(OffHeapStore.BLOCK_SIZE, store.getUsedBytes());
+        Assert.assertArrayEquals(value, store.get("a"));
+        Assert.assertArrayEquals(value, store.remove("a"));
+        Assert.assertNull(store.get("a"));
+    }
+
+    @Test
+    public void valueLargerThanStoreIsRejectedTest() {
+        OffHeapStore<String> store = new OffHeapStore<>(OffHeapStore.BLOCK_SIZE, false);
+
+        Assert.assertFalse(store.put("a", new byte[OffHeapStore.BLOCK_SIZE + 1]));
+        Assert.assertEquals(0, store.size());
+    }
+}
@@ -1,22 +1,49 @@
 package com.dffrs.handler;
 
+import com.dffrs.cache.RedisStandIn;
+import com.dffrs.metrics.EndpointMetrics;
+import com.dffrs.metrics.InMemoryMetrics;
+import com.dffrs.replay.Recording;
+import com.dffrs.replay.ReplayServer;
+import com.dffrs.transport.StreamingResponse;
+import com.dffrs.transport.StubTransport;
+import com.dffrs.transport.TransportRequest;
+import com.dffrs.util.APIConfigurationReader;
 import com.mashape.unirest.http.HttpResponse;
 import com.mashape.unirest.http.JsonNode;
 import com.mashape.unirest.http.exceptions.UnirestException;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class APIHandlerTester {
+    private static final String REMOTE_P0001 = "api-handler:https://car-code.p.rapidapi.com:obd2/P0001";
+
     URL APIWithNoParameters = getClass().getResource("/testFileAPIWithNoParameters.txt");
     URL APIWithParameters = getClass().getResource("/testFileAPIWithParameters.txt");
+    URL APIWithRawCacheStorage = getClass().getResource("/testFileAPIWithRawCacheStorage.txt");
+    URL APIWithOffHeapCache = getClass().getResource("/testFileAPIWithOffHeapCache.txt");
+    URL APIWithResilience = getClass().getResource("/testFileAPIWithResilience.txt");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
 
     APIHandler handler;
     String testFilePathWithParameters = "";
@@ -93,4 +120,489 @@ public class APIHandlerTester {
 
         Assert.assertEquals(response, response2);
     }
+
+    @Test
+    public void makeAPICallAsyncWithCacheTest() {
+        List<String> valuesList = List.of("P0001");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        CompletableFuture<HttpResponse<JsonNode>> future =
+                handler.makeAPIRequestAsync(new APIHandler.Request(null, valuesList), executor);
+        HttpResponse<JsonNode> response = future.join();
+        Assert.assertNotNull(response);
+
+        // Cache hit: completes without waiting.
+        CompletableFuture<HttpResponse<JsonNode>> future2 =
+                handler.makeAPIRequestAsync(new APIHandler.Request(null, valuesList), executor);
+        Assert.assertTrue(future2.isDone());
+        Assert.assertEquals(response, future2.join());
+
+        executor.shutdown();
+    }
+
+    @Test
+    public void makeAPICallsInBatchTest() {
+        List<APIHandler.Request> requests = List.of(
+                new APIHandler.Request(null, List.of("P0001")),
+                new APIHandler.Request(null, List.of("P0002")),
+                new APIHandler.Request(null, List.of("P0001")));
+
+        List<BatchResult> results = handler.makeAPIRequests(requests);
+
+        Assert.assertEquals(requests.size(), results.size());
+        Assert.assertTrue(results.get(0).isSuccess());
+        // Duplicated requests share the same response.
+        Assert.assertEquals(results.get(0).getResponse(), results.get(2).getResponse());
+        Assert.assertNotEquals(results.get(0).getResponse(), results.get(1).getResponse());
+    }
+
+    @Test
+    public void invalidRequestsOnlyFailTheirOwnResultTest() throws IOException {
+        Path configuration = folder.newFile().toPath();
+        Files.writeString(configuration, "host -> https://car-code.p.rapidapi.com\n" +
+                "endpoint -> obd2/{code}/{system}\n");
+        StubTransport transport = StubTransport.echo();
+        handler = APIHandler.getInstance(configuration.toString(), transport);
+        List<APIHandler.Request> requests = new ArrayList<>();
+        requests.add(new APIHandler.Request(null, List.of("P0001", "engine")));
+        requests.add(null);
+        requests.add(new APIHandler.Request(null, List.of("P0002")));
+
+        List<BatchResult> results = handler.makeAPIRequests(requests);
+
+        Assert.assertEquals(3, results.size());
+        Assert.assertTrue(results.get(0).isSuccess());
+        Assert.assertTrue(results.get(1).getError() instanceof IllegalArgumentException);
+        Assert.assertTrue(results.get(2).getError() instanceof IllegalArgumentException);
+        Assert.assertEquals(1, transport.getRequests().size());
+    }
+
+    @Test
+    public void closeReleasesPersistentCacheTest() throws IOException, UnirestException {
+        String configuration = newConfiguration("disk_cache_directory -> " + folder.newFolder().toPath() + "\n");
+        StubTransport firstTransport = StubTransport.echo();
+        APIHandler first = APIHandler.getInstance(configuration, firstTransport);
+        HttpResponse<JsonNode> response = first.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+        first.close();
+        first.close();
+
+        // The directory is free again, so the second handler reads what the first one cached.
+        StubTransport secondTransport = StubTransport.echo();
+        try (APIHandler second = APIHandler.getInstance(configuration, secondTransport)) {
+            Assert.assertEquals(response.getBody().toString(),
+                    second.makeAPIRequest(new APIHandler.Request(null, List.of("P0001"))).getBody().toString());
+            Assert.assertEquals(1, firstTransport.getRequests().size());
+            Assert.assertEquals(0, secondTransport.getRequests().size());
+        }
+
+        // Shared instances are forgotten once closed.
+        APIHandler shared = APIHandler.getInstance(configuration);
+        shared.close();
+        Assert.assertNotSame(shared, APIHandler.getInstance(configuration));
+        APIHandler.getInstance(configuration).close();
+    }
+
+    @Test
+    public void makeAPICallWithStubTransportTest() throws UnirestException {
+        StubTransport transport = StubTransport.echo();
+        handler = APIHandler.getInstance(testFilePathWithNoParameters, transport);
+
+        HttpResponse<JsonNode> response = handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+        HttpResponse<JsonNode> response2 = handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals(response, response2);
+        Assert.assertEquals(1, transport.getRequests().size());
+
+        TransportRequest sent = transport.getRequests().get(0);
+        Assert.assertTrue(sent.getUri().toString().startsWith(handler.getAPIParameterBy("host")));
+        Assert.assertEquals(handler.getAPIParameterBy("rapid_api_key"), sent.getHeader("x-rapidapi-key"));
+    }
+
+    @Test
+    public void revalidationWithETagTest() throws UnirestException {
+        AtomicInteger calls = new AtomicInteger();
+        StubTransport transport = new StubTransport(request -> {
+            if (calls.getAndIncrement() == 0)
+                return StubTransport.json(200, "{\"code\":\"P0001\"}", "ETag", "\"v1\"", "Cache-Control", "no-cache");
+            Assert.assertEquals("\"v1\"", request.getHeader("If-None-Match"));
+            return StubTransport.json(304, "");
+        });
+        handler = APIHandler.getInstance(testFilePathWithNoParameters, transport);
+
+        HttpResponse<JsonNode> response = handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+        HttpResponse<JsonNode> response2 = handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(response, response2);
+    }
+
+    @Test
+    public void errorResponsesAreNotCachedTest() throws UnirestException {
+        StubTransport transport = new StubTransport(request -> StubTransport.json(500, "{}"));
+        handler = APIHandler.getInstance(testFilePathWithNoParameters, transport);
+
+        handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+        handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+
+        Assert.assertEquals(2, transport.getRequests().size());
+    }
+
+    @Test
+    public void getInstancePerConfigurationFileTest() throws Exception {
+        APIHandler withParameters = APIHandler.getInstance(testFilePathWithParameters);
+
+        Assert.assertSame(handler, APIHandler.getInstance(testFilePathWithNoParameters));
+        Assert.assertNotSame(handler, withParameters);
+        Assert.assertNotEquals(handler.getAPIParameterBy("host"), withParameters.getAPIParameterBy("host"));
+        // Switching back and forth does not rebuild the handlers.
+        Assert.assertSame(withParameters, APIHandler.getInstance(testFilePathWithParameters));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<APIHandler>> futures = new ArrayList<>();
+        for (int i = 0; i != 16; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> APIHandler.getInstance(testFilePathWithParameters), executor));
+        }
+        for (CompletableFuture<APIHandler> future : futures) {
+            Assert.assertSame(withParameters, future.get());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void makeAPICallAsStreamTest() throws UnirestException, IOException {
+        StubTransport transport = StubTransport.echo();
+        handler = APIHandler.getInstance(testFilePathWithNoParameters, transport);
+        APIHandler.Request request = new APIHandler.Request(null, List.of("P0001"));
+
+        try (StreamingResponse stream = handler.makeAPIRequestAsStream(request)) {
+            Assert.assertEquals(200, stream.getStatus());
+            Assert.assertTrue(new String(stream.getBody().readAllBytes(), StandardCharsets.UTF_8).contains("P0001"));
+        }
+        // Streamed calls are not cached...
+        handler.makeAPIRequest(request);
+        Assert.assertEquals(2, transport.getRequests().size());
+
+        // ...but cached responses can be streamed, their body encoded again from the parsed response.
+        try (StreamingResponse stream = handler.makeAPIRequestAsStream(request)) {
+            Assert.assertTrue(new String(stream.getBody().readAllBytes(), StandardCharsets.UTF_8).contains("P0001"));
+        }
+        Assert.assertEquals(2, transport.getRequests().size());
+    }
+
+    @Test
+    public void rawCacheStorageTest() throws URISyntaxException, UnirestException {
+        StubTransport transport = StubTransport.echo();
+        handler = APIHandler.getInstance(APIWithRawCacheStorage.toURI().getPath(), transport);
+        APIHandler.Request request = new APIHandler.Request(null, List.of("P0001"));
+
+        HttpResponse<JsonNode> response = handler.makeAPIRequest(request);
+        HttpResponse<JsonNode> response2 = handler.makeAPIRequest(request);
+
+        Assert.assertEquals(1, transport.getRequests().size());
+        // Each hit parses the raw body again.
+        Assert.assertNotSame(response, response2);
+        Assert.assertEquals(response.getBody().toString(), response2.getBody().toString());
+    }
+
+    @Test
+    public void offHeapCacheTierTest() throws URISyntaxException, UnirestException {
+        StubTransport transport = StubTransport.echo();
+        handler = APIHandler.getInstance(APIWithOffHeapCache.toURI().getPath(), transport);
+        APIHandler.Request first = new APIHandler.Request(null, List.of("P0001"));
+        APIHandler.Request second = new APIHandler.Request(null, List.of("P0002"));
+
+        HttpResponse<JsonNode> response = handler.makeAPIRequest(first);
+        handler.makeAPIRequest(second); // Demotes the first response, since the heap tier keeps only one.
+        HttpResponse<JsonNode> promoted = handler.makeAPIRequest(first);
+
+        Assert.assertEquals(2, transport.getRequests().size());
+        Assert.assertEquals(response.getStatus(), promoted.getStatus());
+        Assert.assertEquals(response.getBody().toString(), promoted.getBody().toString());
+        Assert.assertEquals(response.getHeaders().getFirst("Content-Type"),
+                promoted.getHeaders().getFirst("Content-Type"));
+    }
+
+    @Test
+    public void metricsTest() throws UnirestException {
+        StubTransport transport = new StubTransport(request -> request.getUri().getPath().endsWith("P0002")
+                ? StubTransport.json(500, "{}") : StubTransport.json(200, "{}"));
+        handler = APIHandler.getInstance(testFilePathWithNoParameters, transport);
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        handler.setMetrics(metrics);
+
+        handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+        handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+        handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0002")));
+
+        EndpointMetrics endpoint = metrics.getEndpoint(handler.getAPIParameterBy("endpoint"));
+        Assert.assertEquals(3, endpoint.getRequestCount());
+        Assert.assertEquals(1, endpoint.getCacheHitCount());
+        Assert.assertEquals(2, endpoint.getCacheMissCount());
+        Assert.assertEquals(2, endpoint.getUpstreamCallCount());
+        Assert.assertEquals(0, endpoint.getInFlight());
+        Assert.assertEquals(Long.valueOf(1), endpoint.getErrorsByStatus().get(500));
+        Assert.assertEquals(2, endpoint.getUpstreamLatency().getCount());
+        Assert.assertEquals(1, metrics.getGauge(handler.getAPIParameterBy("endpoint") + ".cache.size"));
+    }
+
+    @Test
+    public void staleResponseWhileCircuitIsOpenTest() throws URISyntaxException, UnirestException {
+        AtomicInteger status = new AtomicInteger(200);
+        StubTransport transport = new StubTransport(request -> StubTransport.json(status.get(),
+                "{\"code\":\"P0001\"}", "ETag", "\"v1\"", "Cache-Control", "no-cache"));
+        handler = APIHandler.getInstance(APIWithResilience.toURI().getPath(), transport);
+        HttpResponse<JsonNode> cached = handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+
+        status.set(503);
+        // Each call is retried twice, and two failed calls open the circuit.
+        // The failed calls revalidate the very entry served stale afterwards.
+        Assert.assertEquals(503, handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001"))).getStatus());
+        Assert.assertEquals(503, handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001"))).getStatus());
+        Assert.assertEquals(7, transport.getRequests().size());
+
+        Assert.assertEquals(cached, handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001"))));
+        Assert.assertEquals(cached, handler.makeAPIRequestAsync(new APIHandler.Request(null, List.of("P0001"))).join());
+        Assert.assertThrows(UnirestException.class,
+                () -> handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0003"))));
+        Assert.assertEquals(7, transport.getRequests().size());
+    }
+
+    @Test
+    public void hotReloadKeepsCacheTest() throws IOException, UnirestException {
+        Path file = folder.newFile().toPath();
+        Files.writeString(file, configurationWithKey("https://car-code.p.rapidapi.com", "key-1"));
+        StubTransport transport = StubTransport.echo();
+        handler = APIHandler.getInstance(file.toString(), transport);
+        handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+
+        Files.writeString(file, configurationWithKey("https://car-code.p.rapidapi.com", "key-2"));
+        APIConfigurationReader.getInstance(file.toString()).reload();
+        handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001"))); // Still cached.
+        handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0002")));
+
+        Assert.assertEquals(2, transport.getRequests().size());
+        Assert.assertEquals("key-2", transport.getRequests().get(1).getHeader("x-rapidapi-key"));
+        Assert.assertEquals("key-2", handler.getAPIParameterBy("rapid_api_key"));
+
+        Files.writeString(file, configurationWithKey("https://other.p.rapidapi.com", "key-2"));
+        APIConfigurationReader.getInstance(file.toString()).reload();
+        handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001"))); // Other host: not cached.
+
+        Assert.assertEquals(3, transport.getRequests().size());
+        Assert.assertEquals("other.p.rapidapi.com", transport.getRequests().get(2).getUri().getHost());
+    }
+
+    @Test
+    public void refreshAheadTest() throws IOException, InterruptedException, UnirestException {
+        AtomicInteger version = new AtomicInteger();
+        StubTransport transport = new StubTransport(request ->
+                StubTransport.json(200, "{\"version\":" + version.incrementAndGet() + "}"));
+        handler = APIHandler.getInstance(newConfiguration("cache_ttl -> 1\nrefresh_ahead -> 0.5\n"), transport);
+        APIHandler.Request request = new APIHandler.Request(null, List.of("P0001"));
+        handler.makeAPIRequest(request);
+        handler.makeAPIRequest(request); // Not near its expiry yet.
+        Assert.assertEquals(1, transport.getRequests().size());
+
+        Thread.sleep(600);
+        // Still fresh, so the cached response is returned, and replaced in the background.
+        Assert.assertEquals(1, version(handler.makeAPIRequest(request)));
+        Assert.assertEquals(2, awaitVersion(request, 2));
+        Assert.assertEquals(2, transport.getRequests().size());
+    }
+
+    @Test
+    public void staleWhileRevalidateTest() throws IOException, InterruptedException, UnirestException {
+        AtomicInteger version = new AtomicInteger();
+        StubTransport transport = new StubTransport(request ->
+                StubTransport.json(200, "{\"version\":" + version.incrementAndGet() + "}"));
+        handler = APIHandler.getInstance(newConfiguration("cache_ttl -> 1\nstale_while_revalidate -> 60\n"),
+                transport);
+        APIHandler.Request request = new APIHandler.Request(null, List.of("P0001"));
+        handler.makeAPIRequest(request);
+
+        Thread.sleep(1100);
+        // Expired, but within the window: returned right away, and refreshed in the background.
+        Assert.assertEquals(1, version(handler.makeAPIRequest(request)));
+        Assert.assertEquals(2, awaitVersion(request, 2));
+        Assert.assertEquals(2, transport.getRequests().size());
+    }
+
+    @Test
+    public void staleWhileRevalidateHeaderTest() throws IOException, InterruptedException, UnirestException {
+        AtomicInteger version = new AtomicInteger();
+        StubTransport transport = new StubTransport(request -> StubTransport.json(200,
+                "{\"version\":" + version.incrementAndGet() + "}", "Cache-Control", "max-age=1, must-revalidate"));
+        handler = APIHandler.getInstance(newConfiguration("stale_while_revalidate -> 60\n"), transport);
+        APIHandler.Request request = new APIHandler.Request(null, List.of("P0001"));
+        handler.makeAPIRequest(request);
+
+        Thread.sleep(1100);
+        // The host does not allow stale responses: the caller waits for the new one.
+        Assert.assertEquals(2, version(handler.makeAPIRequest(request)));
+    }
+
+    @Test
+    public void canonicalRequestsShareEntryTest() throws URISyntaxException, UnirestException {
+        StubTransport transport = StubTransport.echo();
+        handler = APIHandler.getInstance(testFilePathWithParameters, transport);
+        handler.makeAPIRequest(new APIHandler.Request(List.of("q", "limit"), List.of("Kendrick Lamar", "10")));
+        handler.makeAPIRequest(new APIHandler.Request(List.of("limit", "q"), List.of("10", "Kendrick Lamar")));
+
+        Assert.assertEquals(1, transport.getRequests().size());
+    }
+
+    @Test
+    public void projectedResponseIsCachedTest() throws IOException, UnirestException {
+        StubTransport transport = new StubTransport(request -> StubTransport.json(200,
+                "{\"code\":\"P0001\",\"definition\":\"Fuel Volume Regulator\",\"causes\":[\"Wiring\"]}"));
+        handler = APIHandler.getInstance(newConfiguration(""), transport);
+        APIHandler.Request projected = new APIHandler.Request(null, List.of("P0001"), List.of("/definition"));
+
+        HttpResponse<JsonNode> response = handler.makeAPIRequest(projected);
+        Assert.assertEquals("{\"definition\":\"Fuel Volume Regulator\"}", response.getBody().toString());
+        Assert.assertEquals("https://car-code.p.rapidapi.com/obd2/P0001",
+                transport.getRequests().get(0).getUri().toString());
+        Assert.assertSame(response, handler.makeAPIRequest(
+                new APIHandler.Request(null, List.of("P0001"), List.of("/definition"))));
+
+        // Other projections, and the whole response, have their own entries.
+        Assert.assertTrue(handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001"))).getBody()
+                .getObject().has("causes"));
+        Assert.assertEquals(2, transport.getRequests().size());
+    }
+
+    @Test
+    public void projectedRequestIsStreamedWholeTest() throws IOException, UnirestException {
+        String body = "{\"code\":\"P0001\",\"definition\":\"Fuel Volume Regulator\"}";
+        StubTransport transport = new StubTransport(request -> StubTransport.json(200, body));
+        handler = APIHandler.getInstance(newConfiguration(""), transport);
+        APIHandler.Request projected = new APIHandler.Request(null, List.of("P0001"), List.of("/definition"));
+
+        // A cached projection is not streamed: the body is the same whether the call is cached or not.
+        handler.makeAPIRequest(projected);
+        try (StreamingResponse stream = handler.makeAPIRequestAsStream(projected)) {
+            Assert.assertEquals(body, new String(stream.getBody().readAllBytes(), StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(2, transport.getRequests().size());
+
+        handler.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+        try (StreamingResponse stream = handler.makeAPIRequestAsStream(projected)) {
+            Assert.assertEquals(body, new String(stream.getBody().readAllBytes(), StandardCharsets.UTF_8));
+        }
+        Assert.assertEquals(3, transport.getRequests().size());
+    }
+
+    @Test
+    public void replicasShareRemoteCacheTest() throws IOException, UnirestException, InterruptedException {
+        try (RedisStandIn server = new RedisStandIn(null)) {
+            String configuration = newConfiguration("remote_cache -> " + server.getURI() + "\n");
+            StubTransport firstTransport = StubTransport.echo();
+            StubTransport secondTransport = StubTransport.echo();
+            // Closed before the server, so they do not keep reconnecting to it.
+            try (APIHandler first = APIHandler.getInstance(configuration, firstTransport);
+                 APIHandler second = APIHandler.getInstance(configuration, secondTransport)) {
+                HttpResponse<JsonNode> response =
+                        first.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+                awaitRemoteKey(server, REMOTE_P0001);
+                Assert.assertEquals(response.getBody().toString(),
+                        second.makeAPIRequest(new APIHandler.Request(null, List.of("P0001"))).getBody().toString());
+                Assert.assertEquals(1, firstTransport.getRequests().size());
+                Assert.assertEquals(0, secondTransport.getRequests().size());
+            }
+        }
+    }
+
+    @Test
+    public void remoteCacheBoundsValidatorEntriesTest() throws IOException, UnirestException, InterruptedException {
+        try (RedisStandIn server = new RedisStandIn(null)) {
+            // Entries that can be revalidated outlive their freshness, but not indefinitely.
+            StubTransport transport = new StubTransport(request -> StubTransport.json(200, "{}",
+                    "ETag", "\"v1\"", "Cache-Control", "no-cache"));
+            long before = System.currentTimeMillis();
+            try (APIHandler remote = APIHandler.getInstance(
+                    newConfiguration("remote_cache -> " + server.getURI() + "\n"), transport)) {
+                remote.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+                awaitRemoteKey(server, REMOTE_P0001);
+            }
+
+            Long expiry = server.getExpiry(REMOTE_P0001);
+            Assert.assertNotNull(expiry);
+            Assert.assertTrue(expiry > before + 60 * 60 * 1000);
+            Assert.assertTrue(expiry <= System.currentTimeMillis() + 24L * 60 * 60 * 1000);
+        }
+    }
+
+    @Test
+    public void recordThenReplayTest() throws Exception {
+        Recording fixture = Recording.open(Path.of(getClass().getResource("/apiRecording.gz").toURI()));
+        try (ReplayServer upstream = new ReplayServer(fixture, Duration.ZERO, 0)) {
+            // Records what the (stand-in) host answers.
+            Path recordingFile = folder.getRoot().toPath().resolve("recorded.gz");
+            Path configuration = folder.newFile().toPath();
+            Files.writeString(configuration, "host -> " + upstream.getURI() + "\n" +
+                    "endpoint -> obd2\n" +
+                    "replay_mode -> record\n" +
+                    "replay_file -> recorded.gz\n");
+            APIHandler recorder = APIHandler.getInstance(configuration.toString());
+            Assert.assertNull(recorder.getReplayServer());
+            HttpResponse<JsonNode> recorded = recorder.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+            Assert.assertEquals(1, upstream.getRequestCount());
+            Assert.assertEquals(1, Recording.open(recordingFile).size());
+
+            // Replays it, without calling the host.
+            APIHandler replayer = APIHandler.getInstance(newConfiguration("replay_mode -> replay\n" +
+                    "replay_file -> " + recordingFile + "\n"));
+            HttpResponse<JsonNode> replayed = replayer.makeAPIRequest(new APIHandler.Request(null, List.of("P0001")));
+            Assert.assertEquals(recorded.getBody().toString(), replayed.getBody().toString());
+            Assert.assertEquals(1, replayer.getReplayServer().getRequestCount());
+            Assert.assertEquals(404, replayer.makeAPIRequest(new APIHandler.Request(null, List.of("P0003"))).getStatus());
+            Assert.assertEquals(1, upstream.getRequestCount());
+        }
+    }
+
+    private String newConfiguration(String options) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.writeString(file, "host -> https://car-code.p.rapidapi.com\n" +
+                "endpoint -> obd2\n" + options);
+        return file.toString();
+    }
+
+    /**
+     * Private procedure to wait for the remote cache tier's write, which runs in the background.
+     */
+    private static void awaitRemoteKey(RedisStandIn server, String key) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.getValue(key) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertNotNull(server.getValue(key));
+    }
+
+    private static int version(HttpResponse<JsonNode> response) {
+        return response.getBody().getObject().getInt("version");
+    }
+
+    /**
+     * Private method to read a request until the background refresh replaced its cached response.
+     */
+    private int awaitVersion(APIHandler.Request request, int expected) throws InterruptedException, UnirestException {
+        long deadline = System.currentTimeMillis() + 5000;
+        int current = version(handler.makeAPIRequest(request));
+        while (current < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            current = version(handler.makeAPIRequest(request));
+        }
+        return current;
+    }
+
+    private static String configurationWithKey(String host, String key) {
+        return "host -> " + host + "\n" +
+                "rapid_api_host -> car-code.p.rapidapi.com\n" +
+                "rapid_api_key -> " + key + "\n" +
+                "header -> x-rapidapi-host\n" +
+                "header -> x-rapidapi-key\n" +
+                "endpoint -> obd2\n" +
+                "hot_reload -> true\n";
+    }
 }
@@ -0,0 +1,86 @@
+package com.dffrs.handler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CacheDirectivesTester {
+    private static final long DEFAULT_TTL = 300_000;
+    private static final long NEGATIVE_TTL = 30_000;
+    private static final long NOW = 1_600_000_000_000L;
+
+    private static Map<String, List<String>> headers(String... nameValues) {
+        Map<String, List<String>> headers = new HashMap<>();
+        for (int i = 0; i < nameValues.length; i += 2) {
+            headers.put(nameValues[i], List.of(nameValues[i + 1]));
+        }
+        return headers;
+    }
+
+    private static long lifetime(int status, Map<String, List<String>> headers) {
+        return CacheDirectives.freshnessLifetime(status, headers, DEFAULT_TTL, NEGATIVE_TTL, NOW);
+    }
+
+    @Test
+    public void defaultTtlTest() {
+        Assert.assertEquals(DEFAULT_TTL, lifetime(200, headers()));
+        Assert.assertEquals(NEGATIVE_TTL, lifetime(404, headers()));
+    }
+
+    @Test
+    public void maxAgeTest() {
+        Assert.assertEquals(60_000, lifetime(200, headers("cache-control", "public, max-age=60")));
+    }
+
+    @Test
+    public void noStoreTest() {
+        Assert.assertEquals(CacheDirectives.NOT_STORABLE, lifetime(200, headers("Cache-Control", "no-store")));
+        Assert.assertEquals(0, lifetime(200, headers("Cache-Control", "no-cache")));
+    }
+
+    @Test
+    public void directivesOrderDoesNotMatterTest() {
+        Assert.assertEquals(CacheDirectives.NOT_STORABLE,
+                lifetime(200, headers("Cache-Control", "max-age=60, no-store")));
+        Assert.assertEquals(0, lifetime(200, headers("Cache-Control", "max-age=60, no-cache")));
+        Assert.assertEquals(CacheDirectives.NOT_STORABLE,
+                lifetime(200, headers("Cache-Control", "no-cache, max-age=60, no-store")));
+        Assert.assertEquals(0, lifetime(200, headers("Cache-Control", "max-age=60, no-cache",
+                "Expires", "Sun, 13 Sep 2020 12:36:40 GMT")));
+    }
+
+    @Test
+    public void staleWhileRevalidateTest() {
+        Assert.assertEquals(30_000, CacheDirectives.staleWhileRevalidate(
+                headers("Cache-Control", "max-age=60, stale-while-revalidate=30"), 5_000));
+        Assert.assertEquals(5_000, CacheDirectives.staleWhileRevalidate(headers("Cache-Control", "max-age=60"), 5_000));
+        Assert.assertEquals(0, CacheDirectives.staleWhileRevalidate(
+                headers("Cache-Control", "stale-while-revalidate=30, must-revalidate"), 5_000));
+        Assert.assertEquals(0, CacheDirectives.staleWhileRevalidate(
+                headers("Cache-Control", "stale-while-revalidate=30, no-cache"), 5_000));
+    }
+
+    @Test
+    public void expiresTest() {
+        Map<String, List<String>> h = headers(
+                "Date", "Sun, 13 Sep 2020 12:26:40 GMT",
+                "Expires", "Sun, 13 Sep 2020 12:36:40 GMT");
+        Assert.assertEquals(600_000, lifetime(200, h));
+        Assert.assertEquals(0, lifetime(200, headers("Expires", "0")));
+    }
+
+    @Test
+    public void errorStatusIsNotStorableTest() {
+        Assert.assertEquals(CacheDirectives.NOT_STORABLE, lifetime(500, headers("Cache-Control", "max-age=60")));
+        Assert.assertEquals(CacheDirectives.NOT_STORABLE, lifetime(429, headers()));
+    }
+
+    @Test
+    public void firstHeaderIgnoresCaseTest() {
+        Assert.assertEquals("\"abc\"", CacheDirectives.firstHeader(headers("etag", "\"abc\""), "ETag"));
+        Assert.assertNull(CacheDirectives.firstHeader(headers(), "ETag"));
+    }
+}
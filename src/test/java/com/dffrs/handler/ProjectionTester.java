@@ -0,0 +1,69 @@
+package com.dffrs.handler;
+
+import com.dffrs.transport.TransportResponse;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+public class ProjectionTester {
+    private static final String BODY = "{\"code\":\"P0001\",\"definition\":\"Fuel Volume Regulator\"," +
+            "\"causes\":[{\"name\":\"Wiring\",\"weight\":1},{\"name\":\"Sensor\",\"weight\":2}]," +
+            "\"a/b\":{\"c~d\":true},\"empty\":null}";
+
+    private static JSONObject project(List<String> pointers, String body) {
+        TransportResponse response = new TransportResponse(200, Map.of("Content-Length", List.of("999"),
+                "ETag", List.of("\"v1\"")), body.getBytes(StandardCharsets.UTF_8));
+        TransportResponse projected = Projection.compile(pointers).apply(response);
+        Assert.assertFalse(projected.getHeaders().containsKey("Content-Length"));
+        Assert.assertEquals(List.of("\"v1\""), projected.getHeaders().get("ETag"));
+        return new JSONObject(new String(projected.getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void keepsOnlyProjectedValuesTest() {
+        JSONObject projected = project(List.of("/code", "/causes/1/name", "/a~1b/c~0d", "/empty", "/missing",
+                "/code/inside", "/causes/x"), BODY);
+
+        Assert.assertEquals("P0001", projected.getString("code"));
+        Assert.assertFalse(projected.has("definition"));
+        Assert.assertFalse(projected.has("missing"));
+        Assert.assertTrue(projected.isNull("empty"));
+        Assert.assertTrue(projected.getJSONArray("causes").isNull(0));
+        Assert.assertEquals("Sensor", projected.getJSONArray("causes").getJSONObject(1).getString("name"));
+        Assert.assertFalse(projected.getJSONArray("causes").getJSONObject(1).has("weight"));
+        Assert.assertTrue(projected.getJSONObject("a/b").getBoolean("c~d"));
+    }
+
+    @Test
+    public void sameFieldsMakeSameKeyTest() {
+        Projection projection = Projection.compile(List.of("/definition", "/code", "/causes/0", "/causes"));
+        Assert.assertEquals(Projection.compile(List.of("/code", "/causes", "/definition")).getKeySuffix(),
+                projection.getKeySuffix());
+        Assert.assertEquals(" %2Fcauses,%2Fcode,%2Fdefinition", projection.getKeySuffix());
+
+        // Pointers sorting between a pointer and the ones inside it do not keep those.
+        Assert.assertEquals(Projection.compile(List.of("/a", "/a-b")).getKeySuffix(),
+                Projection.compile(List.of("/a", "/a-b", "/a/b")).getKeySuffix());
+        Assert.assertEquals(Projection.compile(List.of("/a", "/a.b")).getKeySuffix(),
+                Projection.compile(List.of("/a/b/c", "/a.b", "/a")).getKeySuffix());
+
+        APICall call = new APICall(RequestTemplate.compile(Map.of("endpoint", "obd2")), "obd2/P0001", projection);
+        Assert.assertEquals("obd2/P0001" + projection.getKeySuffix(), call.getKey());
+        Assert.assertEquals("obd2/P0001", call.getUpstreamCall());
+        Assert.assertSame(projection, call.getProjection());
+    }
+
+    @Test
+    public void wholeDocumentIsNotProjectedTest() {
+        Assert.assertNull(Projection.compile(List.of()));
+        Assert.assertNull(Projection.compile(List.of("/code", "")));
+        Assert.assertThrows(IllegalArgumentException.class, () -> Projection.compile(List.of("code")));
+
+        TransportResponse notJson = new TransportResponse(200, Map.of(), "plain".getBytes(StandardCharsets.UTF_8));
+        Assert.assertSame(notJson, Projection.compile(List.of("/code")).apply(notJson));
+    }
+}
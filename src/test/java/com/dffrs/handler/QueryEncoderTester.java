@@ -0,0 +1,79 @@
+package com.dffrs.handler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class QueryEncoderTester {
+
+    @Test
+    public void buildQueryTest() {
+        String query = new APIHandler.Request(List.of("q", "limit"), List.of("Kendrick Lamar", "10")).getQuery();
+
+        Assert.assertEquals("?limit=10&q=Kendrick+Lamar", query);
+        Assert.assertEquals("", new APIHandler.Request(List.of(), List.of()).getQuery());
+    }
+
+    @Test
+    public void canonicalQueryTest() {
+        Assert.assertEquals(new APIHandler.Request(List.of("a", "b"), List.of("1", "2")).getQuery(),
+                new APIHandler.Request(List.of("b", "a"), List.of("2", "1")).getQuery());
+        // Params with the same name keep their order.
+        Assert.assertEquals("?a=2&a=1&b=3",
+                new APIHandler.Request(List.of("b", "a", "a"), List.of("3", "2", "1")).getQuery());
+
+        String encoded = "?my+name=x";
+        Assert.assertEquals(encoded, new APIHandler.Request(List.of("my name"), List.of("x")).getQuery());
+        Assert.assertEquals(encoded, new APIHandler.Request(List.of("my%20name"), List.of("x")).getQuery());
+        Assert.assertEquals(encoded, new APIHandler.Request(List.of("my+name"), List.of("x")).getQuery());
+        Assert.assertEquals("?100%25=x", new APIHandler.Request(List.of("100%"), List.of("x")).getQuery());
+        Assert.assertEquals("?filter%5Bname%5D=x",
+                new APIHandler.Request(List.of("filter[name]"), List.of("x")).getQuery());
+    }
+
+    @Test
+    public void encodingMatchesURLEncoderTest() {
+        List<String> values = new ArrayList<>(List.of("", "plain-value_1.0*", "a b", "100%", "a&b=c/d?e",
+                "ação", "日本語", "emoji 😀", "lone \uD800 surrogate", "\uDC00", "~!'()"));
+        Random random = new Random(42);
+        for (int i = 0; i != 1000; i++) {
+            char[] chars = new char[random.nextInt(12)];
+            for (int j = 0; j != chars.length; j++) {
+                chars[j] = (char) (random.nextBoolean() ? random.nextInt(0x80) : random.nextInt(0x10000));
+            }
+            values.add(new String(chars));
+        }
+
+        for (String value : values) {
+            StringBuilder encoded = new StringBuilder();
+            QueryEncoder.appendEncoded(encoded, value);
+            Assert.assertEquals(URLEncoder.encode(value, StandardCharsets.UTF_8), encoded.toString());
+        }
+    }
+
+    @Test
+    public void buildPathTest() {
+        Assert.assertEquals("P0001", new APIHandler.Request(null, List.of("P0001")).getQuery());
+        Assert.assertEquals("a%20b/c%2Fd/%C3%A7~:@",
+                new APIHandler.Request(null, List.of("a b", "c/d", "ç~:@")).getQuery());
+        Assert.assertThrows(IllegalArgumentException.class, () -> new APIHandler.Request(null, List.of()));
+    }
+
+    @Test
+    public void apiCallIsBuiltOnceTest() {
+        APIHandler.Request request = new APIHandler.Request(List.of("q"), List.of("value"));
+        RequestTemplate search = RequestTemplate.compile(Map.of("endpoint", "search"));
+
+        String apiCall = request.getAPICall(search);
+        Assert.assertEquals("search/?q=value", apiCall);
+        Assert.assertSame(apiCall, request.getAPICall(search));
+        Assert.assertEquals("other/?q=value",
+                request.getAPICall(RequestTemplate.compile(Map.of("endpoint", "other"))));
+    }
+}
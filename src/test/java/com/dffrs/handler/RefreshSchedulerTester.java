@@ -0,0 +1,100 @@
+package com.dffrs.handler;
+
+import com.dffrs.transport.TokenBucket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+public class RefreshSchedulerTester {
+    /**
+     * Refresher whose refreshes only finish when the test completes them.
+     */
+    private final Map<String, CompletableFuture<Void>> started = new LinkedHashMap<>();
+
+    private CompletableFuture<?> refresh(String key) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        started.put(key, future);
+        return future;
+    }
+
+    @Test
+    public void mostReadKeysGoFirstTest() {
+        RefreshScheduler<String> scheduler = new RefreshScheduler<>(this::refresh, 1, 16, null);
+        scheduler.schedule("obd2/P0001", 1);
+        scheduler.schedule("obd2/P0002", 3);
+        scheduler.schedule("obd2/P0003", 7);
+        scheduler.schedule("obd2/P0002", 9); // Raises its priority.
+
+        Assert.assertEquals(List.of("obd2/P0001"), new ArrayList<>(started.keySet()));
+        Assert.assertEquals(3, scheduler.pendingCount());
+
+        started.get("obd2/P0001").complete(null);
+        started.get("obd2/P0002").complete(null);
+        started.get("obd2/P0003").complete(null);
+        Assert.assertEquals(List.of("obd2/P0001", "obd2/P0002", "obd2/P0003"), new ArrayList<>(started.keySet()));
+        Assert.assertEquals(0, scheduler.pendingCount());
+    }
+
+    @Test
+    public void keysAreRefreshedOnceAtATimeTest() {
+        RefreshScheduler<String> scheduler = new RefreshScheduler<>(this::refresh, 2, 16, null);
+        Assert.assertTrue(scheduler.schedule("obd2/P0001", 1));
+        Assert.assertFalse(scheduler.schedule("obd2/P0001", 5)); // Being refreshed.
+        Assert.assertEquals(1, scheduler.getStartedCount());
+
+        started.get("obd2/P0001").completeExceptionally(new IllegalStateException());
+        Assert.assertTrue(scheduler.schedule("obd2/P0001", 6));
+        Assert.assertEquals(2, scheduler.getStartedCount());
+    }
+
+    @Test
+    public void leastReadKeysAreDroppedTest() {
+        RefreshScheduler<String> scheduler = new RefreshScheduler<>(this::refresh, 1, 2, null);
+        scheduler.schedule("obd2/P0001", 1); // Running.
+        scheduler.schedule("obd2/P0002", 2);
+        scheduler.schedule("obd2/P0003", 4);
+        Assert.assertFalse(scheduler.schedule("obd2/P0004", 1));
+        Assert.assertTrue(scheduler.schedule("obd2/P0005", 3)); // Replaces P0002.
+        Assert.assertEquals(2, scheduler.getDroppedCount());
+
+        started.get("obd2/P0001").complete(null);
+        started.get("obd2/P0003").complete(null);
+        Assert.assertEquals(List.of("obd2/P0001", "obd2/P0003", "obd2/P0005"), new ArrayList<>(started.keySet()));
+    }
+
+    @Test
+    public void doneIsReportedOnFinishAndDropTest() {
+        RefreshScheduler<String> scheduler = new RefreshScheduler<>(this::refresh, 1, 1, null);
+        List<String> done = new ArrayList<>();
+        scheduler.schedule("obd2/P0001", 1, () -> done.add("obd2/P0001")); // Running.
+        scheduler.schedule("obd2/P0002", 1, () -> done.add("obd2/P0002"));
+        scheduler.schedule("obd2/P0003", 2, () -> done.add("obd2/P0003")); // Replaces P0002.
+        Assert.assertEquals(List.of("obd2/P0002"), done);
+
+        started.get("obd2/P0001").completeExceptionally(new IllegalStateException());
+        Assert.assertEquals(List.of("obd2/P0002", "obd2/P0001"), done);
+        started.get("obd2/P0003").complete(null);
+        Assert.assertEquals(List.of("obd2/P0002", "obd2/P0001", "obd2/P0003"), done);
+    }
+
+    @Test
+    public void budgetLimitsRefreshesTest() throws InterruptedException {
+        RefreshScheduler<String> scheduler = new RefreshScheduler<>(key -> CompletableFuture.completedFuture(null),
+                4, 16, new TokenBucket(20, 1));
+        for (int i = 0; i != 5; i++) {
+            scheduler.schedule("obd2/P000" + i, 1);
+        }
+        Assert.assertEquals(1, scheduler.getStartedCount());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.pendingCount() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(5, scheduler.getStartedCount());
+    }
+}
@@ -0,0 +1,68 @@
+package com.dffrs.handler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestCoalescerTester {
+
+    @Test
+    public void concurrentCallersShareOneCallTest() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        List<CompletableFuture<String>> waiters = new ArrayList<>();
+        for (int i = 0; i != 10; i++) {
+            waiters.add(coalescer.execute("obd2/P0001", key -> {
+                calls.incrementAndGet();
+                return upstream;
+            }));
+        }
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(1, coalescer.inFlightCount());
+
+        upstream.complete("response");
+        for (CompletableFuture<String> waiter : waiters) {
+            Assert.assertEquals("response", waiter.join());
+        }
+        Assert.assertEquals(0, coalescer.inFlightCount());
+    }
+
+    @Test
+    public void failureIsSharedAndReleasedTest() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = coalescer.execute("key", key -> upstream);
+        CompletableFuture<String> second = coalescer.execute("key", key -> CompletableFuture.completedFuture("x"));
+        upstream.completeExceptionally(new IllegalStateException("upstream failed"));
+
+        try {
+            second.join();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertTrue(first.isCompletedExceptionally());
+
+        // Once released, the next caller starts a new call.
+        Assert.assertEquals("y", coalescer.execute("key", key -> CompletableFuture.completedFuture("y")).join());
+    }
+
+    @Test
+    public void loaderExceptionTest() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        CompletableFuture<String> result = coalescer.execute("key", key -> {
+            throw new IllegalArgumentException();
+        });
+
+        Assert.assertTrue(result.isCompletedExceptionally());
+        Assert.assertEquals(0, coalescer.inFlightCount());
+    }
+}
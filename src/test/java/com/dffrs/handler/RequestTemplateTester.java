@@ -0,0 +1,64 @@
+package com.dffrs.handler;
+
+import com.dffrs.transport.TransportRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RequestTemplateTester {
+    private static final Map<String, String> OPTIONS = Map.of(
+            "host", "https://car-code.p.rapidapi.com",
+            "rapid_api_host", "car-code.p.rapidapi.com",
+            "rapid_api_key", "key",
+            "header", "x-rapidapi-host",
+            "header1", "x-rapidapi-key",
+            "endpoint", "obd2");
+
+    private static RequestTemplate withEndpoint(String endpoint) {
+        Map<String, String> options = new HashMap<>(OPTIONS);
+        options.put("endpoint", endpoint);
+        return RequestTemplate.compile(options);
+    }
+
+    @Test
+    public void newRequestTest() {
+        RequestTemplate template = RequestTemplate.compile(OPTIONS);
+        String apiCall = new APIHandler.Request(null, List.of("P0001")).getAPICall(template);
+        TransportRequest request = template.newRequest(apiCall);
+
+        Assert.assertEquals("obd2/P0001", apiCall);
+        Assert.assertEquals("https://car-code.p.rapidapi.com/obd2/P0001", request.getUri().toString());
+        Assert.assertEquals("car-code.p.rapidapi.com", request.getHeader("x-rapidapi-host"));
+        Assert.assertEquals("key", request.getHeader("x-rapidapi-key"));
+
+        TransportRequest conditional = template.newRequest(apiCall, "If-None-Match", "\"v1\"");
+        Assert.assertEquals("\"v1\"", conditional.getHeader("If-None-Match"));
+        Assert.assertEquals("key", conditional.getHeader("x-rapidapi-key"));
+        Assert.assertEquals(4, template.newRequest(apiCall).getHeaders().length);
+    }
+
+    @Test
+    public void pathParametersTest() {
+        RequestTemplate template = withEndpoint("obd2/{code}/details/{lang}");
+
+        Assert.assertEquals("obd2/P0001/details/en",
+                new APIHandler.Request(null, List.of("P0001", "en")).getAPICall(template));
+        Assert.assertEquals("obd2/P%200001/details/pt/extra",
+                new APIHandler.Request(null, List.of("P 0001", "pt", "extra")).getAPICall(template));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new APIHandler.Request(null, List.of("P0001")).getAPICall(template));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new APIHandler.Request(List.of("q"), List.of("P0001")).getAPICall(template));
+        Assert.assertThrows(IllegalArgumentException.class, () -> withEndpoint("obd2/{code"));
+    }
+
+    @Test
+    public void missingHeadersAreLeftOutTest() {
+        RequestTemplate template = RequestTemplate.compile(Map.of("host", "https://localhost", "endpoint", "obd2"));
+
+        Assert.assertEquals(0, template.newRequest("obd2/P0001").getHeaders().length);
+    }
+}
@@ -0,0 +1,104 @@
+package com.dffrs.load;
+
+import com.dffrs.handler.APIHandler;
+import com.dffrs.replay.Recording;
+import com.dffrs.replay.ReplayServer;
+import com.dffrs.transport.StubTransport;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public class LoadGeneratorTester {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<APIHandler.Request> mix = List.of(
+            new APIHandler.Request(null, List.of("P0001")),
+            new APIHandler.Request(null, List.of("P0002")),
+            new APIHandler.Request(null, List.of("P0002")));
+
+    @Before
+    public void init() throws IOException {
+        Recording recording = Recording.open(folder.getRoot().toPath().resolve("api.recording"));
+        recording.record("obd2/P0001", StubTransport.json(200, "{\"code\":\"P0001\"}"));
+        recording.record("obd2/P0002", StubTransport.json(200, "{\"code\":\"P0002\"}"));
+    }
+
+    @Test
+    public void replayedLoadTest() throws Exception {
+        APIHandler handler = APIHandler.getInstance(newConfiguration("replay_latency -> 5\n"));
+        ReplayServer server = handler.getReplayServer();
+        Assert.assertNotNull(server);
+
+        LoadReport report = new LoadGenerator(handler, mix, 4, Duration.ofMillis(300)).run();
+
+        Assert.assertTrue(report.getRequestCount() > 0);
+        Assert.assertEquals(0, report.getErrorCount());
+        Assert.assertTrue(report.getThroughput() > 0);
+        Assert.assertTrue(report.getLatencyAtPercentile(50) <= report.getLatencyAtPercentile(99));
+        Assert.assertTrue(report.getLatencyAtPercentile(99) <= report.getMaxLatency());
+        // Only the first call of each request reaches the server, and waits for its latency.
+        Assert.assertEquals(2, server.getRequestCount());
+        Assert.assertTrue(report.getMaxLatency() >= Duration.ofMillis(5).toNanos());
+        Assert.assertTrue(report.toString().startsWith("requests=" + report.getRequestCount() + ", errors=0, "
+                + "replay misses=0"));
+    }
+
+    @Test
+    public void unrecordedCallsAreCountedTest() throws Exception {
+        APIHandler handler = APIHandler.getInstance(newConfiguration(""));
+        List<APIHandler.Request> unrecorded = List.of(new APIHandler.Request(null, List.of("P0003")));
+
+        LoadReport report = new LoadGenerator(handler, unrecorded, 1, Duration.ofMillis(100)).run();
+
+        // Answered with a 404, which is an error too.
+        Assert.assertTrue(report.getReplayMissCount() > 0);
+        Assert.assertEquals(report.getRequestCount(), report.getErrorCount());
+        Assert.assertEquals(handler.getReplayServer().getMissCount(), report.getReplayMissCount());
+    }
+
+    @Test
+    public void failedCallsAreCountedTest() throws Exception {
+        APIHandler handler = APIHandler.getInstance(newConfiguration("replay_error_rate -> 1\n"));
+
+        LoadReport report = new LoadGenerator(handler, mix, 2, Duration.ofMillis(100)).run();
+
+        Assert.assertTrue(report.getRequestCount() > 0);
+        Assert.assertEquals(report.getRequestCount(), report.getErrorCount());
+        // Failed responses are not cached, but concurrent calls for the same request still share one.
+        ReplayServer server = handler.getReplayServer();
+        Assert.assertTrue(server.getInjectedErrorCount() > 0);
+        Assert.assertEquals(server.getRequestCount(), server.getInjectedErrorCount());
+    }
+
+    @Test
+    public void invalidArgumentsTest() throws Exception {
+        APIHandler handler = APIHandler.getInstance(newConfiguration(""));
+
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new LoadGenerator(handler, List.of(), 1, Duration.ofSeconds(1)));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new LoadGenerator(handler, mix, 0, Duration.ofSeconds(1)));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new LoadGenerator(handler, mix, 1, Duration.ZERO));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new LoadGenerator(null, mix, 1, Duration.ofSeconds(1)));
+    }
+
+    private String newConfiguration(String options) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.writeString(file, "host -> https://car-code.p.rapidapi.com\n" +
+                "endpoint -> obd2\n" +
+                "replay_mode -> replay\n" +
+                "replay_file -> api.recording\n" + options);
+        return file.toString();
+    }
+}
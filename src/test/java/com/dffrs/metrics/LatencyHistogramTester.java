@@ -0,0 +1,63 @@
+package com.dffrs.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class LatencyHistogramTester {
+
+    @Test
+    public void percentilesTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000_000); // 1ms to 1s.
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1_000_000_000, histogram.getMax());
+        Assert.assertEquals(500_500_000, histogram.getMean(), 1);
+        assertClose(500_000_000, histogram.getValueAtPercentile(50));
+        assertClose(990_000_000, histogram.getValueAtPercentile(99));
+        Assert.assertEquals(1_000_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void bucketsCoverEveryValueTest() {
+        long[] values = {0, 1, 63, 64, 65, 127, 128, 1_000_003, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value));
+            Assert.assertTrue(highest >= value);
+            Assert.assertTrue(highest - value <= value / 32);
+        }
+    }
+
+    @Test
+    public void concurrentRecordingTest() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t != 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i != 10_000; i++) {
+                    histogram.record(i);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Assert.assertEquals(80_000, histogram.getCount());
+        Assert.assertEquals(9_999, histogram.getMax());
+    }
+
+    private static void assertClose(long expected, long actual) {
+        Assert.assertTrue("Expected ~" + expected + ", got " + actual, Math.abs(expected - actual) <= expected / 32);
+    }
+}
@@ -0,0 +1,191 @@
+package com.dffrs.replay;
+
+import com.dffrs.transport.RecordingTransport;
+import com.dffrs.transport.StubTransport;
+import com.dffrs.transport.TransportRequest;
+import com.dffrs.transport.TransportResponse;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class RecordingTester {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordAndOpenAgainTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("api.recording");
+        Recording recording = Recording.open(file);
+        Assert.assertEquals(0, recording.size());
+        Assert.assertFalse(Files.exists(file));
+
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        headers.put(":status", List.of("200"));
+        headers.put("Content-Type", List.of("application/json"));
+        headers.put("Content-Length", List.of("17"));
+        headers.put("Set-Cookie", List.of("a=1", "b=2"));
+        recording.record("obd2/P0001", new TransportResponse(200, headers,
+                "{\"code\":\"P0001\"}".getBytes(StandardCharsets.UTF_8)));
+        recording.record("obd2/P0002", StubTransport.json(404, "{}"));
+        recording.record("obd2/P0002", StubTransport.json(200, "{\"code\":\"P0002\"}"));
+
+        Recording reopened = Recording.open(file);
+        Assert.assertEquals(2, reopened.size());
+        TransportResponse response = reopened.get("obd2/P0001");
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("{\"code\":\"P0001\"}", new String(response.getBody(), StandardCharsets.UTF_8));
+        Assert.assertEquals(List.of("a=1", "b=2"), response.getHeaders().get("Set-Cookie"));
+        Assert.assertEquals(List.of("application/json"), response.getHeaders().get("Content-Type"));
+        Assert.assertFalse(response.getHeaders().containsKey(":status"));
+        Assert.assertFalse(response.getHeaders().containsKey("Content-Length"));
+        // Recorded again: the last response wins.
+        Assert.assertEquals(200, reopened.get("obd2/P0002").getStatus());
+        Assert.assertNull(reopened.get("obd2/P0003"));
+    }
+
+    @Test
+    public void recordsAreAppendedAndCompactedOnCloseTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("api.recording");
+        Recording recording = Recording.open(file);
+        recording.record("obd2/P0001", StubTransport.json(200, "{\"code\":\"P0001\"}"));
+        long size = Files.size(file);
+        for (int i = 0; i != 10; i++) {
+            recording.record("obd2/P0002", StubTransport.json(200, "{\"version\":" + i + "}"));
+        }
+        Assert.assertTrue(Files.size(file) > size);
+
+        // Readable before being closed...
+        Recording reopened = Recording.open(file);
+        Assert.assertEquals(2, reopened.size());
+        Assert.assertEquals("{\"version\":9}",
+                new String(reopened.get("obd2/P0002").getBody(), StandardCharsets.UTF_8));
+
+        // ...and only the latest responses are kept once closed.
+        long appended = Files.size(file);
+        recording.close();
+        Assert.assertTrue(Files.size(file) < appended);
+        reopened = Recording.open(file);
+        Assert.assertEquals(2, reopened.size());
+        Assert.assertEquals("{\"version\":9}",
+                new String(reopened.get("obd2/P0002").getBody(), StandardCharsets.UTF_8));
+
+        // Recording again appends to the closed file.
+        reopened.record("obd2/P0003", StubTransport.json(404, "{}"));
+        reopened.close();
+        Assert.assertEquals(3, Recording.open(file).size());
+    }
+
+    @Test
+    public void interruptedRecordingKeepsPreviousResponsesTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("api.recording");
+        Recording recording = Recording.open(file);
+        recording.record("obd2/P0001", StubTransport.json(200, "{\"code\":\"P0001\"}"));
+        long complete = Files.size(file);
+        recording.record("obd2/P0002", StubTransport.json(200, "{\"code\":\"P0002\"}"));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(complete + (Files.size(file) - complete) / 2); // Cut in the second response.
+        }
+
+        Recording reopened = Recording.open(file);
+        Assert.assertEquals(1, reopened.size());
+        Assert.assertNotNull(reopened.get("obd2/P0001"));
+
+        reopened.record("obd2/P0003", StubTransport.json(200, "{}"));
+        Recording again = Recording.open(file);
+        Assert.assertEquals(2, again.size());
+        Assert.assertNotNull(again.get("obd2/P0003"));
+    }
+
+    @Test
+    public void version1RecordingIsReadAndRewrittenTest() throws IOException {
+        // Version 1: magic, version, count of entries, then each entry without its marker.
+        Path file = folder.getRoot().toPath().resolve("api.recording");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(0x52504C59);
+            out.writeInt(1);
+            out.writeInt(1);
+            out.writeUTF("obd2/P0001");
+            out.writeShort(200);
+            out.writeShort(1);
+            out.writeUTF("Content-Type");
+            out.writeShort(1);
+            out.writeUTF("application/json");
+            byte[] body = "{\"code\":\"P0001\"}".getBytes(StandardCharsets.UTF_8);
+            out.writeInt(body.length);
+            out.write(body);
+        }
+
+        Recording recording = Recording.open(file);
+        Assert.assertEquals(1, recording.size());
+        Assert.assertEquals("{\"code\":\"P0001\"}",
+                new String(recording.get("obd2/P0001").getBody(), StandardCharsets.UTF_8));
+        Assert.assertEquals(List.of("application/json"), recording.get("obd2/P0001").getHeaders().get("Content-Type"));
+
+        // Recording to it rewrites it as version 2 first.
+        recording.record("obd2/P0002", StubTransport.json(200, "{}"));
+        recording.close();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            Assert.assertEquals(0x52504C59, in.readInt());
+            Assert.assertEquals(2, in.readInt());
+        }
+        Recording reopened = Recording.open(file);
+        Assert.assertEquals(2, reopened.size());
+        Assert.assertNotNull(reopened.get("obd2/P0001"));
+    }
+
+    @Test
+    public void notARecordingTest() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.writeString(file, "host -> https://car-code.p.rapidapi.com\n");
+
+        Assert.assertThrows(IOException.class, () -> Recording.open(file));
+        Assert.assertThrows(IllegalArgumentException.class, () -> Recording.open(null));
+    }
+
+    @Test
+    public void callOfTest() {
+        Assert.assertEquals("obd2/P0001", Recording.callOf(URI.create("https://car-code.p.rapidapi.com/obd2/P0001")));
+        Assert.assertEquals("search/?q=Kendrick+Lamar",
+                Recording.callOf(URI.create("http://127.0.0.1:8080/search/?q=Kendrick+Lamar")));
+        Assert.assertEquals("obd2/P%2F1", Recording.callOf(URI.create("http://127.0.0.1/obd2/P%2F1")));
+    }
+
+    @Test
+    public void recordingTransportTest() throws Exception {
+        Recording recording = Recording.open(folder.getRoot().toPath().resolve("api.recording"));
+        StubTransport stub = new StubTransport(request -> request.getUri().getPath().endsWith("P0003")
+                ? new TransportResponse(304, null, null)
+                : StubTransport.json(200, "{\"path\":\"" + request.getUri().getPath() + "\"}"));
+        RecordingTransport transport = new RecordingTransport(stub, recording);
+
+        transport.send(new TransportRequest(URI.create("https://car-code.p.rapidapi.com/obd2/P0001"),
+                "x-rapidapi-key", "secret"));
+        transport.sendAsync(new TransportRequest(URI.create("https://car-code.p.rapidapi.com/obd2/P0002"))).join();
+        transport.send(new TransportRequest(URI.create("https://car-code.p.rapidapi.com/obd2/P0003")));
+
+        Recording reopened = Recording.open(recording.getFile());
+        Assert.assertEquals(2, reopened.size());
+        Assert.assertEquals("{\"path\":\"/obd2/P0002\"}",
+                new String(reopened.get("obd2/P0002").getBody(), StandardCharsets.UTF_8));
+        // Not Modified responses are not recorded, and request headers never are.
+        Assert.assertNull(reopened.get("obd2/P0003"));
+        Assert.assertFalse(new String(Files.readAllBytes(recording.getFile()), StandardCharsets.ISO_8859_1)
+                .contains("secret"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.dffrs.replay;
+
+import com.dffrs.transport.StubTransport;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+public class ReplayServerTester {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private Recording recording;
+
+    @Before
+    public void init() throws IOException {
+        recording = Recording.open(folder.getRoot().toPath().resolve("api.recording"));
+        recording.record("obd2/P0001", StubTransport.json(200, "{\"code\":\"P0001\"}", "ETag", "\"v1\""));
+        recording.record("search/?q=Kendrick+Lamar", StubTransport.json(200, "{\"hits\":[]}"));
+    }
+
+    @Test
+    public void servesRecordedResponsesTest() throws Exception {
+        try (ReplayServer server = new ReplayServer(recording, Duration.ZERO, 0)) {
+            HttpResponse<String> response = get(server, "/obd2/P0001", null);
+            Assert.assertEquals(200, response.statusCode());
+            Assert.assertEquals("{\"code\":\"P0001\"}", response.body());
+            Assert.assertEquals("application/json", response.headers().firstValue("Content-Type").orElse(null));
+
+            Assert.assertEquals("{\"hits\":[]}", get(server, "/search/?q=Kendrick+Lamar", null).body());
+
+            // Unknown calls are not made up.
+            response = get(server, "/obd2/P0003", null);
+            Assert.assertEquals(404, response.statusCode());
+            Assert.assertEquals("{\"error\":\"not recorded\"}", response.body());
+
+            Assert.assertEquals(3, server.getRequestCount());
+            Assert.assertEquals(1, server.getMissCount());
+        }
+    }
+
+    @Test
+    public void conditionalRequestTest() throws Exception {
+        try (ReplayServer server = new ReplayServer(recording, Duration.ZERO, 0)) {
+            HttpResponse<String> response = get(server, "/obd2/P0001", "\"v1\"");
+            Assert.assertEquals(304, response.statusCode());
+            Assert.assertEquals("", response.body());
+
+            Assert.assertEquals(200, get(server, "/obd2/P0001", "\"v0\"").statusCode());
+        }
+    }
+
+    @Test
+    public void latencyAndErrorInjectionTest() throws Exception {
+        try (ReplayServer server = new ReplayServer(recording, Duration.ofMillis(50), 1)) {
+            long begin = System.nanoTime();
+            HttpResponse<String> response = get(server, "/obd2/P0001", null);
+            Assert.assertTrue(System.nanoTime() - begin >= Duration.ofMillis(50).toNanos());
+            Assert.assertEquals(503, response.statusCode());
+            Assert.assertEquals(1, server.getInjectedErrorCount());
+        }
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> new ReplayServer(recording, Duration.ZERO, 1.5));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new ReplayServer(recording, Duration.ofMillis(-1), 0));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new ReplayServer(null, Duration.ZERO, 0));
+    }
+
+    private HttpResponse<String> get(ReplayServer server, String path, String tag) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(server.getURI() + path)).GET();
+        if (tag != null)
+            request.header("If-None-Match", tag);
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,100 @@
+package com.dffrs.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JavaHttpTransportTester {
+    HttpServer server;
+    URI baseUri;
+    AtomicInteger inProgress = new AtomicInteger();
+    AtomicInteger maxInProgress = new AtomicInteger();
+
+    @Before
+    public void init() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"key\":\"" + exchange.getRequestHeaders().getFirst("x-rapidapi-key") + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            inProgress.decrementAndGet();
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        baseUri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/obd2/P0001");
+    }
+
+    @After
+    public void close() {
+        server.stop(0);
+    }
+
+    private JavaHttpTransport newTransport(int maxConnections) {
+        return new JavaHttpTransport(Duration.ofSeconds(5), Duration.ofSeconds(5), maxConnections,
+                HttpClient.Version.HTTP_2, null);
+    }
+
+    @Test
+    public void sendTest() throws Exception {
+        TransportResponse response = newTransport(0).send(new TransportRequest(baseUri, "x-rapidapi-key", "abc"));
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertEquals("{\"key\":\"abc\"}", new String(response.getBody(), StandardCharsets.UTF_8));
+        Assert.assertNotNull(response.getHeaders().get("etag"));
+    }
+
+    @Test
+    public void sendAsyncRespectsMaxConnectionsTest() {
+        JavaHttpTransport transport = newTransport(2);
+        List<CompletableFuture<TransportResponse>> futures = new ArrayList<>();
+        for (int i = 0; i != 10; i++) {
+            futures.add(transport.sendAsync(new TransportRequest(baseUri)));
+        }
+        for (CompletableFuture<TransportResponse> future : futures) {
+            Assert.assertEquals(200, future.join().getStatus());
+        }
+        Assert.assertTrue(maxInProgress.get() <= 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oddHeadersTest() {
+        new TransportRequest(baseUri, "x-rapidapi-key");
+    }
+
+    @Test
+    public void streamReleasesSlotOnCloseTest() throws Exception {
+        JavaHttpTransport transport = newTransport(1);
+
+        try (StreamingResponse response = transport.stream(new TransportRequest(baseUri, "x-rapidapi-key", "abc"))) {
+            Assert.assertEquals("{\"key\":\"abc\"}", new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8));
+        }
+        // The only slot was released, so a second call does not wait forever.
+        Assert.assertEquals(200, transport.sendAsync(new TransportRequest(baseUri)).get(5, TimeUnit.SECONDS).getStatus());
+    }
+}
@@ -0,0 +1,185 @@
+package com.dffrs.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ResilientTransportTester {
+    private static final TransportRequest REQUEST = new TransportRequest(URI.create("http://localhost/obd2/P0001"));
+
+    @Test
+    public void retriesTransientStatusTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        StubTransport stub = new StubTransport(request -> calls.getAndIncrement() < 2
+                ? StubTransport.json(503, "{}") : StubTransport.json(200, "{}"));
+        ResilientTransport transport = new ResilientTransport(stub, 3, Duration.ofMillis(1), false, 0,
+                Duration.ZERO);
+
+        Assert.assertEquals(200, transport.send(REQUEST).getStatus());
+        Assert.assertEquals(3, stub.getRequests().size());
+        Assert.assertEquals(2, transport.getRetryCount());
+    }
+
+    @Test
+    public void retriesStopAfterMaxRetriesTest() throws Exception {
+        StubTransport stub = new StubTransport(request -> StubTransport.json(502, "{}"));
+        ResilientTransport transport = new ResilientTransport(stub, 2, Duration.ofMillis(1), false, 0,
+                Duration.ZERO);
+
+        Assert.assertEquals(502, transport.sendAsync(REQUEST).join().getStatus());
+        Assert.assertEquals(3, stub.getRequests().size());
+    }
+
+    @Test
+    public void clientErrorsAreNotRetriedTest() throws Exception {
+        StubTransport stub = new StubTransport(request -> StubTransport.json(404, "{}"));
+        ResilientTransport transport = new ResilientTransport(stub, 2, Duration.ofMillis(1), false, 0,
+                Duration.ZERO);
+
+        Assert.assertEquals(404, transport.send(REQUEST).getStatus());
+        Assert.assertEquals(1, stub.getRequests().size());
+    }
+
+    @Test
+    public void retriesFailedAsyncRequestsTest() {
+        AtomicInteger calls = new AtomicInteger();
+        Transport failing = asyncTransport(request -> calls.getAndIncrement() == 0
+                ? CompletableFuture.failedFuture(new IOException("connection reset"))
+                : CompletableFuture.completedFuture(StubTransport.json(200, "{}")));
+        ResilientTransport transport = new ResilientTransport(failing, 1, Duration.ofMillis(1), false, 0,
+                Duration.ZERO);
+
+        Assert.assertEquals(200, transport.sendAsync(REQUEST).join().getStatus());
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void slowRequestIsHedgedTest() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<TransportResponse> stuck = new CompletableFuture<>();
+        Transport transport = asyncTransport(request -> calls.incrementAndGet() == 101
+                ? stuck : CompletableFuture.completedFuture(StubTransport.json(200, "{}")));
+        ResilientTransport hedged = new ResilientTransport(transport, 0, Duration.ZERO, true, 0, Duration.ZERO);
+        for (int i = 0; i != 100; i++) { // Learns the usual latency.
+            hedged.sendAsync(REQUEST).join();
+        }
+        Assert.assertEquals(0, hedged.getHedgeCount());
+
+        Assert.assertEquals(200, hedged.sendAsync(REQUEST).join().getStatus());
+        Assert.assertEquals(1, hedged.getHedgeCount());
+        Assert.assertEquals(102, calls.get());
+        Assert.assertTrue(stuck.isCancelled());
+    }
+
+    @Test
+    public void hedgedLoserIsCancelledThroughThrottlingTest() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<TransportResponse> stuck = new CompletableFuture<>();
+        Transport transport = asyncTransport(request -> calls.incrementAndGet() == 101
+                ? stuck : CompletableFuture.completedFuture(StubTransport.json(200, "{}")));
+        ThrottledTransport throttled = new ThrottledTransport(transport, 0, 1, 2);
+        ResilientTransport hedged = new ResilientTransport(throttled, 0, Duration.ZERO, true, 0, Duration.ZERO);
+        for (int i = 0; i != 100; i++) { // Learns the usual latency.
+            hedged.sendAsync(REQUEST).join();
+        }
+
+        Assert.assertEquals(200, hedged.sendAsync(REQUEST).join().getStatus());
+        Assert.assertEquals(1, hedged.getHedgeCount());
+        Assert.assertEquals(102, calls.get());
+        Assert.assertTrue(stuck.isCancelled()); // Through the throttling, which also freed the loser's slot.
+        Assert.assertEquals(200, throttled.sendAsync(REQUEST).join().getStatus());
+    }
+
+    @Test
+    public void lateFailuresDoNotExtendOpenCircuitTest() throws Exception {
+        List<CompletableFuture<TransportResponse>> pending = new ArrayList<>();
+        Transport transport = asyncTransport(request -> {
+            CompletableFuture<TransportResponse> response = new CompletableFuture<>();
+            synchronized (pending) {
+                pending.add(response);
+            }
+            return response;
+        });
+        ResilientTransport resilient = new ResilientTransport(transport, 0, Duration.ZERO, false, 1,
+                Duration.ofMillis(100));
+        CompletableFuture<TransportResponse> first = resilient.sendAsync(REQUEST);
+        CompletableFuture<TransportResponse> second = resilient.sendAsync(REQUEST);
+
+        pending.get(0).complete(StubTransport.json(500, "{}"));
+        Assert.assertEquals(500, first.join().getStatus());
+        Assert.assertTrue(resilient.isCircuitOpen());
+        Thread.sleep(60);
+        pending.get(1).complete(StubTransport.json(500, "{}")); // Sent before the circuit opened.
+        Assert.assertEquals(500, second.join().getStatus());
+        Thread.sleep(60);
+
+        CompletableFuture<TransportResponse> trial = resilient.sendAsync(REQUEST); // 120ms after opening.
+        Assert.assertEquals(3, pending.size());
+        pending.get(2).complete(StubTransport.json(200, "{}"));
+        Assert.assertEquals(200, trial.join().getStatus());
+        Assert.assertFalse(resilient.isCircuitOpen());
+    }
+
+    @Test
+    public void circuitOpensAndClosesTest() throws Exception {
+        AtomicInteger status = new AtomicInteger(500);
+        StubTransport stub = new StubTransport(request -> StubTransport.json(status.get(), "{}"));
+        ResilientTransport transport = new ResilientTransport(stub, 0, Duration.ZERO, false, 3,
+                Duration.ofMillis(50));
+
+        for (int i = 0; i != 3; i++) {
+            Assert.assertEquals(500, transport.send(REQUEST).getStatus());
+        }
+        Assert.assertTrue(transport.isCircuitOpen());
+        Assert.assertThrows(CircuitOpenException.class, () -> transport.send(REQUEST));
+        CompletionException e = Assert.assertThrows(CompletionException.class,
+                () -> transport.sendAsync(REQUEST).join());
+        Assert.assertTrue(e.getCause() instanceof CircuitOpenException);
+        Assert.assertEquals(3, stub.getRequests().size());
+
+        Thread.sleep(60);
+        status.set(200);
+        Assert.assertEquals(200, transport.send(REQUEST).getStatus()); // Trial request.
+        Assert.assertFalse(transport.isCircuitOpen());
+    }
+
+    @Test
+    public void failedTrialRequestOpensCircuitAgainTest() throws Exception {
+        StubTransport stub = new StubTransport(request -> {
+            throw new UncheckedIOException(new IOException("connection refused"));
+        });
+        ResilientTransport transport = new ResilientTransport(stub, 0, Duration.ZERO, false, 1,
+                Duration.ofMillis(50));
+
+        Assert.assertThrows(UncheckedIOException.class, () -> transport.send(REQUEST));
+        Assert.assertTrue(transport.isCircuitOpen());
+        Thread.sleep(60);
+        Assert.assertThrows(UncheckedIOException.class, () -> transport.send(REQUEST)); // Trial request.
+        Assert.assertThrows(CircuitOpenException.class, () -> transport.send(REQUEST));
+        Assert.assertEquals(2, stub.getRequests().size());
+    }
+
+    private static Transport asyncTransport(Function<TransportRequest, CompletableFuture<TransportResponse>> responder) {
+        return new Transport() {
+            @Override
+            public TransportResponse send(TransportRequest request) {
+                return responder.apply(request).join();
+            }
+
+            @Override
+            public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+                return responder.apply(request);
+            }
+        };
+    }
+}
@@ -0,0 +1,57 @@
+package com.dffrs.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * {@link Transport} used in tests, instead of calling the real API's host. Every request is recorded, and
+ * answered by the given function.
+ */
+public class StubTransport implements Transport {
+    private final Function<TransportRequest, TransportResponse> responder;
+    private final List<TransportRequest> requests = new CopyOnWriteArrayList<>();
+
+    public StubTransport(Function<TransportRequest, TransportResponse> responder) {
+        this.responder = responder;
+    }
+
+    /**
+     * Creates a {@link StubTransport} answering every request with a JSON body echoing the requested path.
+     */
+    public static StubTransport echo() {
+        return new StubTransport(request -> json(200, "{\"path\":\"" + request.getUri().getPath() + "\"}"));
+    }
+
+    public static TransportResponse json(int status, String body, String... headers) {
+        Map<String, List<String>> map = new HashMap<>();
+        map.put("Content-Type", List.of("application/json"));
+        for (int i = 0; i < headers.length; i += 2) {
+            map.put(headers[i], List.of(headers[i + 1]));
+        }
+        return new TransportResponse(status, map, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public List<TransportRequest> getRequests() {
+        return requests;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) {
+        requests.add(request);
+        return responder.apply(request);
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        try {
+            return CompletableFuture.completedFuture(send(request));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.dffrs.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ThrottledTransportTester {
+    private static final TransportRequest REQUEST = new TransportRequest(URI.create("http://localhost/obd2/P0001"));
+
+    @Test
+    public void rateLimitSpacesRequestsTest() throws Exception {
+        StubTransport stub = StubTransport.echo();
+        ThrottledTransport transport = new ThrottledTransport(stub, 20, 2, 0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i != 6; i++) {
+            transport.send(REQUEST);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // 2 requests from the burst, then 4 spaced by 50ms.
+        Assert.assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 190);
+        Assert.assertEquals(6, stub.getRequests().size());
+    }
+
+    @Test
+    public void rateLimitAppliesToAsyncRequestsTest() {
+        StubTransport stub = StubTransport.echo();
+        ThrottledTransport transport = new ThrottledTransport(stub, 20, 1, 0);
+
+        long start = System.nanoTime();
+        List<CompletableFuture<TransportResponse>> responses = new ArrayList<>();
+        for (int i = 0; i != 5; i++) {
+            responses.add(transport.sendAsync(REQUEST));
+        }
+        Assert.assertTrue(stub.getRequests().size() < 5); // Not sent yet, and the caller was not blocked.
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture<?>[0])).join();
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 190);
+        Assert.assertEquals(5, stub.getRequests().size());
+    }
+
+    @Test
+    public void concurrencyLimitGrowsAndHalvesOnThrottlingTest() throws Exception {
+        AtomicInteger status = new AtomicInteger(200);
+        ThrottledTransport transport = new ThrottledTransport(
+                new StubTransport(request -> StubTransport.json(status.get(), "{}")), 0, 1, 64);
+
+        Assert.assertEquals(16, transport.getConcurrencyLimit());
+        for (int i = 0; i != 200; i++) {
+            transport.send(REQUEST);
+        }
+        int grown = transport.getConcurrencyLimit();
+        Assert.assertTrue("limit " + grown, grown > 16 && grown <= 64);
+
+        status.set(429);
+        transport.send(REQUEST);
+        Assert.assertEquals(grown / 2, transport.getConcurrencyLimit(), 1);
+        transport.send(REQUEST); // A burst of throttled responses only counts once.
+        Assert.assertEquals(grown / 2, transport.getConcurrencyLimit(), 1);
+    }
+
+    @Test
+    public void concurrencyLimitQueuesAsyncRequestsTest() {
+        List<CompletableFuture<TransportResponse>> pending = new ArrayList<>();
+        Transport slow = new Transport() {
+            @Override
+            public TransportResponse send(TransportRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public synchronized CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+                CompletableFuture<TransportResponse> response = new CompletableFuture<>();
+                pending.add(response);
+                return response;
+            }
+        };
+        ThrottledTransport transport = new ThrottledTransport(slow, 0, 1, 4);
+
+        List<CompletableFuture<TransportResponse>> responses = new ArrayList<>();
+        for (int i = 0; i != 6; i++) {
+            responses.add(transport.sendAsync(REQUEST));
+        }
+        Assert.assertEquals(4, pending.size());
+
+        pending.get(0).complete(StubTransport.json(200, "{}"));
+        Assert.assertEquals(5, pending.size());
+        for (int i = 1; i != 6; i++) {
+            pending.get(i).complete(StubTransport.json(200, "{}"));
+        }
+        for (CompletableFuture<TransportResponse> response : responses) {
+            Assert.assertEquals(200, response.join().getStatus());
+        }
+    }
+
+    @Test
+    public void cancellingAsyncRequestsTest() {
+        List<CompletableFuture<TransportResponse>> pending = new ArrayList<>();
+        Transport slow = new Transport() {
+            @Override
+            public TransportResponse send(TransportRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public synchronized CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+                CompletableFuture<TransportResponse> response = new CompletableFuture<>();
+                pending.add(response);
+                return response;
+            }
+        };
+        ThrottledTransport transport = new ThrottledTransport(slow, 0, 1, 1);
+
+        CompletableFuture<TransportResponse> sent = transport.sendAsync(REQUEST);
+        CompletableFuture<TransportResponse> waiting = transport.sendAsync(REQUEST);
+        Assert.assertEquals(1, pending.size());
+
+        // A waiting request gives up its place, and a sent one reaches the delegate and frees its slot.
+        waiting.cancel(true);
+        sent.cancel(true);
+        Assert.assertTrue(pending.get(0).isCancelled());
+        Assert.assertEquals(1, pending.size());
+
+        CompletableFuture<TransportResponse> next = transport.sendAsync(REQUEST);
+        Assert.assertEquals(2, pending.size());
+        pending.get(1).complete(StubTransport.json(200, "{}"));
+        Assert.assertEquals(200, next.join().getStatus());
+    }
+
+    @Test
+    public void retryAfterPausesRequestsTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        StubTransport stub = new StubTransport(request -> calls.getAndIncrement() == 0
+                ? StubTransport.json(429, "{}", "retry-after", "1")
+                : StubTransport.json(200, "{}"));
+        ThrottledTransport transport = new ThrottledTransport(stub, 1000, 10, 0);
+
+        Assert.assertEquals(429, transport.send(REQUEST).getStatus());
+        long start = System.nanoTime();
+        Assert.assertEquals(200, transport.send(REQUEST).getStatus());
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 900);
+    }
+
+    @Test
+    public void retryAfterParsingTest() {
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(3),
+                ThrottledTransport.retryAfterNanos(Map.of("Retry-After", List.of("3"))));
+        Assert.assertEquals(TimeUnit.MINUTES.toNanos(5),
+                ThrottledTransport.retryAfterNanos(Map.of("Retry-After", List.of("86400"))));
+        Assert.assertEquals(0, ThrottledTransport.retryAfterNanos(Map.of("Retry-After", List.of("soon"))));
+        Assert.assertEquals(0, ThrottledTransport.retryAfterNanos(
+                Map.of("Retry-After", List.of("Wed, 21 Oct 2015 07:28:00 GMT")))); // In the past.
+        Assert.assertEquals(0, ThrottledTransport.retryAfterNanos(Map.of()));
+    }
+}
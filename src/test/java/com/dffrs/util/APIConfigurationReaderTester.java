@@ -2,18 +2,28 @@ package com.dffrs.util;
 
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class APIConfigurationReaderTester {
     URL testFile = getClass().getResource("/testFileAPIWithParameters.txt");
     URL testFileWithMissingParameters = getClass().getResource("/testFileWithMissingParameters.txt");
     URL testFileEmpty = getClass().getResource("/testFileEmpty.txt");
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     APIConfigurationReader reader;
     String normalPath = "";
     String missingParametersPath = "";
@@ -64,4 +74,73 @@ public class APIConfigurationReaderTester {
     public void getConfigurationWithEmptyPathTest() {
         reader = APIConfigurationReader.getInstance("");
     }
+
+    @Test
+    public void getInstancePerFileTest() {
+        APIConfigurationReader other = APIConfigurationReader.getInstance(missingParametersPath);
+
+        Assert.assertSame(reader, APIConfigurationReader.getInstance(normalPath));
+        Assert.assertNotSame(reader, other);
+        Assert.assertEquals(missingParametersPath, other.getFilePath());
+    }
+
+    @Test
+    public void duplicatedOptionsAreNumberedTest() throws FileNotFoundException {
+        Map<String, String> aux = reader.getConfigurations();
+        Assert.assertEquals("x-rapidapi-host", aux.get("header"));
+        Assert.assertEquals("x-rapidapi-key", aux.get("header1"));
+    }
+
+    @Test
+    public void fileIsReadOnceTest() throws IOException {
+        Path file = writeConfiguration(folder.newFile().toPath(), "key-1");
+        reader = APIConfigurationReader.getInstance(file.toString());
+        ConfigurationSnapshot first = reader.getSnapshot();
+
+        writeConfiguration(file, "key-2");
+        Assert.assertSame(first, reader.getSnapshot());
+        Assert.assertSame(first.asMap(), reader.getConfigurations());
+        Assert.assertThrows(UnsupportedOperationException.class, () -> reader.getConfigurations().put("host", ""));
+
+        ConfigurationSnapshot reloaded = reader.reload();
+        Assert.assertEquals("key-2", reloaded.get("rapid_api_key"));
+        Assert.assertEquals(first.getVersion() + 1, reloaded.getVersion());
+        Assert.assertEquals("key-1", first.get("rapid_api_key")); // Snapshots never change.
+        Assert.assertSame(reloaded, reader.reload()); // Nothing changed.
+    }
+
+    @Test
+    public void failedReloadKeepsSnapshotTest() throws IOException {
+        Path file = writeConfiguration(folder.newFile().toPath(), "key-1");
+        reader = APIConfigurationReader.getInstance(file.toString());
+        ConfigurationSnapshot first = reader.getSnapshot();
+
+        Files.writeString(file, "");
+        Assert.assertThrows(IllegalStateException.class, () -> reader.reload());
+        Assert.assertSame(first, reader.getSnapshot());
+    }
+
+    @Test
+    public void watchReloadsChangedFileTest() throws IOException, InterruptedException {
+        Path file = writeConfiguration(folder.newFile().toPath(), "key-1");
+        reader = APIConfigurationReader.getInstance(file.toString());
+        reader.getSnapshot();
+        List<ConfigurationSnapshot> notified = new CopyOnWriteArrayList<>();
+        reader.addListener(notified::add);
+        reader.watch();
+
+        writeConfiguration(file, "key-2");
+        for (int i = 0; i != 100 && notified.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertFalse(notified.isEmpty());
+        Assert.assertEquals("key-2", notified.get(notified.size() - 1).get("rapid_api_key"));
+        Assert.assertEquals("key-2", reader.getConfigurations().get("rapid_api_key"));
+    }
+
+    private static Path writeConfiguration(Path file, String key) throws IOException {
+        return Files.writeString(file, "host -> https://car-code.p.rapidapi.com\n" +
+                "rapid_api_key -> " + key + "\n" +
+                "endpoint -> obd2\n");
+    }
 }